@@ -0,0 +1,275 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Color;
+import java.awt.Image;
+import java.net.URL;
+import java.util.ArrayDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+/**
+ * AttributePool, This class holds shared instances of the colors, icons and texts of checkbox tree
+ * entries. Generated trees often give thousands of entries their own copies of the same color, the
+ * same icon, or the same text. A pool returns one shared instance for each distinct value, so that
+ * the copies can be garbage collected. Shared icon instances also let the renderer size caches,
+ * which compare icons by identity, find the sizes of more rows.
+ *
+ * Values can be shared in three ways. The factory functions color() and icon() return a shared
+ * instance without creating a new object when the value is already in the pool. The intern
+ * functions return the shared instance that is equal to a supplied value. The entry functions
+ * internEntry() and internSubtree() replace the attributes of existing entries with shared
+ * instances. See also, CheckEntry.withPooledAttributes() and CheckModel.setAttributePool().
+ *
+ * Colors are shared by their RGB value, including the alpha value. Only instances of the Color
+ * class itself are shared, so subclasses such as ColorUIResource keep their own identity. Icons
+ * are shared by the identity of their image, and by their description. Only instances of the
+ * ImageIcon class itself that have no image observer are shared. ImageIcon instances that are
+ * loaded from the same file or the same URL receive the same image instance from the toolkit
+ * image cache, so they are shared, while icons that show different images are never merged, even
+ * if they have the same description. Other icons are never replaced. Texts are shared by their
+ * value.
+ *
+ * A pool can be used by any number of threads, so a tree can be built outside of the event
+ * dispatch thread. A pool keeps every value that it has shared, until clear() is called.
+ */
+public class AttributePool {
+
+    /**
+     * colors, This holds the shared colors, by RGB value.
+     */
+    private final ConcurrentHashMap<Integer, Color> colors
+            = new ConcurrentHashMap<Integer, Color>();
+
+    /**
+     * icons, This holds the shared icons, by image instance and description.
+     */
+    private final ConcurrentHashMap<IconKey, Icon> icons = new ConcurrentHashMap<IconKey, Icon>();
+
+    /**
+     * iconsByLocation, This holds the shared icons that were loaded by icon(URL), by location.
+     */
+    private final ConcurrentHashMap<String, Icon> iconsByLocation
+            = new ConcurrentHashMap<String, Icon>();
+
+    /**
+     * texts, This holds the shared texts.
+     */
+    private final ConcurrentHashMap<String, String> texts = new ConcurrentHashMap<String, String>();
+
+    /**
+     * clear, This removes every value from the pool. Values that were already shared are not
+     * changed.
+     */
+    public void clear() {
+        colors.clear();
+        icons.clear();
+        iconsByLocation.clear();
+        texts.clear();
+    }
+
+    /**
+     * color, This returns the shared opaque color with the supplied RGB value. The red component is
+     * in bits 16 to 23, the green component is in bits 8 to 15, and the blue component is in bits 0
+     * to 7. A new color is only created if the pool does not hold the color yet.
+     */
+    public Color color(int rgb) {
+        return color(rgb, false);
+    }
+
+    /**
+     * color, This returns the shared color with the supplied RGB value. If hasAlpha is true, the
+     * alpha component is in bits 24 to 31, otherwise the color is opaque. A new color is only
+     * created if the pool does not hold the color yet.
+     */
+    public Color color(int rgba, boolean hasAlpha) {
+        int argb = (hasAlpha) ? rgba : (0xff000000 | rgba);
+        Color color = colors.get(argb);
+        if (color == null) {
+            color = zPutIfAbsent(colors, argb, new Color(argb, true));
+        }
+        return color;
+    }
+
+    /**
+     * color, This returns the shared opaque color with the supplied red, green and blue components,
+     * each in the range 0 to 255.
+     *
+     * @exception IllegalArgumentException if any component is outside of the range 0 to 255.
+     */
+    public Color color(int red, int green, int blue) {
+        if (((red | green | blue) & ~0xff) != 0) {
+            throw new IllegalArgumentException("AttributePool.color(), "
+                    + "The color components must be in the range 0 to 255.");
+        }
+        return color((red << 16) | (green << 8) | blue, false);
+    }
+
+    /**
+     * getColorCount, This returns the number of shared colors.
+     */
+    public int getColorCount() {
+        return colors.size();
+    }
+
+    /**
+     * getIconCount, This returns the number of shared icons.
+     */
+    public int getIconCount() {
+        return icons.size();
+    }
+
+    /**
+     * getMaximumIconHeight, This returns the height of the tallest shared icon, or 0 if the pool
+     * holds no icon. Icons that are not shared by the pool are not included. See also,
+     * internIcon().
+     */
+    public int getMaximumIconHeight() {
+        int maximumHeight = 0;
+        for (Icon icon : icons.values()) {
+            maximumHeight = Math.max(maximumHeight, icon.getIconHeight());
+        }
+        return maximumHeight;
+    }
+
+    /**
+     * getTextCount, This returns the number of shared texts.
+     */
+    public int getTextCount() {
+        return texts.size();
+    }
+
+    /**
+     * icon, This returns the shared icon for the image at the supplied location. The image is only
+     * loaded if the pool does not hold an icon for the location yet. The location is usually found
+     * with Class.getResource(). This returns null if the location is null.
+     */
+    public Icon icon(URL location) {
+        if (location == null) {
+            return null;
+        }
+        String locationText = location.toExternalForm();
+        Icon icon = iconsByLocation.get(locationText);
+        if (icon == null) {
+            icon = zPutIfAbsent(iconsByLocation, locationText, internIcon(new ImageIcon(location)));
+        }
+        return icon;
+    }
+
+    /**
+     * internColor, This returns the shared color that is equal to the supplied color. If the pool
+     * does not hold an equal color, the supplied color becomes the shared color. Null, and
+     * instances of Color subclasses, are returned unchanged.
+     */
+    public Color internColor(Color color) {
+        if ((color == null) || (color.getClass() != Color.class)) {
+            return color;
+        }
+        Color sharedColor = colors.get(color.getRGB());
+        return (sharedColor != null) ? sharedColor : zPutIfAbsent(colors, color.getRGB(), color);
+    }
+
+    /**
+     * internEntry, This replaces the text, the colors and the user icon of the supplied entry with
+     * shared instances. The displayed values do not change.
+     *
+     * Note: For the entries of a CompactCheckModel, use CompactCheckModel.setAttributePool()
+     * instead, because the fields of those entries are copies of the stored values.
+     */
+    public void internEntry(CheckEntry entry) {
+        entry.text = internText(entry.text);
+        entry.textBackgroundColor = internColor(entry.textBackgroundColor);
+        entry.textForegroundColor = internColor(entry.textForegroundColor);
+        entry.userIcon = internIcon(entry.userIcon);
+    }
+
+    /**
+     * internIcon, This returns the shared icon that has the same image instance and the same
+     * description as the supplied icon. If the pool does not hold such an icon, the supplied icon
+     * becomes the shared icon. Null, icons that are not instances of the ImageIcon class itself,
+     * and ImageIcon instances without an image or with an image observer, are returned unchanged.
+     */
+    public Icon internIcon(Icon icon) {
+        if ((icon == null) || (icon.getClass() != ImageIcon.class)) {
+            return icon;
+        }
+        ImageIcon imageIcon = (ImageIcon) icon;
+        if ((imageIcon.getImage() == null) || (imageIcon.getImageObserver() != null)) {
+            return icon;
+        }
+        IconKey key = new IconKey(imageIcon.getImage(), imageIcon.getDescription());
+        Icon sharedIcon = icons.get(key);
+        return (sharedIcon != null) ? sharedIcon : zPutIfAbsent(icons, key, icon);
+    }
+
+    /**
+     * internSubtree, This calls internEntry() for the supplied entry and all of its descendants.
+     * This uses a loop instead of recursion, so that deep trees can not overflow the stack.
+     */
+    public void internSubtree(CheckEntry subtreeRoot) {
+        if (subtreeRoot == null) {
+            return;
+        }
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(subtreeRoot);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            internEntry(entry);
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * internText, This returns the shared text that is equal to the supplied text. If the pool does
+     * not hold an equal text, the supplied text becomes the shared text. Null is returned
+     * unchanged.
+     */
+    public String internText(String text) {
+        if (text == null) {
+            return null;
+        }
+        String sharedText = texts.get(text);
+        return (sharedText != null) ? sharedText : zPutIfAbsent(texts, text, text);
+    }
+
+    /**
+     * zPutIfAbsent, This adds the supplied value to the supplied map if the map does not hold a
+     * value for the key, and returns the value that the map holds for the key.
+     */
+    private static <K, V> V zPutIfAbsent(ConcurrentHashMap<K, V> map, K key, V value) {
+        V previousValue = map.putIfAbsent(key, value);
+        return (previousValue != null) ? previousValue : value;
+    }
+
+    /**
+     * IconKey, This identifies a shared icon by the identity of its image, and by its description.
+     */
+    private static class IconKey {
+
+        final String description;
+        final Image image;
+
+        IconKey(Image image, String description) {
+            this.image = image;
+            this.description = description;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof IconKey)) {
+                return false;
+            }
+            IconKey otherKey = (IconKey) other;
+            return (image == otherKey.image) && ((description == null)
+                    ? (otherKey.description == null) : description.equals(otherKey.description));
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(image) * 31
+                    + ((description == null) ? 0 : description.hashCode());
+        }
+    }
+}
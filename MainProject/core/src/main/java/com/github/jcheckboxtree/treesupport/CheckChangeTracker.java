@@ -0,0 +1,212 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * CheckChangeTracker, This class tracks which entries of a CheckModel have a different check state
+ * than they had at a baseline point in time. This lets an application save or send only the check
+ * states that were changed, so that saving scales with the number of changes, instead of with the
+ * size of the tree.
+ *
+ * A tracker is created and owned by a CheckModel. See also, CheckModel.enableChangeTracking(). The
+ * baseline is the check state of every entry when tracking is enabled, or when markBaseline() was
+ * last called. The first time the check state of an entry changes, its baseline state is stored,
+ * and the stored state is removed when the entry is back at its baseline state. Each change is
+ * compared with the stored state, so a change notification that does not alter the state can not
+ * mark an entry as changed. This takes constant time for each change, and no per-entry storage
+ * for unchanged entries. All check state changes are tracked, including the changes from
+ * setSubtreeChecked(), setAllChecked(), and the range functions of the check state store. Entries
+ * that are added to the model start at their current state, and entries that are removed from the
+ * model are no longer tracked.
+ *
+ * Delta export and import: exportDelta() returns the current check state of each changed entry,
+ * keyed by the entry keys of the model key index. applyDelta() sets the check states of a delta,
+ * in a single update batch. The keys must be unique and stable. The default key of the index is
+ * the user object or the text of each entry, so a key function that returns a unique identifier,
+ * such as a database id or a full path, is recommended. A key that is shared by more than one
+ * entry can not identify the changed entry, so exportDelta() refuses to export it, and
+ * applyDelta() does not apply it. See also, CheckModel.enableKeyIndex().
+ *
+ * Usage example: (save) Map delta = tracker.exportDelta(); store(delta); tracker.markBaseline();
+ * (load) tracker.applyDelta(loadDelta()); tracker.markBaseline();
+ */
+public class CheckChangeTracker {
+
+    /**
+     * baselineStates, This holds the baseline check state of each entry whose check state differs
+     * from its baseline state, in the order in which the entries were last changed.
+     */
+    private final LinkedHashMap<CheckEntry, Boolean> baselineStates
+            = new LinkedHashMap<CheckEntry, Boolean>();
+
+    /**
+     * model, This holds the model that owns this tracker.
+     */
+    private final CheckModel model;
+
+    /**
+     * Constructor, This is package private because trackers are created by CheckModel.
+     */
+    CheckChangeTracker(CheckModel model) {
+        this.model = model;
+    }
+
+    /**
+     * applyDelta, This sets the check state of the entry with each key of the supplied delta to
+     * the check state in the delta, and returns the number of keys that were not applied. A key is
+     * not applied if it is not found in the key index, or if more than one entry has the key,
+     * because then the entry that the delta refers to is not known. Keys with a null check state
+     * are ignored. The changes are sent to the listeners as a single update batch.
+     *
+     * The applied changes are tracked like any other change. To make the applied delta the new
+     * baseline, for example after loading saved check states, call markBaseline() afterwards.
+     *
+     * @exception IllegalStateException if the key index of the model is not enabled.
+     */
+    public int applyDelta(Map<?, Boolean> delta) {
+        EntryKeyIndex keyIndex = zGetKeyIndex("applyDelta");
+        int skippedCount = 0;
+        model.beginUpdate();
+        try {
+            for (Map.Entry<?, Boolean> change : delta.entrySet()) {
+                if (change.getValue() == null) {
+                    continue;
+                }
+                if (keyIndex.getEntryCount(change.getKey()) != 1) {
+                    ++skippedCount;
+                    continue;
+                }
+                keyIndex.getEntry(change.getKey()).setChecked(change.getValue());
+            }
+        } finally {
+            model.endUpdate();
+        }
+        return skippedCount;
+    }
+
+    /**
+     * exportDelta, This returns the current check state of every changed entry, keyed by the key
+     * of the entry in the key index of the model. The map is in the order in which the entries were
+     * last changed. Changed entries without a key are not included. The cost of this function is
+     * proportional to the number of changed entries.
+     *
+     * @exception IllegalStateException if the key index of the model is not enabled, or if the key
+     * of a changed entry is shared by more than one entry.
+     */
+    public Map<Object, Boolean> exportDelta() {
+        EntryKeyIndex keyIndex = zGetKeyIndex("exportDelta");
+        LinkedHashMap<Object, Boolean> delta = new LinkedHashMap<Object, Boolean>();
+        for (CheckEntry entry : baselineStates.keySet()) {
+            Object key = keyIndex.getKey(entry);
+            if (key == null) {
+                continue;
+            }
+            int keyEntryCount = keyIndex.getEntryCount(key);
+            if (keyEntryCount > 1) {
+                throw new IllegalStateException("CheckChangeTracker.exportDelta(), The key \""
+                        + key + "\" of a changed entry is shared by " + keyEntryCount
+                        + " entries, so the delta could not be applied to the right entry. "
+                        + "Use a key function that returns a unique key for each entry. "
+                        + "See also, CheckModel.enableKeyIndex(Function).");
+            }
+            delta.put(key, entry.isChecked());
+        }
+        return delta;
+    }
+
+    /**
+     * getChangedCount, This returns the number of entries whose check state differs from their
+     * baseline state.
+     */
+    public int getChangedCount() {
+        return baselineStates.size();
+    }
+
+    /**
+     * getChangedEntries, This returns a list of the entries whose check state differs from their
+     * baseline state, in the order in which they were last changed.
+     */
+    public List<CheckEntry> getChangedEntries() {
+        return new ArrayList<CheckEntry>(baselineStates.keySet());
+    }
+
+    /**
+     * isChanged, This returns true if the check state of the supplied entry differs from its
+     * baseline state.
+     */
+    public boolean isChanged(CheckEntry entry) {
+        return baselineStates.containsKey(entry);
+    }
+
+    /**
+     * markBaseline, This makes the current check state of every entry the new baseline, so that no
+     * entry is changed. This is usually called after the changes have been saved. This takes time
+     * proportional to the number of changed entries.
+     */
+    public void markBaseline() {
+        baselineStates.clear();
+    }
+
+    /**
+     * revertChanges, This returns every changed entry to its baseline check state. The changes are
+     * sent to the listeners as a single update batch.
+     */
+    public void revertChanges() {
+        if (baselineStates.isEmpty()) {
+            return;
+        }
+        model.beginUpdate();
+        try {
+            // The map is copied, because each reverted entry is removed from the map.
+            for (Map.Entry<CheckEntry, Boolean> baseline
+                    : new ArrayList<Map.Entry<CheckEntry, Boolean>>(baselineStates.entrySet())) {
+                baseline.getKey().setChecked(baseline.getValue());
+            }
+        } finally {
+            model.endUpdate();
+        }
+    }
+
+    /**
+     * zEntryCheckChanged, This is called by the model when the check state of the supplied entry
+     * changes from oldChecked to newChecked. The old state is stored as the baseline state if the
+     * entry was unchanged, and the stored baseline state is removed if the new state is equal to
+     * it.
+     */
+    void zEntryCheckChanged(CheckEntry entry, boolean oldChecked, boolean newChecked) {
+        Boolean baselineChecked = baselineStates.get(entry);
+        if (baselineChecked == null) {
+            if (oldChecked != newChecked) {
+                baselineStates.put(entry, oldChecked);
+            }
+        } else if (baselineChecked == newChecked) {
+            baselineStates.remove(entry);
+        }
+    }
+
+    /**
+     * zEntryDetached, This is called by the model when the supplied entry is removed from the
+     * model.
+     */
+    void zEntryDetached(CheckEntry entry) {
+        baselineStates.remove(entry);
+    }
+
+    /**
+     * zGetKeyIndex, This returns the key index of the model.
+     *
+     * @exception IllegalStateException if the key index of the model is not enabled.
+     */
+    private EntryKeyIndex zGetKeyIndex(String functionName) {
+        EntryKeyIndex keyIndex = model.getKeyIndex();
+        if (keyIndex == null) {
+            throw new IllegalStateException("CheckChangeTracker." + functionName + "(), "
+                    + "The key index of the model must be enabled. "
+                    + "See also, CheckModel.enableKeyIndex().");
+        }
+        return keyIndex;
+    }
+}
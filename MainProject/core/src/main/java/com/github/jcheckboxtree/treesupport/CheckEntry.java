@@ -1,9 +1,11 @@
 package com.github.jcheckboxtree.treesupport;
 
 import java.awt.Color;
+import java.util.Vector;
 import javax.swing.Icon;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
 
 /**
  * CheckEntry, Instances of this class are used as the tree entries (the "nodes") of the checkbox
@@ -16,14 +18,31 @@ public class CheckEntry extends DefaultMutableTreeNode {
 
     /**
      * checkboxVisible, This indicates whether the checkbox should be shown or hidden.
+     *
+     * Note: If this entry belongs to a CheckModel with the tri-state mode enabled, then the function
+     * setCheckboxVisible() should be used to change this value, so that the tri-state counters of
+     * the ancestor entries are updated.
      */
     public BoxVisible checkboxVisible = BoxVisible.Show;
 
     /**
      * checked, This indicates if the checkbox is selected or unselected. (Is checked or unchecked).
+     *
+     * Note: If this entry belongs to a CheckModel that has an enabled CheckStateStore, then the
+     * check state is held by the store, and this field is not updated until the entry is removed
+     * from the model or the store is disabled. The functions isChecked() and setChecked() always
+     * use the correct location, and are the recommended way to read or change the check state.
      */
     public boolean checked = false;
 
+    /**
+     * childProvider, This holds an optional child provider. If this is not null, then this entry
+     * is a "lazy entry". A lazy entry is shown as a folder, and the child provider will be used to
+     * create the children of this entry the first time that this entry is expanded. See also, the
+     * ChildProvider interface.
+     */
+    public ChildProvider childProvider = null;
+
     /**
      * text, This holds the text that should be displayed for this entry.
      */
@@ -58,6 +77,94 @@ public class CheckEntry extends DefaultMutableTreeNode {
      */
     public boolean userIconVisible = true;
 
+    /**
+     * checkableDescendants, This holds the number of descendants of this entry that have a visible
+     * checkbox. This is only maintained while the tri-state mode or the subtree summaries of the
+     * owner model are enabled.
+     */
+    transient int checkableDescendants = 0;
+
+    /**
+     * checkedDescendants, This holds the number of descendants of this entry that have a visible
+     * checkbox and are checked. This is only maintained while the tri-state mode or the subtree
+     * summaries of the owner model are enabled.
+     */
+    transient int checkedDescendants = 0;
+
+    /**
+     * checkStateId, This holds the id of this entry in the check state store of the owner model, or
+     * -1 if this entry is not registered in a check state store. See also, CheckStateStore.
+     */
+    transient int checkStateId = -1;
+
+    /**
+     * childLoadingFailure, This holds the exception from the most recent failed attempt to load the
+     * children of a lazy entry, or null if the most recent attempt did not fail. This is managed by
+     * the CheckModel lazy loading functions.
+     */
+    transient Throwable childLoadingFailure = null;
+
+    /**
+     * childrenLoaded, This is true after the child provider of a lazy entry has supplied the
+     * children of this entry. This is managed by the CheckModel lazy loading functions.
+     */
+    boolean childrenLoaded = false;
+
+    /**
+     * childrenLoading, This is true while the child provider of a lazy entry is running. This is
+     * managed by the CheckModel lazy loading functions.
+     */
+    boolean childrenLoading = false;
+
+    /**
+     * indexKey, This holds the key of this entry in the key index of the owner model, or null if
+     * this entry is not in a key index. See also, EntryKeyIndex.
+     */
+    transient Object indexKey = null;
+
+    /**
+     * indexInParent, This holds the index of this entry in the child array of its parent, or -1 if
+     * this entry has no parent. This is maintained by the insert(), remove() and setParent()
+     * functions, so that the index of a child can be found without searching the child array. The
+     * value is only valid if it is lower than the staleChildIndex of the parent.
+     */
+    transient int indexInParent = -1;
+
+    /**
+     * ownerModel, This holds the CheckModel that contains this entry, or null if this entry is not
+     * contained in a CheckModel. This is managed by CheckModel, and by the insert() and remove()
+     * functions of this class.
+     */
+    transient CheckModel ownerModel = null;
+
+    /**
+     * placeholder, This is true if this entry is a temporary placeholder row, which is displayed
+     * under a lazy entry while its children are being loaded.
+     */
+    boolean placeholder = false;
+
+    /**
+     * staleChildIndex, This holds the lowest child index whose maintained index (indexInParent)
+     * might be outdated, or Integer.MAX_VALUE if every maintained child index is valid. Inserting or
+     * removing a child only lowers this value, and the outdated indexes are updated together by the
+     * next call to getIndex(). This keeps a long run of insertions at the front of a large child
+     * array from reindexing the following children once per insertion.
+     */
+    transient int staleChildIndex = Integer.MAX_VALUE;
+
+    /**
+     * totalCheckedDescendants, This holds the number of descendants of this entry that are
+     * checked, including entries with a hidden checkbox. This is only maintained while the subtree
+     * summaries or the tri-state mode of the owner model are enabled.
+     */
+    transient int totalCheckedDescendants = 0;
+
+    /**
+     * totalDescendants, This holds the number of descendants of this entry. This is only
+     * maintained while the subtree summaries or the tri-state mode of the owner model are enabled.
+     */
+    transient int totalDescendants = 0;
+
     /**
      * Constructor, default.
      *
@@ -117,12 +224,31 @@ public class CheckEntry extends DefaultMutableTreeNode {
         }
     }
 
+    /**
+     * getCheckableDescendantCount, This returns the number of descendants of this entry that have
+     * a visible checkbox. This value is only maintained while this entry belongs to a CheckModel
+     * with the tri-state mode or the subtree summaries enabled. Otherwise this returns zero or an
+     * outdated value.
+     */
+    public int getCheckableDescendantCount() {
+        return checkableDescendants;
+    }
+
+    /**
+     * getCheckedDescendantCount, This returns the number of descendants of this entry that have a
+     * visible checkbox and are checked. This value is only maintained while this entry belongs to a
+     * CheckModel with the tri-state mode or the subtree summaries enabled. Otherwise this returns
+     * zero or an outdated value.
+     */
+    public int getCheckedDescendantCount() {
+        return checkedDescendants;
+    }
+
     /**
      * getChildAfter, Returns the child in this node's child array that immediately follows
      * <code>aChild</code>, which must be a child of this node. If <code>aChild</code> is the last
-     * child, returns null. This method performs a linear search of this node's children for
-     * <code>aChild</code> and is O(n) where n is the number of children; to traverse the entire
-     * array of children, use an enumeration instead.
+     * child, returns null. This method uses the maintained index of <code>aChild</code>, and is
+     * O(1).
      *
      * @see #children
      * @exception IllegalArgumentException if <code>aChild</code> is null or is not a child of this
@@ -148,8 +274,8 @@ public class CheckEntry extends DefaultMutableTreeNode {
     /**
      * getChildBefore, Returns the child in this node's child array that immediately precedes
      * <code>aChild</code>, which must be a child of this node. If <code>aChild</code> is the first
-     * child, returns null. This method performs a linear search of this node's children for
-     * <code>aChild</code> and is O(n) where n is the number of children.
+     * child, returns null. This method uses the maintained index of <code>aChild</code>, and is
+     * O(1).
      *
      * @exception IllegalArgumentException if <code>aChild</code> is null or is not a child of this
      * node
@@ -159,6 +285,16 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return (CheckEntry) super.getChildBefore(aChild);
     }
 
+    /**
+     * getChildLoadingFailure, This returns the exception that was thrown by the child provider
+     * during the most recent attempt to load the children of this lazy entry. This returns null if
+     * loading has never failed, or if a later loading attempt was started or has succeeded. An
+     * entry with a loading failure is left in the unloaded state, so that loading can be retried.
+     */
+    public Throwable getChildLoadingFailure() {
+        return childLoadingFailure;
+    }
+
     /**
      * getFirstChild, Returns this node's first child. If this node has no children, throws
      * NoSuchElementException.
@@ -184,6 +320,32 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return (CheckEntry) super.getFirstLeaf();
     }
 
+    /**
+     * getIndex, Returns the index of the specified child in this node's child array. If the
+     * specified node is not a child of this node, returns -1. For CheckEntry children, this uses
+     * the maintained index of the child, and is O(1) (amortized).
+     *
+     * @param aChild the TreeNode to search for among this node's children
+     * @exception IllegalArgumentException if <code>aChild</code> is null
+     * @return an int giving the index of the node in this node's child array, or -1 if the
+     * specified node is a not a child of this node
+     */
+    @Override
+    public int getIndex(TreeNode aChild) {
+        if ((aChild instanceof CheckEntry) && (aChild.getParent() == this)) {
+            CheckEntry child = (CheckEntry) aChild;
+            if ((child.indexInParent < 0) || (child.indexInParent >= staleChildIndex)) {
+                zReindexChildren();
+            }
+            int index = child.indexInParent;
+            // Confirm the maintained index, in case a subclass has edited the child array directly.
+            if ((index >= 0) && (index < getChildCount()) && (children.get(index) == aChild)) {
+                return index;
+            }
+        }
+        return super.getIndex(aChild);
+    }
+
     /**
      * getLastChild, Returns this node's last child. If this node has no children, throws
      * NoSuchElementException.
@@ -215,6 +377,9 @@ public class CheckEntry extends DefaultMutableTreeNode {
      *
      * Note: This is a low level function. The TreeIterator class can be used to conveniently loop
      * through the tree entries.
+     *
+     * This uses the maintained child indexes to find the next sibling of each ancestor, so a full
+     * traversal of a tree with n entries is O(n).
      */
     public CheckEntry getNextEntry() {
         return (CheckEntry) super.getNextNode();
@@ -222,16 +387,8 @@ public class CheckEntry extends DefaultMutableTreeNode {
 
     /**
      * getNextLeaf, Returns the leaf after this node or null if this node is the last leaf in the
-     * tree.
-     * <p>
-     * In this implementation of the <code>MutableNode</code> interface, this operation is very
-     * inefficient. In order to determine the next node, this method first performs a linear search
-     * in the parent's child-list in order to find the current node.
-     * <p>
-     * That implementation makes the operation suitable for short traversals from a known position.
-     * But to traverse all of the leaves in the tree, you should use
-     * <code>depthFirstEnumeration</code> to enumerate the nodes in the tree and use
-     * <code>isLeaf</code> on each node to determine which are leaves.
+     * tree. This uses the maintained child indexes, so no linear search of the parent's child array
+     * is needed.
      *
      * @see #depthFirstEnumeration
      * @see #isLeaf
@@ -242,6 +399,18 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return (CheckEntry) super.getNextLeaf();
     }
 
+    /**
+     * getNextSibling, Returns the next sibling of this node in the parent's children array. Returns
+     * null if this node has no parent or is the parent's last child. This uses the maintained index
+     * of this node, and is O(1).
+     *
+     * @return the sibling of this node that immediately follows this node
+     */
+    @Override
+    public CheckEntry getNextSibling() {
+        return (CheckEntry) super.getNextSibling();
+    }
+
     /**
      * getPath, Returns the path from the root, to get to this node. The last element in the path is
      * this node.
@@ -251,14 +420,21 @@ public class CheckEntry extends DefaultMutableTreeNode {
      */
     @Override
     public CheckEntry[] getPath() {
-        return (CheckEntry[]) super.getPath();
+        // The array is built here, because the array from the super class has the type TreeNode[],
+        // and can not be cast to CheckEntry[].
+        CheckEntry[] path = new CheckEntry[getLevel() + 1];
+        TreeNode node = this;
+        for (int i = path.length - 1; i >= 0; --i) {
+            path[i] = (CheckEntry) node;
+            node = node.getParent();
+        }
+        return path;
     }
 
     /**
      * getPreviousEntry, Returns the node that precedes this node in a preorder traversal of this
      * node's tree. Returns <code>null</code> if this node is the first node of the traversal -- the
-     * root of the tree. This is an inefficient way to traverse the entire tree; use an enumeration,
-     * instead.
+     * root of the tree. This uses the maintained child indexes to find the previous sibling.
      *
      * @see #preorderEnumeration
      * @return the node that precedes this node in a preorder traversal, or null if this node is the
@@ -270,16 +446,8 @@ public class CheckEntry extends DefaultMutableTreeNode {
 
     /**
      * getPreviousLeaf, Returns the leaf before this node or null if this node is the first leaf in
-     * the tree.
-     * <p>
-     * In this implementation of the <code>MutableNode</code> interface, this operation is very
-     * inefficient. In order to determine the previous node, this method first performs a linear
-     * search in the parent's child-list in order to find the current node.
-     * <p>
-     * That implementation makes the operation suitable for short traversals from a known position.
-     * But to traverse all of the leaves in the tree, you should use
-     * <code>depthFirstEnumeration</code> to enumerate the nodes in the tree and use
-     * <code>isLeaf</code> on each node to determine which are leaves.
+     * the tree. This uses the maintained child indexes, so no linear search of the parent's child
+     * array is needed.
      *
      * @see #depthFirstEnumeration
      * @see #isLeaf
@@ -292,8 +460,8 @@ public class CheckEntry extends DefaultMutableTreeNode {
 
     /**
      * getPreviousSibling, Returns the previous sibling of this node in the parent's children array.
-     * Returns null if this node has no parent or is the parent's first child. This method performs
-     * a linear search that is O(n) where n is the number of children.
+     * Returns null if this node has no parent or is the parent's first child. This uses the
+     * maintained index of this node, and is O(1).
      *
      * @return the sibling of this node that immediately precedes this node
      */
@@ -338,6 +506,45 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return (CheckEntry) super.getSharedAncestor(aNode);
     }
 
+    /**
+     * getTotalCheckedDescendantCount, This returns the number of descendants of this entry that are
+     * checked, including entries with a hidden checkbox. This value is only maintained while this
+     * entry belongs to a CheckModel with the subtree summaries or the tri-state mode enabled.
+     * Otherwise this returns zero or an outdated value.
+     */
+    public int getTotalCheckedDescendantCount() {
+        return totalCheckedDescendants;
+    }
+
+    /**
+     * getTotalDescendantCount, This returns the number of descendants of this entry. This value is
+     * only maintained while this entry belongs to a CheckModel with the subtree summaries or the
+     * tri-state mode enabled. Otherwise this returns zero or an outdated value.
+     */
+    public int getTotalDescendantCount() {
+        return totalDescendants;
+    }
+
+    /**
+     * getTriState, This returns the tri-state value that should be displayed for this entry. If
+     * this entry has any checkable descendants, the value is derived from the descendant counters:
+     * Checked when all of them are checked, Unchecked when none of them are checked, and Partial
+     * otherwise. If this entry has no checkable descendants, this returns the check state of the
+     * entry itself. This does not traverse the tree.
+     *
+     * The descendant counters are only maintained while this entry belongs to a CheckModel with the
+     * tri-state mode enabled. See also, CheckModel.setTriStateEnabled().
+     */
+    public TriState getTriState() {
+        if (checkableDescendants == 0) {
+            return (isChecked()) ? TriState.Checked : TriState.Unchecked;
+        }
+        if (checkedDescendants == 0) {
+            return TriState.Unchecked;
+        }
+        return (checkedDescendants == checkableDescendants) ? TriState.Checked : TriState.Partial;
+    }
+
     /**
      * hasChildren, This returns true if this entry has children. Otherwise, this returns false.
      */
@@ -367,6 +574,11 @@ public class CheckEntry extends DefaultMutableTreeNode {
     public void insert(MutableTreeNode newChild, int childIndex) {
         if (newChild instanceof CheckEntry) {
             super.insert(newChild, childIndex);
+            ((CheckEntry) newChild).indexInParent = childIndex;
+            staleChildIndex = Math.min(staleChildIndex, childIndex + 1);
+            if (ownerModel != null) {
+                ownerModel.zEntryInserted((CheckEntry) newChild);
+            }
         } else if (newChild == null) {
             throw new IllegalArgumentException("CheckEntry.insert(), "
                     + "Inserted entries can not be null.");
@@ -376,6 +588,15 @@ public class CheckEntry extends DefaultMutableTreeNode {
         }
     }
 
+    /**
+     * isChildrenLoaded, This returns false if this is a lazy entry whose children have not yet been
+     * supplied by the child provider. Otherwise, this returns true. Entries without a child
+     * provider always return true.
+     */
+    public boolean isChildrenLoaded() {
+        return (childProvider == null) || childrenLoaded;
+    }
+
     /**
      * isCheckboxVisible, This returns true if the checkbox for this entry is set to be visible.
      * Otherwise returns false.
@@ -384,6 +605,87 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return (checkboxVisible == BoxVisible.Show);
     }
 
+    /**
+     * isChecked, This returns true if this entry is checked. Otherwise returns false. If this entry
+     * belongs to a CheckModel with an enabled CheckStateStore, then the state is read from the
+     * store. Otherwise, the state is read from the "checked" field.
+     */
+    public boolean isChecked() {
+        if (checkStateId >= 0) {
+            return ownerModel.checkStateStore.isChecked(checkStateId);
+        }
+        return checked;
+    }
+
+    /**
+     * isLeaf, Returns true if this entry has no children. A lazy entry whose children have not yet
+     * been loaded is never a leaf, so that it can be expanded to trigger the loading process.
+     */
+    @Override
+    public boolean isLeaf() {
+        if (!isChildrenLoaded()) {
+            return false;
+        }
+        return super.isLeaf();
+    }
+
+    /**
+     * isPlaceholder, This returns true if this entry is a temporary placeholder row that is
+     * displayed under a lazy entry while its children are being loaded. Otherwise returns false.
+     */
+    public boolean isPlaceholder() {
+        return placeholder;
+    }
+
+    /**
+     * remove, Removes the child at the specified index from this entry's children and sets that
+     * entry's parent to null.
+     *
+     * @param childIndex the index in this entry's child array of the child to remove
+     * @exception ArrayIndexOutOfBoundsException if childIndex is out of bounds
+     */
+    @Override
+    public void remove(int childIndex) {
+        CheckEntry child = getChildAt(childIndex);
+        super.remove(childIndex);
+        staleChildIndex = Math.min(staleChildIndex, childIndex);
+        if (ownerModel != null) {
+            ownerModel.zEntryRemoved(child, this);
+        }
+    }
+
+    /**
+     * setChecked, This sets the check state of this entry. If this entry belongs to a CheckModel
+     * with an enabled CheckStateStore, then the state is written to the store. Otherwise, the state
+     * is written to the "checked" field.
+     *
+     * Note: Like other changes to tree entries, this does not notify the tree model listeners.
+     */
+    public void setChecked(boolean checked) {
+        if (isChecked() == checked) {
+            return;
+        }
+        zWriteChecked(checked);
+        if (ownerModel != null) {
+            ownerModel.zEntryCheckChanged(this, checked);
+        }
+    }
+
+    /**
+     * setCheckboxVisible, This sets whether the checkbox of this entry is shown or hidden. This is
+     * the recommended way to change the checkbox visibility of an entry that belongs to a
+     * CheckModel, because this also updates the tri-state descendant counters of the ancestors.
+     */
+    public void setCheckboxVisible(BoxVisible checkboxVisible) {
+        if (this.checkboxVisible == checkboxVisible) {
+            return;
+        }
+        this.checkboxVisible = checkboxVisible;
+        if (ownerModel != null) {
+            ownerModel.zEntryCheckboxVisibleChanged(this);
+        }
+    }
+
     /**
      * setParent, Sets this node's parent to newParent but does not change the parent's child array.
      * This method is called from insert() and remove() to reassign a child's parent, it should not
@@ -395,6 +697,9 @@ public class CheckEntry extends DefaultMutableTreeNode {
     public void setParent(MutableTreeNode newParent) {
         if ((newParent == null) || (newParent instanceof CheckEntry)) {
             super.setParent(newParent);
+            if (newParent == null) {
+                indexInParent = -1;
+            }
         } else {
             throw new IllegalArgumentException("CheckEntry.setParent(), "
                     + "Entries must be an instance or descendant of the CheckEntry class.");
@@ -406,7 +711,7 @@ public class CheckEntry extends DefaultMutableTreeNode {
      * Example: CheckEntry entry = new CheckEntry("Hello").withBoxHidden().withIcon(icon);
      */
     public CheckEntry withBoxChecked(boolean checked) {
-        this.checked = checked;
+        setChecked(checked);
         return this;
     }
 
@@ -415,7 +720,7 @@ public class CheckEntry extends DefaultMutableTreeNode {
      * Example: CheckEntry entry = new CheckEntry("Hello").withBoxHidden().withIcon(icon);
      */
     public CheckEntry withBoxHidden() {
-        this.checkboxVisible = BoxVisible.Hide;
+        setCheckboxVisible(BoxVisible.Hide);
         return this;
     }
 
@@ -424,8 +729,8 @@ public class CheckEntry extends DefaultMutableTreeNode {
      * Example: CheckEntry entry = new CheckEntry("Hello").withBoxHidden().withIcon(icon);
      */
     public CheckEntry withBoxState(BoxVisible checkboxVisible, boolean checked) {
-        this.checkboxVisible = checkboxVisible;
-        this.checked = checked;
+        setCheckboxVisible(checkboxVisible);
+        setChecked(checked);
         return this;
     }
 
@@ -434,7 +739,16 @@ public class CheckEntry extends DefaultMutableTreeNode {
      * Example: CheckEntry entry = new CheckEntry("Hello").withBoxHidden().withIcon(icon);
      */
     public CheckEntry withBoxVisible(BoxVisible checkboxVisible) {
-        this.checkboxVisible = checkboxVisible;
+        setCheckboxVisible(checkboxVisible);
+        return this;
+    }
+
+    /**
+     * withChildProvider, The withX() functions can be chained together to set construction
+     * parameters. Example: CheckEntry entry = new CheckEntry("Hello").withChildProvider(provider);
+     */
+    public CheckEntry withChildProvider(ChildProvider childProvider) {
+        this.childProvider = childProvider;
         return this;
     }
 
@@ -494,6 +808,17 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return this;
     }
 
+    /**
+     * withPooledAttributes, This replaces the text, the colors and the user icon of this entry with
+     * the shared instances from the supplied pool. This should be called after the other withX()
+     * functions. See also, AttributePool.
+     * Example: CheckEntry entry = new CheckEntry("Hi").withColor(color).withPooledAttributes(pool);
+     */
+    public CheckEntry withPooledAttributes(AttributePool pool) {
+        pool.internEntry(this);
+        return this;
+    }
+
     /**
      * withText, The withX() functions can be chained together to set construction parameters.
      * Example: CheckEntry entry = new CheckEntry("Hello").withBoxHidden().withIcon(icon);
@@ -503,4 +828,47 @@ public class CheckEntry extends DefaultMutableTreeNode {
         return this;
     }
 
+    /**
+     * zAppendNewChild, This adds the supplied entry at the end of the children of this entry,
+     * without the ancestor check of insert(). The ancestor check visits every ancestor of this
+     * entry, so it would make building a deep tree take quadratic time. This must only be used
+     * for new entries that have no parent and no children, while this entry has no owner model.
+     */
+    @SuppressWarnings("unchecked")
+    void zAppendNewChild(CheckEntry newChild) {
+        if (children == null) {
+            children = new Vector<TreeNode>();
+        }
+        int childIndex = children.size();
+        children.add(newChild);
+        newChild.parent = this;
+        newChild.indexInParent = childIndex;
+        staleChildIndex = Math.min(staleChildIndex, childIndex + 1);
+    }
+
+    /**
+     * zReindexChildren, This updates the maintained index of every child from the stale child index
+     * to the end of the child array. Any number of insertions and removals share the cost of a
+     * single reindex.
+     */
+    private void zReindexChildren() {
+        int childCount = getChildCount();
+        for (int i = Math.min(staleChildIndex, childCount); i < childCount; ++i) {
+            ((CheckEntry) children.get(i)).indexInParent = i;
+        }
+        staleChildIndex = Integer.MAX_VALUE;
+    }
+
+    /**
+     * zWriteChecked, This writes the check state of this entry to the correct location, without
+     * updating any counters in the owner model.
+     */
+    void zWriteChecked(boolean checked) {
+        if (checkStateId >= 0) {
+            ownerModel.checkStateStore.zSetBit(checkStateId, checked);
+        } else {
+            this.checked = checked;
+        }
+    }
+
 }
@@ -0,0 +1,1042 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import javax.swing.tree.DefaultTreeModel;
+import javax.swing.tree.TreeNode;
+
+/**
+ * CheckModel, This class provides a light extension of the DefaultTreeModel class. The primary
+ * purpose of this class is to ensure that only CheckEntry instances are added to the tree model.
+ */
+public class CheckModel extends DefaultTreeModel {
+
+    /**
+     * attributePool, This holds the optional attribute pool of this model, or null if there is no
+     * pool. See also, setAttributePool().
+     */
+    AttributePool attributePool = null;
+
+    /**
+     * changeTracker, This holds the optional check state change tracker for this model, or null if
+     * change tracking is not enabled. See also, enableChangeTracking().
+     */
+    CheckChangeTracker changeTracker = null;
+
+    /**
+     * checkStateStore, This holds the optional check state store for this model, or null if the
+     * store is not enabled. See also, enableCheckStateStore().
+     */
+    CheckStateStore checkStateStore = null;
+
+    /**
+     * keyIndex, This holds the optional key index for this model, or null if the index is not
+     * enabled. See also, enableKeyIndex().
+     */
+    private EntryKeyIndex keyIndex = null;
+
+    /**
+     * subtreeSummariesEnabled, This indicates if the subtree summaries are enabled. See also,
+     * setSubtreeSummariesEnabled().
+     */
+    private boolean subtreeSummariesEnabled = false;
+
+    /**
+     * triStateEnabled, This indicates if the tri-state mode is enabled. See also,
+     * setTriStateEnabled().
+     */
+    boolean triStateEnabled = false;
+
+    /**
+     * updateBatch, This holds the notifications that have been recorded during the current update
+     * batch, or null if no update batch is open. See also, beginUpdate().
+     */
+    private UpdateBatch updateBatch = null;
+
+    /**
+     * updateDepth, This holds the number of beginUpdate() calls that have not yet been matched by
+     * an endUpdate() call.
+     */
+    private int updateDepth = 0;
+
+    /**
+     * Constructor, with root entry.
+     */
+    public CheckModel(CheckEntry root) {
+        super(root);
+        verifyRootEntry();
+        zAttachSubtree(root);
+    }
+
+    /**
+     * Constructor, with root entry and asksAllowsChildren. See also, the function:
+     * DefaultTreeModel.setAsksAllowsChildren()
+     */
+    public CheckModel(CheckEntry root, boolean asksAllowsChildren) {
+        super(root, asksAllowsChildren);
+        verifyRootEntry();
+        zAttachSubtree(root);
+    }
+
+    /**
+     * addCheckStateListener, This adds a listener that will be notified whenever the check state
+     * of entries in this model is changed. See also, CheckStateListener.
+     *
+     * Check state changes are not sent to the tree model listeners, because they do not change the
+     * size or the structure of any tree row. The changes that are reported are: CheckEntry
+     * setChecked() calls on entries in this model, setSubtreeChecked(), and the range functions of
+     * the check state store. Changes that are made by writing the "checked" field directly are not
+     * reported.
+     */
+    public void addCheckStateListener(CheckStateListener listener) {
+        listenerList.add(CheckStateListener.class, listener);
+    }
+
+    /**
+     * addEntryInto, Invoked this to add newChild to the parent. This will then message
+     * nodesWereInserted with the correct child index to create the notification event. This is the
+     * preferred way to add children as it will create the appropriate event.
+     */
+    public void addEntryInto(CheckEntry newChild, CheckEntry parent) {
+        insertNodeInto(newChild, parent, parent.getChildCount());
+    }
+
+    /**
+     * beginChildLoading, This starts the loading process for a lazy entry, by inserting a
+     * placeholder entry with the supplied text under the lazy entry. This returns true if the
+     * loading process was started. This returns false if the entry is not a lazy entry, if its
+     * children are already loaded, or if its children are already being loaded.
+     *
+     * After this returns true, the caller is responsible for calling the child provider, and then
+     * calling either finishChildLoading(), failChildLoading() or cancelChildLoading(). JCheckboxTree
+     * does this automatically when a lazy entry is expanded. See also, loadChildren().
+     */
+    public boolean beginChildLoading(CheckEntry entry, String placeholderText) {
+        if ((entry == null) || entry.isChildrenLoaded() || entry.childrenLoading) {
+            return false;
+        }
+        entry.childrenLoading = true;
+        entry.childLoadingFailure = null;
+        CheckEntry placeholder = new CheckEntry(placeholderText).withBoxHidden();
+        placeholder.placeholder = true;
+        addEntryInto(placeholder, entry);
+        return true;
+    }
+
+    /**
+     * beginUpdate, This opens an update batch. While a batch is open, the tree model notifications
+     * (insertions, removals, changes and structure changes) are recorded instead of being sent to
+     * the listeners. When the batch is closed by the matching endUpdate() call, the recorded
+     * notifications are merged and sent as the fewest practical events. For example, adding 50,000
+     * children to a folder inside a batch sends a single notification instead of 50,000. The check
+     * state changes of a batch are also merged, and sent as a single check state event.
+     *
+     * Batches can be nested. The notifications are sent when the outermost batch is closed. Every
+     * call to this function must be matched by a call to endUpdate(), and a batch should be opened
+     * and closed within a single event dispatch thread task, because the tree does not update its
+     * display until the batch is closed. The recommended usage is as follows.
+     *
+     * Example: model.beginUpdate(); try { (add entries) } finally { model.endUpdate(); }
+     */
+    public void beginUpdate() {
+        if (updateDepth == 0) {
+            updateBatch = new UpdateBatch();
+        }
+        ++updateDepth;
+    }
+
+    /**
+     * cancelChildLoading, This cancels the loading process for a lazy entry. Any placeholder entry
+     * is removed, and the entry is returned to the unloaded state. The loading process can be
+     * started again at a later time.
+     */
+    public void cancelChildLoading(CheckEntry entry) {
+        zRemovePlaceholders(entry);
+        entry.childrenLoading = false;
+    }
+
+    /**
+     * disableChangeTracking, This disables the check state change tracking, if it is enabled. The
+     * changed entries of the tracker are discarded.
+     */
+    public void disableChangeTracking() {
+        changeTracker = null;
+    }
+
+    /**
+     * disableCheckStateStore, This disables the check state store, if it is enabled. The check
+     * state of every entry is copied from the store back into the CheckEntry.checked fields.
+     */
+    public void disableCheckStateStore() {
+        CheckStateStore store = checkStateStore;
+        if (store == null) {
+            return;
+        }
+        for (int id = store.getEntryCount() - 1; id >= 0; --id) {
+            store.zUnregister(store.getEntry(id));
+        }
+        checkStateStore = null;
+    }
+
+    /**
+     * disableKeyIndex, This disables the key index, if it is enabled.
+     */
+    public void disableKeyIndex() {
+        EntryKeyIndex index = keyIndex;
+        if (index == null) {
+            return;
+        }
+        keyIndex = null;
+        CheckEntry rootEntry = getRoot();
+        if (rootEntry == null) {
+            return;
+        }
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(rootEntry);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            index.zUnregister(entry);
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * enableChangeTracking, This enables the check state change tracking for this model, and
+     * returns the tracker. The current check state of every entry becomes the baseline of the
+     * tracker. If tracking is already enabled, this returns the existing tracker, and the baseline
+     * is not changed. Enabling the tracker takes constant time. See also, CheckChangeTracker.
+     */
+    public CheckChangeTracker enableChangeTracking() {
+        if (changeTracker == null) {
+            changeTracker = new CheckChangeTracker(this);
+        }
+        return changeTracker;
+    }
+
+    /**
+     * enableCheckStateStore, This enables the check state store for this model, and returns the
+     * store. If the store is already enabled, this returns the existing store.
+     *
+     * When the store is enabled, every entry in the model is assigned a dense integer id in
+     * "preorder traversal" order, and the current check state of every entry is copied into the
+     * store. After this point, the store holds the check state of the model entries. The checked
+     * count, the checked entry list, and range operations are then available from the store
+     * without any tree traversals. See also, CheckStateStore.
+     *
+     * Entries that are added to the model (or removed from the model) are automatically registered
+     * (or unregistered) with the store.
+     */
+    public CheckStateStore enableCheckStateStore() {
+        if (checkStateStore != null) {
+            return checkStateStore;
+        }
+        checkStateStore = new CheckStateStore(this);
+        CheckEntry rootEntry = getRoot();
+        if (rootEntry != null) {
+            zAttachSubtree(rootEntry);
+        }
+        return checkStateStore;
+    }
+
+    /**
+     * enableKeyIndex, This enables the key index for this model, using the default key function,
+     * and returns the index. The default key function returns the user object of each entry, or
+     * the entry text if the entry has no user object. If the index is already enabled, this returns
+     * the existing index. See also, EntryKeyIndex.
+     */
+    public EntryKeyIndex enableKeyIndex() {
+        if (keyIndex != null) {
+            return keyIndex;
+        }
+        return enableKeyIndex(EntryKeyIndex.USER_OBJECT_OR_TEXT);
+    }
+
+    /**
+     * enableKeyIndex, This enables the key index for this model, using the supplied key function,
+     * and returns the index. Every entry in the model is indexed immediately, which takes time
+     * proportional to the number of entries. If the index is already enabled with a different key
+     * function, then the index is replaced. See also, EntryKeyIndex.
+     *
+     * Entries that are added to the model (or removed from the model) are automatically indexed (or
+     * removed from the index), so entries can then be found by key or by path without any tree
+     * traversals.
+     *
+     * @exception IllegalArgumentException if the key function is null.
+     */
+    public EntryKeyIndex enableKeyIndex(Function<? super CheckEntry, ?> keyFunction) {
+        if (keyFunction == null) {
+            throw new IllegalArgumentException("CheckModel.enableKeyIndex(), "
+                    + "The key function can not be null.");
+        }
+        if ((keyIndex != null) && (keyIndex.getKeyFunction() == keyFunction)) {
+            return keyIndex;
+        }
+        disableKeyIndex();
+        keyIndex = new EntryKeyIndex(this, keyFunction);
+        CheckEntry rootEntry = getRoot();
+        if (rootEntry != null) {
+            zAttachSubtree(rootEntry);
+        }
+        return keyIndex;
+    }
+
+    /**
+     * endUpdate, This closes an update batch. When the outermost batch is closed, the recorded
+     * notifications are merged and sent to the listeners. See also, beginUpdate().
+     *
+     * @exception IllegalStateException if there is no open update batch.
+     */
+    public void endUpdate() {
+        if (updateDepth == 0) {
+            throw new IllegalStateException("CheckModel.endUpdate(), "
+                    + "There is no open update batch. Each endUpdate() call must be matched by a "
+                    + "previous beginUpdate() call.");
+        }
+        --updateDepth;
+        if (updateDepth == 0) {
+            UpdateBatch finishedBatch = updateBatch;
+            updateBatch = null;
+            finishedBatch.commit(this);
+        }
+    }
+
+    /**
+     * failChildLoading, This ends the loading process for a lazy entry whose child provider has
+     * failed. Any placeholder entry is removed, the entry is returned to the unloaded state, and
+     * the supplied failure is stored in the entry, where it can be read with
+     * CheckEntry.getChildLoadingFailure(). A node changed notification is sent for the entry, so
+     * that tree model listeners can observe the failure. The loading process can be started again
+     * at a later time, which clears the stored failure.
+     */
+    public void failChildLoading(CheckEntry entry, Throwable failure) {
+        cancelChildLoading(entry);
+        entry.childLoadingFailure = failure;
+        nodeChanged(entry);
+    }
+
+    /**
+     * finishChildLoading, This completes the loading process for a lazy entry. Any placeholder
+     * entry is removed, and the supplied children are added to the lazy entry with a single
+     * nodesWereInserted notification. The children list may be empty or null. After this is
+     * called, the child provider will not be called again for this entry.
+     */
+    public void finishChildLoading(CheckEntry entry, List<CheckEntry> children) {
+        zRemovePlaceholders(entry);
+        entry.childrenLoading = false;
+        entry.childrenLoaded = true;
+        if ((children == null) || children.isEmpty()) {
+            // The lazy entry has become a leaf entry, so its row may need a different icon.
+            nodeChanged(entry);
+            return;
+        }
+        int firstIndex = entry.getChildCount();
+        int[] newIndices = new int[children.size()];
+        for (int i = 0; i < newIndices.length; ++i) {
+            entry.add(children.get(i));
+            newIndices[i] = firstIndex + i;
+        }
+        nodesWereInserted(entry, newIndices);
+    }
+
+    /**
+     * getAttributePool, This returns the attribute pool of this model, or null if there is no pool.
+     * See also, setAttributePool().
+     */
+    public AttributePool getAttributePool() {
+        return attributePool;
+    }
+
+    /**
+     * getChangeTracker, This returns the check state change tracker for this model, or null if
+     * change tracking is not enabled. See also, enableChangeTracking().
+     */
+    public CheckChangeTracker getChangeTracker() {
+        return changeTracker;
+    }
+
+    /**
+     * getCheckStateListeners, This returns an array of all the check state listeners that are
+     * registered with this model.
+     */
+    public CheckStateListener[] getCheckStateListeners() {
+        return listenerList.getListeners(CheckStateListener.class);
+    }
+
+    /**
+     * getCheckStateStore, This returns the check state store for this model, or null if the store
+     * is not enabled. See also, enableCheckStateStore().
+     */
+    public CheckStateStore getCheckStateStore() {
+        return checkStateStore;
+    }
+
+    /**
+     * getKeyIndex, This returns the key index for this model, or null if the index is not enabled.
+     * See also, enableKeyIndex().
+     */
+    public EntryKeyIndex getKeyIndex() {
+        return keyIndex;
+    }
+
+    /**
+     * getMaximumIconHeight, This returns the height of the tallest user icon that is registered
+     * with this model, or 0 if no icon is registered. The icons of this model are registered by
+     * its attribute pool, so this returns 0 if there is no pool. This does not visit the entries,
+     * so it takes time proportional to the number of distinct icons. See also, setAttributePool().
+     */
+    public int getMaximumIconHeight() {
+        return (attributePool == null) ? 0 : attributePool.getMaximumIconHeight();
+    }
+
+    /**
+     * getPathToRoot, Builds the parents of the entry up to and including the root entry. The
+     * original entry is the last element in the returned array.
+     *
+     * @param entry The CheckEntry to get the path for.
+     */
+    public CheckEntry[] getPathToRoot(CheckEntry entry) {
+        return (CheckEntry[]) super.getPathToRoot(entry);
+    }
+
+    /**
+     * getRoot, Returns the root of the tree. Returns null only if the tree has no nodes.
+     *
+     * @return the root of the tree
+     */
+    @Override
+    public CheckEntry getRoot() {
+        return (CheckEntry) root;
+    }
+
+    /**
+     * insertEntryInto, Invoked this to insert newChild at location index in parents children. This
+     * will then message nodesWereInserted to create the notification event. This is the preferred
+     * way to insert children as it will create the appropriate event.
+     */
+    public void insertEntryInto(CheckEntry newChild, CheckEntry parent, int index) {
+        super.insertNodeInto(newChild, parent, index);
+    }
+
+    /**
+     * invertAllChecked, This inverts the check state of every entry in this model. Entries with a
+     * hidden checkbox are not changed. See also, invertSubtreeChecked().
+     */
+    public void invertAllChecked() {
+        if (getRoot() != null) {
+            invertSubtreeChecked(getRoot());
+        }
+    }
+
+    /**
+     * invertMatchingChecked, This inverts the check state of each entry in the supplied subtree
+     * that is accepted by the supplied predicate. The subtree includes the supplied entry. Entries
+     * with a hidden checkbox are not changed, and are not passed to the predicate. To search the
+     * whole tree, supply the root entry. See also, invertSubtreeChecked().
+     */
+    public void invertMatchingChecked(CheckEntry subtreeRoot,
+            Predicate<? super CheckEntry> predicate) {
+        zChangeSubtreeChecks(subtreeRoot, predicate, true, false);
+    }
+
+    /**
+     * invertSubtreeChecked, This inverts the check state of the supplied entry and of all its
+     * descendants. Entries with a hidden checkbox are not changed. Like setSubtreeChecked(), the
+     * descendant counters are recounted once, and the check state listeners receive a single
+     * notification for the whole subtree.
+     */
+    public void invertSubtreeChecked(CheckEntry subtreeRoot) {
+        zChangeSubtreeChecks(subtreeRoot, null, true, false);
+    }
+
+    /**
+     * isSubtreeSummariesEnabled, This returns true if the subtree summaries are enabled for this
+     * model. Otherwise returns false. See also, setSubtreeSummariesEnabled().
+     */
+    public boolean isSubtreeSummariesEnabled() {
+        return subtreeSummariesEnabled;
+    }
+
+    /**
+     * isTriStateEnabled, This returns true if the tri-state mode is enabled for this model.
+     * Otherwise returns false. See also, setTriStateEnabled().
+     */
+    public boolean isTriStateEnabled() {
+        return triStateEnabled;
+    }
+
+    /**
+     * isUpdating, This returns true if an update batch is currently open. Otherwise returns false.
+     * See also, beginUpdate().
+     */
+    public boolean isUpdating() {
+        return (updateDepth > 0);
+    }
+
+    /**
+     * loadChildren, This immediately loads the children of a lazy entry, by calling the child
+     * provider on the current thread. This does nothing if the entry is not a lazy entry, or if the
+     * children of the entry are already loaded or are currently being loaded. This can be used for
+     * processing lazy entries without a JCheckboxTree.
+     *
+     * If the child provider throws an exception, the entry is left in the unloaded state, the
+     * exception is stored as described in failChildLoading(), and the exception is rethrown as a
+     * RuntimeException.
+     */
+    public void loadChildren(CheckEntry entry) {
+        if ((entry == null) || entry.isChildrenLoaded() || entry.childrenLoading) {
+            return;
+        }
+        entry.childrenLoading = true;
+        List<CheckEntry> children;
+        try {
+            children = entry.childProvider.getChildren(entry);
+        } catch (Exception e) {
+            failChildLoading(entry, e);
+            throw new RuntimeException("CheckModel.loadChildren(), "
+                    + "The child provider failed. The exception was: " + e.getMessage(), e);
+        }
+        finishChildLoading(entry, children);
+    }
+
+    /**
+     * nodeStructureChanged, Invoke this if the children of the supplied node have changed in any
+     * way. If an update batch is open, the notification is recorded and sent when the batch is
+     * closed.
+     */
+    @Override
+    public void nodeStructureChanged(TreeNode node) {
+        if ((updateBatch != null) && (node != null)) {
+            updateBatch.recordStructureChanged(node);
+            return;
+        }
+        super.nodeStructureChanged(node);
+    }
+
+    /**
+     * nodesChanged, Invoke this after the supplied children of a node have changed the way they
+     * should be displayed. If an update batch is open, the notification is recorded and merged with
+     * other notifications for the same parent when the batch is closed. If the key index is
+     * enabled, the changed entries are indexed again, because their key or text may have changed.
+     */
+    @Override
+    public void nodesChanged(TreeNode node, int[] childIndices) {
+        if ((keyIndex != null) && (node != null)) {
+            if (childIndices != null) {
+                for (int childIndex : childIndices) {
+                    keyIndex.reindexEntry((CheckEntry) node.getChildAt(childIndex));
+                }
+            } else if (node == getRoot()) {
+                keyIndex.reindexEntry((CheckEntry) node);
+            }
+        }
+        if ((updateBatch != null) && (node != null)) {
+            if ((childIndices != null) || (node == getRoot())) {
+                updateBatch.recordChanged(node, childIndices);
+            }
+            return;
+        }
+        super.nodesChanged(node, childIndices);
+    }
+
+    /**
+     * nodesWereInserted, Invoke this after children have been inserted into a node. If an update
+     * batch is open, the notification is recorded and merged with other insertions into the same
+     * parent when the batch is closed.
+     */
+    @Override
+    public void nodesWereInserted(TreeNode node, int[] childIndices) {
+        if ((updateBatch != null) && (node != null) && (childIndices != null)) {
+            updateBatch.recordInserted(node, childIndices);
+            return;
+        }
+        super.nodesWereInserted(node, childIndices);
+    }
+
+    /**
+     * nodesWereRemoved, Invoke this after children have been removed from a node. If an update
+     * batch is open, the notification is recorded and sent when the batch is closed, before the
+     * other notifications of the batch.
+     */
+    @Override
+    public void nodesWereRemoved(TreeNode node, int[] childIndices, Object[] removedChildren) {
+        if ((updateBatch != null) && (node != null) && (childIndices != null)
+                && (removedChildren != null)) {
+            updateBatch.recordRemoved(node, getRoot(), childIndices, removedChildren);
+            return;
+        }
+        super.nodesWereRemoved(node, childIndices, removedChildren);
+    }
+
+    /**
+     * reload, Invoke this if the model has been modified below the supplied node. If an update
+     * batch is open, the notification is recorded and sent when the batch is closed.
+     */
+    @Override
+    public void reload(TreeNode node) {
+        if ((updateBatch != null) && (node != null)) {
+            updateBatch.recordStructureChanged(node);
+            return;
+        }
+        super.reload(node);
+    }
+
+    /**
+     * setAllChecked, This sets the check state of every entry in this model to the supplied value.
+     * Entries with a hidden checkbox are not changed. See also, setSubtreeChecked().
+     */
+    public void setAllChecked(boolean checked) {
+        if (getRoot() != null) {
+            setSubtreeChecked(getRoot(), checked);
+        }
+    }
+
+    /**
+     * setAttributePool, This sets the attribute pool of this model. The pool may be null, to stop
+     * using a pool. When a pool is set, the text, the colors and the user icon of every entry in
+     * the model are replaced with the shared instances from the pool. After that, every entry that
+     * is added to the model is also given the shared instances. The displayed values do not change.
+     * See also, AttributePool.
+     *
+     * A single pool can be shared by several models. This takes time proportional to the number of
+     * entries in the model.
+     */
+    public void setAttributePool(AttributePool pool) {
+        attributePool = pool;
+        if (pool != null) {
+            pool.internSubtree(getRoot());
+        }
+    }
+
+    /**
+     * setMatchingChecked, This sets the check state of each entry in the supplied subtree that is
+     * accepted by the supplied predicate, to the supplied value. The subtree includes the supplied
+     * entry. Entries with a hidden checkbox are not changed, and are not passed to the predicate.
+     * To search the whole tree, supply the root entry. See also, setSubtreeChecked().
+     */
+    public void setMatchingChecked(CheckEntry subtreeRoot, Predicate<? super CheckEntry> predicate,
+            boolean checked) {
+        zChangeSubtreeChecks(subtreeRoot, predicate, false, checked);
+    }
+
+    /**
+     * setRoot, Sets the root entry. A root entry must either be an instance of CheckEntry, or be
+     * null.
+     */
+    @Override
+    public void setRoot(TreeNode rootEntry) {
+        if ((rootEntry != null) && (!(rootEntry instanceof CheckEntry))) {
+            throw new RuntimeException("CheckModel.setRoot(), "
+                    + "The root entry must be an instance of CheckEntry.");
+        }
+        CheckEntry oldRoot = getRoot();
+        if ((oldRoot != null) && (oldRoot != rootEntry)) {
+            zDetachSubtree(oldRoot);
+        }
+        super.setRoot(rootEntry);
+        verifyRootEntry();
+        zAttachSubtree(getRoot());
+    }
+
+    /**
+     * setSubtreeChecked, This sets the check state of the supplied entry, and of all its
+     * descendants, to the supplied value. Entries with a hidden checkbox are not changed. If the
+     * descendant counters are enabled, the counters are recounted once for the subtree and then
+     * updated along the ancestor path, instead of being updated once per changed entry.
+     *
+     * Note: Like other check state changes, this does not notify the tree model listeners. The
+     * check state listeners receive a single notification for the whole subtree.
+     */
+    public void setSubtreeChecked(CheckEntry subtreeRoot, boolean checked) {
+        zChangeSubtreeChecks(subtreeRoot, null, false, checked);
+    }
+
+    /**
+     * setSubtreeSummariesEnabled, This enables or disables the subtree summaries for this model.
+     *
+     * When the subtree summaries are enabled, every entry keeps a count of all of its descendants,
+     * and a count of all of its checked descendants (including entries with a hidden checkbox).
+     * The counters are maintained in the same way as the tri-state counters, and are updated along
+     * the ancestor path whenever an entry changes. The TreeIterator pruning mode uses these
+     * counters to skip whole subtrees that can not contain any matching entries. See also,
+     * CheckEntry.getTotalDescendantCount() and CheckEntry.getTotalCheckedDescendantCount().
+     *
+     * Calling this function with a value of true while the summaries are already enabled will
+     * recount all of the counters.
+     */
+    public void setSubtreeSummariesEnabled(boolean enabled) {
+        subtreeSummariesEnabled = enabled;
+        if (enabled && (getRoot() != null)) {
+            zRecountSubtree(getRoot());
+        }
+    }
+
+    /**
+     * setTriStateEnabled, This enables or disables the tri-state mode for this model.
+     *
+     * When the tri-state mode is enabled, every entry keeps a count of its checkable descendants,
+     * and a count of its checked checkable descendants. The counters are computed once when the
+     * mode is enabled, and are then updated along the ancestor path whenever an entry is checked or
+     * unchecked, has its checkbox shown or hidden, or is inserted or removed. The JCheckboxTree
+     * renderer uses the counters to display folder entries as checked, unchecked or partially
+     * checked, without traversing the tree. See also, CheckEntry.getTriState().
+     *
+     * Calling this function with a value of true while the mode is already enabled will recount
+     * all of the counters. This can be used after the "checked" or "checkboxVisible" fields of the
+     * entries have been changed directly.
+     */
+    public void setTriStateEnabled(boolean enabled) {
+        triStateEnabled = enabled;
+        if (enabled && (getRoot() != null)) {
+            zRecountSubtree(getRoot());
+        }
+    }
+
+    /**
+     * removeCheckStateListener, This removes a listener that was added with
+     * addCheckStateListener().
+     */
+    public void removeCheckStateListener(CheckStateListener listener) {
+        listenerList.remove(CheckStateListener.class, listener);
+    }
+
+    /**
+     * removeEntryFromParent, Message this to remove an entry from its parent. This will message
+     * nodesWereRemoved to create the appropriate event. This is the preferred way to remove an
+     * entry as it handles the event creation for you.
+     */
+    public void removeEntryFromParent(CheckEntry entry) {
+        super.removeNodeFromParent(entry);
+    }
+
+    /**
+     * verifyRootEntry, This verifies is either an instance or descendant of CheckEntry, or is null.
+     * If the root entry does not meet these criteria, then this function will throw an exception.
+     */
+    private void verifyRootEntry() {
+        Object rootEntry = getRoot();
+        if (rootEntry == null) {
+            // Null is allowed for the root entry. 
+            return;
+        }
+        if (!(rootEntry instanceof CheckEntry)) {
+            throw new RuntimeException("CheckModel.setRoot(), "
+                    + "The root entry must be an instance of CheckEntry.");
+        }
+    }
+
+    /**
+     * zAdjustAncestorCounts, This adds the supplied values to the descendant counters of the
+     * supplied entry and all of its ancestors.
+     */
+    private void zAdjustAncestorCounts(TreeNode firstAncestor, int checkableDelta,
+            int checkedDelta, int totalDelta, int totalCheckedDelta) {
+        for (TreeNode node = firstAncestor; node != null; node = node.getParent()) {
+            CheckEntry ancestor = (CheckEntry) node;
+            ancestor.checkableDescendants += checkableDelta;
+            ancestor.checkedDescendants += checkedDelta;
+            ancestor.totalDescendants += totalDelta;
+            ancestor.totalCheckedDescendants += totalCheckedDelta;
+        }
+    }
+
+    /**
+     * zAdjustAncestorCountsBySubtree, This adds (or subtracts) the complete counters of the subtree
+     * that begins with the supplied entry, to the counters of the supplied first ancestor and all
+     * of its ancestors.
+     */
+    private void zAdjustAncestorCountsBySubtree(TreeNode firstAncestor, CheckEntry subtreeRoot,
+            int sign) {
+        boolean visible = subtreeRoot.isCheckboxVisible();
+        boolean checked = subtreeRoot.isChecked();
+        zAdjustAncestorCounts(firstAncestor,
+                sign * (subtreeRoot.checkableDescendants + ((visible) ? 1 : 0)),
+                sign * (subtreeRoot.checkedDescendants + ((visible && checked) ? 1 : 0)),
+                sign * (subtreeRoot.totalDescendants + 1),
+                sign * (subtreeRoot.totalCheckedDescendants + ((checked) ? 1 : 0)));
+    }
+
+    /**
+     * zAttachSubtree, This marks the supplied entry and all of its descendants as belonging to this
+     * model. If the check state store or the key index is enabled, any entries that are not yet
+     * registered with the store or the index are registered. If the model has an attribute pool,
+     * the attributes of each entry are replaced with shared instances. This is called when the
+     * root is set, and when entries are inserted into an entry of this model. This uses a loop
+     * instead of recursion, so that deep trees can not overflow the stack.
+     */
+    private void zAttachSubtree(CheckEntry subtreeRoot) {
+        if (subtreeRoot == null) {
+            return;
+        }
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(subtreeRoot);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            if ((entry.ownerModel != null) && (entry.ownerModel != this)) {
+                // The entry still belongs to another model, so release it from that model first.
+                entry.ownerModel.zDetachEntry(entry);
+            }
+            entry.ownerModel = this;
+            if ((checkStateStore != null) && (entry.checkStateId < 0)) {
+                checkStateStore.zRegister(entry);
+            }
+            if (attributePool != null) {
+                attributePool.internEntry(entry);
+            }
+            if ((keyIndex != null) && (entry.indexKey == null)) {
+                keyIndex.zRegister(entry);
+            }
+            // Push the children in reverse order, so that they are visited in preorder.
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * zDetachEntry, This releases a single entry from this model. If the entry is registered with
+     * the check state store, then the stored check state is copied back into the entry. If the
+     * entry is in the key index, it is removed from the index. The entry is no longer tracked by
+     * the change tracker.
+     */
+    private void zDetachEntry(CheckEntry entry) {
+        if (entry.checkStateId >= 0) {
+            checkStateStore.zUnregister(entry);
+        }
+        if (keyIndex != null) {
+            keyIndex.zUnregister(entry);
+        }
+        if (changeTracker != null) {
+            changeTracker.zEntryDetached(entry);
+        }
+        entry.ownerModel = null;
+    }
+
+    /**
+     * zDetachSubtree, This releases the supplied entry and all of its descendants from this model.
+     * This is called when entries are removed from an entry of this model.
+     */
+    private void zDetachSubtree(CheckEntry subtreeRoot) {
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(subtreeRoot);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            if (entry.ownerModel == this) {
+                zDetachEntry(entry);
+            }
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+    }
+
+    /**
+     * zChangeSubtreeChecks, This changes the check state of the entries in the supplied subtree
+     * that have a visible checkbox, and that are accepted by the supplied predicate. A null
+     * predicate accepts every entry. If invert is true, each entry is inverted, otherwise each
+     * entry is set to the supplied checked value. The descendant counters are recounted once, and
+     * a single check state notification is sent for the subtree, if any entry was changed. This
+     * uses a loop instead of recursion, so that deep trees can not overflow the stack.
+     */
+    private void zChangeSubtreeChecks(CheckEntry subtreeRoot,
+            Predicate<? super CheckEntry> predicate, boolean invert, boolean checked) {
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(subtreeRoot);
+        int checkedDelta = 0;
+        int changedCount = 0;
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            if (entry.isCheckboxVisible() && ((predicate == null) || predicate.test(entry))) {
+                boolean oldChecked = entry.isChecked();
+                boolean newChecked = (invert) ? (!oldChecked) : checked;
+                if (newChecked != oldChecked) {
+                    entry.zWriteChecked(newChecked);
+                    if ((changeTracker != null) && (entry.ownerModel == this)) {
+                        changeTracker.zEntryCheckChanged(entry, oldChecked, newChecked);
+                    }
+                    checkedDelta += (newChecked) ? 1 : -1;
+                    ++changedCount;
+                }
+            }
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+        if ((changedCount == 0) || (subtreeRoot.ownerModel != this)) {
+            return;
+        }
+        if (zCountersEnabled()) {
+            // Only entries with a visible checkbox were changed, so both of the checked counters
+            // of the ancestors change by the same amount.
+            zRecountSubtree(subtreeRoot);
+            zAdjustAncestorCounts(subtreeRoot.getParent(), 0, checkedDelta, 0, checkedDelta);
+        }
+        zNotifyCheckStateChanged(null, subtreeRoot, false);
+    }
+
+    /**
+     * zCheckStateRangeChanged, This is called by the check state store after a range operation has
+     * changed the check state of any number of entries. If the descendant counters are enabled,
+     * this recounts all of the counters. Then the check state listeners are notified.
+     */
+    void zCheckStateRangeChanged() {
+        if (zCountersEnabled() && (getRoot() != null)) {
+            zRecountSubtree(getRoot());
+        }
+        zNotifyCheckStateChanged(null, null, true);
+    }
+
+    /**
+     * zCountersEnabled, This returns true if the descendant counters of the entries need to be
+     * maintained. The counters are needed by the tri-state mode and by the subtree summaries.
+     */
+    private boolean zCountersEnabled() {
+        return triStateEnabled || subtreeSummariesEnabled;
+    }
+
+    /**
+     * zEntryCheckboxVisibleChanged, This is called by CheckEntry.setCheckboxVisible(), after the
+     * checkbox visibility of an entry in this model has changed.
+     */
+    void zEntryCheckboxVisibleChanged(CheckEntry entry) {
+        if (zCountersEnabled()) {
+            int sign = (entry.isCheckboxVisible()) ? 1 : -1;
+            zAdjustAncestorCounts(entry.getParent(), sign, (entry.isChecked()) ? sign : 0, 0, 0);
+        }
+    }
+
+    /**
+     * zEntryCheckChanged, This is called by CheckEntry.setChecked(), after the check state of an
+     * entry in this model has changed. If the descendant counters are enabled, this updates the
+     * counters along the ancestor path, and the change tracker. Then the check state listeners are
+     * notified.
+     */
+    void zEntryCheckChanged(CheckEntry entry, boolean checked) {
+        if (changeTracker != null) {
+            changeTracker.zEntryCheckChanged(entry, !checked, checked);
+        }
+        if (zCountersEnabled()) {
+            int delta = (checked) ? 1 : -1;
+            zAdjustAncestorCounts(entry.getParent(), 0,
+                    (entry.isCheckboxVisible()) ? delta : 0, 0, delta);
+        }
+        zNotifyCheckStateChanged(entry, null, false);
+    }
+
+    /**
+     * zEntryInserted, This is called by CheckEntry.insert(), after an entry has been inserted into
+     * an entry of this model.
+     */
+    void zEntryInserted(CheckEntry child) {
+        zAttachSubtree(child);
+        if (keyIndex != null) {
+            keyIndex.zChildInserted((CheckEntry) child.getParent(), child);
+        }
+        if (zCountersEnabled()) {
+            zRecountSubtree(child);
+            zAdjustAncestorCountsBySubtree(child.getParent(), child, 1);
+        }
+    }
+
+    /**
+     * zEntryRemoved, This is called by CheckEntry.remove(), after an entry has been removed from an
+     * entry of this model.
+     */
+    void zEntryRemoved(CheckEntry child, CheckEntry oldParent) {
+        if (zCountersEnabled()) {
+            zAdjustAncestorCountsBySubtree(oldParent, child, -1);
+        }
+        if (keyIndex != null) {
+            keyIndex.zChildRemoved(oldParent, child);
+        }
+        zDetachSubtree(child);
+    }
+
+    /**
+     * zFireCheckStateChanged, This sends the supplied event to the check state listeners. Like the
+     * tree model notifications, the listeners are notified in the reverse order of registration.
+     */
+    void zFireCheckStateChanged(CheckStateEvent event) {
+        Object[] listeners = listenerList.getListenerList();
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == CheckStateListener.class) {
+                ((CheckStateListener) listeners[i + 1]).checkStateChanged(event);
+            }
+        }
+    }
+
+    /**
+     * zNotifyCheckStateChanged, This notifies the check state listeners about a changed entry, a
+     * changed subtree, or a change to all entries. Either entry may be null. If an update batch is
+     * open, the change is recorded and sent when the batch is closed. If there are no check state
+     * listeners, then no event is created.
+     */
+    void zNotifyCheckStateChanged(CheckEntry changedEntry, CheckEntry changedSubtree,
+            boolean allEntriesChanged) {
+        if (updateBatch != null) {
+            updateBatch.recordCheckStateChanged(changedEntry, changedSubtree, allEntriesChanged);
+            return;
+        }
+        if (listenerList.getListenerCount(CheckStateListener.class) == 0) {
+            return;
+        }
+        CheckEntry[] changedEntries = (changedEntry == null)
+                ? null : new CheckEntry[]{changedEntry};
+        CheckEntry[] changedSubtrees = (changedSubtree == null)
+                ? null : new CheckEntry[]{changedSubtree};
+        zFireCheckStateChanged(new CheckStateEvent(
+                this, changedEntries, changedSubtrees, allEntriesChanged));
+    }
+
+    /**
+     * zRecountSubtree, This recomputes the descendant counters of the supplied entry and all of its
+     * descendants. This uses a loop instead of recursion, so that deep trees can not overflow the
+     * stack. The counters of the ancestors of the supplied entry are not changed.
+     */
+    private void zRecountSubtree(CheckEntry subtreeRoot) {
+        // Gather the subtree in preorder, and reset the counters.
+        ArrayList<CheckEntry> preorder = new ArrayList<CheckEntry>();
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(subtreeRoot);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            entry.checkableDescendants = 0;
+            entry.checkedDescendants = 0;
+            entry.totalDescendants = 0;
+            entry.totalCheckedDescendants = 0;
+            preorder.add(entry);
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                stack.push(entry.getChildAt(i));
+            }
+        }
+        // In reverse preorder, every entry is visited after all of its descendants, so each entry
+        // can add its finished totals to its parent.
+        for (int i = preorder.size() - 1; i > 0; --i) {
+            CheckEntry entry = preorder.get(i);
+            boolean visible = entry.isCheckboxVisible();
+            boolean checked = entry.isChecked();
+            CheckEntry parent = (CheckEntry) entry.getParent();
+            parent.checkableDescendants += entry.checkableDescendants + ((visible) ? 1 : 0);
+            parent.checkedDescendants += entry.checkedDescendants + ((visible && checked) ? 1 : 0);
+            parent.totalDescendants += entry.totalDescendants + 1;
+            parent.totalCheckedDescendants += entry.totalCheckedDescendants + ((checked) ? 1 : 0);
+        }
+    }
+
+    /**
+     * zRemovePlaceholders, This removes any lazy loading placeholder entries from the children of
+     * the supplied entry.
+     */
+    private void zRemovePlaceholders(CheckEntry entry) {
+        for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+            CheckEntry child = entry.getChildAt(i);
+            if (child.placeholder) {
+                removeEntryFromParent(child);
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.EventObject;
+
+/**
+ * CheckStateEvent, This event describes a change to the check state of entries in a CheckModel.
+ * The source of the event is the model. See also, CheckStateListener.
+ *
+ * An event can describe three kinds of changes, and a single event can contain more than one kind.
+ * The changed entries are entries whose own check state has changed. The changed subtrees are
+ * entries whose check state, and the check state of any of their descendants, may have changed.
+ * If isAllEntriesChanged() returns true, then the check state of any entry in the model may have
+ * changed, and the two entry arrays should be ignored.
+ *
+ * When the tri-state mode or the subtree summaries of the model are enabled, the counters of the
+ * ancestors of all changed entries have already been updated when the event is sent.
+ */
+public class CheckStateEvent extends EventObject {
+
+    /**
+     * serialVersionUID, This is the serialization version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * allEntriesChanged, This is true if the check state of any entry in the model may have changed.
+     */
+    private final boolean allEntriesChanged;
+
+    /**
+     * changedEntries, This holds the entries whose own check state has changed.
+     */
+    private final CheckEntry[] changedEntries;
+
+    /**
+     * changedSubtrees, This holds the root entries of the subtrees that may have changed.
+     */
+    private final CheckEntry[] changedSubtrees;
+
+    /**
+     * Constructor. Null arrays are replaced with empty arrays.
+     */
+    public CheckStateEvent(CheckModel source, CheckEntry[] changedEntries,
+            CheckEntry[] changedSubtrees, boolean allEntriesChanged) {
+        super(source);
+        this.changedEntries = (changedEntries == null) ? new CheckEntry[0] : changedEntries;
+        this.changedSubtrees = (changedSubtrees == null) ? new CheckEntry[0] : changedSubtrees;
+        this.allEntriesChanged = allEntriesChanged;
+    }
+
+    /**
+     * getChangedEntries, This returns the entries whose own check state has changed. The returned
+     * array should not be modified.
+     */
+    public CheckEntry[] getChangedEntries() {
+        return changedEntries;
+    }
+
+    /**
+     * getChangedSubtrees, This returns the root entries of the subtrees whose check state may have
+     * changed. The returned array should not be modified.
+     */
+    public CheckEntry[] getChangedSubtrees() {
+        return changedSubtrees;
+    }
+
+    /**
+     * getModel, This returns the model that sent this event.
+     */
+    public CheckModel getModel() {
+        return (CheckModel) getSource();
+    }
+
+    /**
+     * isAllEntriesChanged, This returns true if the check state of any entry in the model may have
+     * changed. This is used for the range functions of the check state store.
+     */
+    public boolean isAllEntriesChanged() {
+        return allEntriesChanged;
+    }
+}
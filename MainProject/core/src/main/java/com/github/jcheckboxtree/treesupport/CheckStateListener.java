@@ -0,0 +1,21 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.EventListener;
+
+/**
+ * CheckStateListener, This interface can be implemented to receive a notification whenever the
+ * check state of entries in a CheckModel is changed. See also, CheckModel.addCheckStateListener().
+ *
+ * Check state changes are sent through this channel instead of through the tree model listeners,
+ * because a check state change never changes the size or the structure of any tree row. A tree can
+ * respond by repainting the affected rows, without measuring any rows again.
+ */
+public interface CheckStateListener extends EventListener {
+
+    /**
+     * checkStateChanged, This is called after the check state of one or more entries has changed.
+     * If the change was made inside a model update batch, then this is called once when the batch
+     * is closed, with all of the changes from the batch.
+     */
+    void checkStateChanged(CheckStateEvent event);
+}
@@ -0,0 +1,269 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * CheckStateStore, This class holds the check state of every entry in a CheckModel, using a compact
+ * bitset. Each entry in the model is assigned a dense integer id, which is the index of its check
+ * state bit. The store keeps a live count of checked entries, so the checked count is available
+ * without traversing the tree.
+ *
+ * A store is created and owned by a CheckModel. See also, CheckModel.enableCheckStateStore(). While
+ * the store is enabled, the store holds the check state of the model entries, and the field called
+ * CheckEntry.checked is not updated. The entry functions CheckEntry.isChecked() and
+ * CheckEntry.setChecked() should be used to read and change the check state of the entries.
+ *
+ * Entry ids: The ids are assigned in "preorder traversal" order when the store is enabled, so any
+ * subtree initially maps to a contiguous range of ids. Entries that are added to the model later
+ * receive the next available id. When an entry is removed from the model, the entry with the
+ * highest id is moved into the vacated id, so that the ids always stay in the range 0 to
+ * (getEntryCount() - 1).
+ *
+ * The range functions in this class only change the stored check state. They do not send any tree
+ * model notifications, so the caller should repaint the tree as needed. If the tri-state mode or the
+ * subtree summaries of the model are enabled, then the range functions will also recount the
+ * descendant counters of the whole tree, which requires a full traversal.
+ */
+public class CheckStateStore {
+
+    /**
+     * checkedBits, This holds one check state bit for each entry id.
+     */
+    private final BitSet checkedBits = new BitSet();
+
+    /**
+     * checkedCount, This holds the number of set bits in checkedBits. This is kept up to date by
+     * every function that changes the check state bits.
+     */
+    private int checkedCount = 0;
+
+    /**
+     * entriesById, This holds the entry for each assigned id.
+     */
+    private final ArrayList<CheckEntry> entriesById = new ArrayList<CheckEntry>();
+
+    /**
+     * model, This holds the model that owns this store.
+     */
+    private final CheckModel model;
+
+    /**
+     * Constructor, This is package private because stores are created by CheckModel.
+     */
+    CheckStateStore(CheckModel model) {
+        this.model = model;
+    }
+
+    /**
+     * clearAll, This unchecks every entry in the store.
+     */
+    public void clearAll() {
+        zTrackRange(0, entriesById.size(), true, false);
+        checkedBits.clear();
+        checkedCount = 0;
+        model.zCheckStateRangeChanged();
+    }
+
+    /**
+     * getCheckedBits, This returns a copy of the check state bits, indexed by entry id.
+     */
+    public BitSet getCheckedBits() {
+        return (BitSet) checkedBits.clone();
+    }
+
+    /**
+     * getCheckedCount, This returns the number of checked entries in the store. This does not
+     * require a traversal.
+     */
+    public int getCheckedCount() {
+        return checkedCount;
+    }
+
+    /**
+     * getCheckedEntries, This returns a list of the checked entries, in entry id order. The cost of
+     * this function is proportional to the number of checked entries, plus one step for every 64
+     * entry ids.
+     */
+    public List<CheckEntry> getCheckedEntries() {
+        ArrayList<CheckEntry> result = new ArrayList<CheckEntry>(checkedCount);
+        for (int id = checkedBits.nextSetBit(0); id >= 0; id = checkedBits.nextSetBit(id + 1)) {
+            result.add(entriesById.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * getEntry, This returns the entry that has the supplied entry id.
+     *
+     * @exception IndexOutOfBoundsException if the id is not in the range 0 to (getEntryCount() - 1).
+     */
+    public CheckEntry getEntry(int id) {
+        return entriesById.get(id);
+    }
+
+    /**
+     * getEntryCount, This returns the number of entries in the store. Valid entry ids are in the
+     * range 0 to (getEntryCount() - 1).
+     */
+    public int getEntryCount() {
+        return entriesById.size();
+    }
+
+    /**
+     * getId, This returns the entry id of the supplied entry, or -1 if the entry is not in this
+     * store.
+     */
+    public int getId(CheckEntry entry) {
+        int id = entry.checkStateId;
+        if ((id >= 0) && (id < entriesById.size()) && (entriesById.get(id) == entry)) {
+            return id;
+        }
+        return -1;
+    }
+
+    /**
+     * invertRange, This inverts the check state of every entry id from fromId (inclusive) to toId
+     * (exclusive).
+     */
+    public void invertRange(int fromId, int toId) {
+        zCheckRange(fromId, toId);
+        int before = zCountRange(fromId, toId);
+        zTrackRange(fromId, toId, false, false);
+        checkedBits.flip(fromId, toId);
+        checkedCount += (toId - fromId) - (2 * before);
+        model.zCheckStateRangeChanged();
+    }
+
+    /**
+     * isChecked, This returns the check state of the supplied entry id.
+     */
+    public boolean isChecked(int id) {
+        return checkedBits.get(id);
+    }
+
+    /**
+     * setChecked, This sets the check state of the supplied entry id. This has the same effect as
+     * CheckEntry.setChecked(). The descendant counters of the ancestors and the change tracker are
+     * updated, and the check state listeners are notified.
+     */
+    public void setChecked(int id, boolean checked) {
+        if (zSetBit(id, checked)) {
+            model.zEntryCheckChanged(entriesById.get(id), checked);
+        }
+    }
+
+    /**
+     * setRange, This sets the check state of every entry id from fromId (inclusive) to toId
+     * (exclusive).
+     */
+    public void setRange(int fromId, int toId, boolean checked) {
+        zCheckRange(fromId, toId);
+        int before = zCountRange(fromId, toId);
+        zTrackRange(fromId, toId, true, checked);
+        checkedBits.set(fromId, toId, checked);
+        checkedCount += ((checked) ? (toId - fromId) : 0) - before;
+        model.zCheckStateRangeChanged();
+    }
+
+    /**
+     * zCheckRange, This throws an exception if the supplied id range is not valid.
+     */
+    private void zCheckRange(int fromId, int toId) {
+        if ((fromId < 0) || (toId > entriesById.size()) || (fromId > toId)) {
+            throw new IndexOutOfBoundsException("CheckStateStore, The id range " + fromId
+                    + " to " + toId + " is not valid for a store with "
+                    + entriesById.size() + " entries.");
+        }
+    }
+
+    /**
+     * zCountRange, This returns the number of checked ids from fromId (inclusive) to toId
+     * (exclusive).
+     */
+    private int zCountRange(int fromId, int toId) {
+        if (fromId == 0 && toId == entriesById.size()) {
+            return checkedCount;
+        }
+        return checkedBits.get(fromId, toId).cardinality();
+    }
+
+    /**
+     * zRegister, This assigns the next entry id to the supplied entry, and copies the current value
+     * of the entry "checked" field into the store.
+     */
+    void zRegister(CheckEntry entry) {
+        int id = entriesById.size();
+        entriesById.add(entry);
+        entry.checkStateId = id;
+        if (entry.checked) {
+            checkedBits.set(id);
+            ++checkedCount;
+        }
+    }
+
+    /**
+     * zSetBit, This sets the check state bit of the supplied entry id, without informing the change
+     * tracker, and returns true if the bit was changed.
+     */
+    boolean zSetBit(int id, boolean checked) {
+        if (checkedBits.get(id) == checked) {
+            return false;
+        }
+        checkedBits.set(id, checked);
+        checkedCount += (checked) ? 1 : -1;
+        return true;
+    }
+
+    /**
+     * zTrackRange, This informs the change tracker of the model about every entry id from fromId
+     * (inclusive) to toId (exclusive) whose check state is about to change, if change tracking is
+     * enabled. If onlyDifferent is true, only the ids whose bit differs from the supplied checked
+     * value are reported. Otherwise, every id in the range is reported, as for an inversion.
+     */
+    private void zTrackRange(int fromId, int toId, boolean onlyDifferent, boolean checked) {
+        CheckChangeTracker tracker = model.changeTracker;
+        if (tracker == null) {
+            return;
+        }
+        if (!onlyDifferent) {
+            for (int id = fromId; id < toId; ++id) {
+                boolean oldChecked = checkedBits.get(id);
+                tracker.zEntryCheckChanged(entriesById.get(id), oldChecked, !oldChecked);
+            }
+            return;
+        }
+        int id = (checked) ? checkedBits.nextClearBit(fromId) : checkedBits.nextSetBit(fromId);
+        while ((id >= 0) && (id < toId)) {
+            tracker.zEntryCheckChanged(entriesById.get(id), !checked, checked);
+            id = (checked) ? checkedBits.nextClearBit(id + 1) : checkedBits.nextSetBit(id + 1);
+        }
+    }
+
+    /**
+     * zUnregister, This removes the supplied entry from the store. The stored check state is copied
+     * back into the entry "checked" field. The entry with the highest id is moved into the vacated
+     * id, so that the ids stay dense.
+     */
+    void zUnregister(CheckEntry entry) {
+        int id = entry.checkStateId;
+        boolean checked = checkedBits.get(id);
+        entry.checked = checked;
+        entry.checkStateId = -1;
+        int lastId = entriesById.size() - 1;
+        if (id != lastId) {
+            CheckEntry moved = entriesById.get(lastId);
+            entriesById.set(id, moved);
+            moved.checkStateId = id;
+            if (checked != checkedBits.get(lastId)) {
+                checkedBits.set(id, !checked);
+            }
+        }
+        entriesById.remove(lastId);
+        checkedBits.clear(lastId);
+        if (checked) {
+            --checkedCount;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.github.jcheckboxtree.treesupport;
+
+/**
+ * CheckTreeView, This interface describes a component that displays a CheckModel, such as the
+ * JCheckboxTree class in the swing module. It supplies the display state that the TreeIterator
+ * class needs for its view based settings: the root visibility, and the expanded state of the
+ * entries.
+ *
+ * This interface allows the core module to iterate through a displayed tree, without depending on
+ * any swing component classes. Code that has no display can iterate directly through a CheckModel
+ * or a CheckEntry instead. See also, the TreeIterator constructors.
+ */
+public interface CheckTreeView {
+
+    /**
+     * getModelFull, This should return the CheckModel that is displayed by this view.
+     */
+    CheckModel getModelFull();
+
+    /**
+     * getRoot, This should return the root entry of the displayed model, or null if there is no
+     * root entry.
+     */
+    CheckEntry getRoot();
+
+    /**
+     * isEntryExpanded, This should return true if the supplied entry and all of its ancestors are
+     * expanded in this view. This is called once for each visited entry when an iteration uses an
+     * ExpandedSpecifier, so this should not allocate any objects.
+     */
+    boolean isEntryExpanded(CheckEntry entry);
+
+    /**
+     * isRootVisible, This should return true if the root entry is displayed by this view.
+     */
+    boolean isRootVisible();
+}
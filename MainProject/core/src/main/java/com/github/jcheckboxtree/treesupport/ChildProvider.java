@@ -0,0 +1,36 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.List;
+
+/**
+ * ChildProvider, This interface can be implemented to supply the children of a CheckEntry on
+ * demand. An entry that has a child provider is called a "lazy entry". A lazy entry is displayed as
+ * a folder, and its children are not created until the first time that the entry is expanded.
+ *
+ * When a lazy entry is expanded in a JCheckboxTree, the tree will show a placeholder row under the
+ * entry, and call the provider from a background thread. When the provider returns, the placeholder
+ * is replaced with the supplied children on the event dispatch thread.
+ *
+ * Usage example: CheckEntry entry = new CheckEntry("Catalog").withChildProvider(provider);
+ */
+public interface ChildProvider {
+
+    /**
+     * getChildren, This should create and return the children for the supplied parent entry. The
+     * returned entries should not already have a parent. Returning an empty list (or null) is
+     * allowed, and will cause the parent entry to become a leaf entry.
+     *
+     * Threading note: When this is called by a JCheckboxTree, this is called from a background
+     * thread, not from the event dispatch thread. This function should not read or modify the tree
+     * model, or any other swing components. The supplied parent entry should only be used to
+     * identify which children are needed, (for example, by reading the parent user object).
+     *
+     * @param parent The lazy entry whose children are needed.
+     * @return The children for the parent entry.
+     * @throws Exception Any exception will cancel the loading process. The parent entry will be
+     * left in an unloaded state, so that loading can be attempted again the next time that the
+     * entry is expanded. The exception is stored in the parent entry, and can be read with
+     * CheckEntry.getChildLoadingFailure().
+     */
+    List<CheckEntry> getChildren(CheckEntry parent) throws Exception;
+}
@@ -0,0 +1,1280 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Color;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.NoSuchElementException;
+import java.util.function.Function;
+import javax.swing.Icon;
+import javax.swing.tree.MutableTreeNode;
+import javax.swing.tree.TreeNode;
+
+/**
+ * CompactCheckModel, This class is a CheckModel that stores the whole tree in primitive arrays,
+ * instead of storing one CheckEntry object for every entry. This is intended for trees with
+ * millions of entries. Each stored entry uses about 27 bytes, plus the text of the entry.
+ *
+ * Each entry is identified by an integer id, and the root entry has the id zero. For each id, the
+ * arrays hold the parent id, the last child id, the next sibling id, the child count, a flags byte
+ * (checked, checkbox hidden, icon hidden), and indexes into shared tables of colors and icons. The
+ * children of each entry form a circular list through the next sibling ids, so the first child is
+ * the next sibling of the last child. This lets both the first child and the end of the child list
+ * be found immediately.
+ *
+ * Entry handles: The tree and the renderers still receive CheckEntry objects. These are small
+ * handle objects, which are created on demand by this model, and which read and write the arrays
+ * of this model. Handles are cached weakly, so there is only one handle for each entry while that
+ * handle is in use, and unused handles are garbage collected. Only the entries that the tree has
+ * displayed, or that the caller is holding, have a handle.
+ *
+ * The public fields of a handle (text, colors, icon, icon visibility, and checkbox visibility)
+ * are copies of the stored values. After those fields are changed, the model function nodeChanged()
+ * should be called for the entry, as it is for any other change to the display of an entry. That
+ * stores the changed values. The check state functions of a handle, and the child functions of a
+ * handle, work directly on the arrays.
+ *
+ * Building: The fastest way to build a compact model is to call addEntry() with the id of each
+ * parent. Like CheckEntry.add(), addEntry() does not notify the tree model listeners. A tree of
+ * CheckEntry objects can also be copied into a compact model, with the constructor or with
+ * insertEntryInto(). In that case the supplied entries are copied, and do not become part of the
+ * model. Only the handles of the model are part of the model.
+ *
+ * Limitations: The tri-state mode, the subtree summaries, the check state store, the key index,
+ * and lazy child loading are not supported, because they store extra information for every entry.
+ * Removed entries keep their storage until the model is discarded.
+ *
+ * Like CheckModel, this class should only be used from the event dispatch thread while it is
+ * displayed in a tree.
+ */
+public class CompactCheckModel extends CheckModel {
+
+    /**
+     * serialVersionUID, This is the serialization version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * FLAG_BOX_HIDDEN, This flag is set if the checkbox of an entry is hidden.
+     */
+    static private final byte FLAG_BOX_HIDDEN = 2;
+
+    /**
+     * FLAG_CHECKED, This flag is set if an entry is checked.
+     */
+    static private final byte FLAG_CHECKED = 1;
+
+    /**
+     * FLAG_ICON_HIDDEN, This flag is set if the user icon of an entry is hidden.
+     */
+    static private final byte FLAG_ICON_HIDDEN = 4;
+
+    /**
+     * NO_ENTRY, This id is used in the id arrays when there is no parent, child or sibling.
+     */
+    static public final int NO_ENTRY = -1;
+
+    /**
+     * attributeIndexes, This holds the attribute table index of each color and icon in the
+     * attribute table.
+     */
+    private final HashMap<Object, Integer> attributeIndexes = new HashMap<Object, Integer>();
+
+    /**
+     * attributes, This holds the shared table of colors and icons. Each distinct value is stored
+     * once, and entries store the index of the value. Index zero is null.
+     */
+    private final ArrayList<Object> attributes = new ArrayList<Object>();
+
+    /**
+     * backgroundIndexes, This holds the attribute table index of the text background color of
+     * each entry. Index zero means that the entry has no color.
+     */
+    private char[] backgroundIndexes;
+
+    /**
+     * childCounts, This holds the number of children of each entry.
+     */
+    private int[] childCounts;
+
+    /**
+     * cursorChildId, This holds the id of the child that was found last by zGetChildId(), so that
+     * reading the children of a parent in order takes constant time for each child.
+     */
+    private int cursorChildId = NO_ENTRY;
+
+    /**
+     * cursorIndex, This holds the child index of the cursor child.
+     */
+    private int cursorIndex = -1;
+
+    /**
+     * cursorParentId, This holds the id of the parent of the cursor child, or NO_ENTRY if there is
+     * no cursor. The cursor is cleared whenever the children of any entry are changed.
+     */
+    private int cursorParentId = NO_ENTRY;
+
+    /**
+     * entryCount, This holds the number of ids that have been assigned.
+     */
+    private int entryCount = 0;
+
+    /**
+     * flags, This holds the flags byte of each entry.
+     */
+    private byte[] flags;
+
+    /**
+     * foregroundIndexes, This holds the attribute table index of the text foreground color of
+     * each entry. Index zero means that the entry has no color.
+     */
+    private char[] foregroundIndexes;
+
+    /**
+     * handleQueue, This receives the references of handles that have been garbage collected.
+     */
+    private final ReferenceQueue<EntryHandle> handleQueue = new ReferenceQueue<EntryHandle>();
+
+    /**
+     * handles, This holds a weak reference to the handle of each entry that currently has a
+     * handle.
+     */
+    private final HashMap<Integer, HandleReference> handles
+            = new HashMap<Integer, HandleReference>();
+
+    /**
+     * iconIndexes, This holds the attribute table index of the user icon of each entry. Index zero
+     * means that the entry has no icon.
+     */
+    private char[] iconIndexes;
+
+    /**
+     * lastChildIds, This holds the id of the last child of each entry, or NO_ENTRY if the entry
+     * has no children.
+     */
+    private int[] lastChildIds;
+
+    /**
+     * nextSiblingIds, This holds the id of the next sibling of each entry. The next sibling of the
+     * last child is the first child. Entries that are not in a child list hold NO_ENTRY.
+     */
+    private int[] nextSiblingIds;
+
+    /**
+     * parentIds, This holds the id of the parent of each entry, or NO_ENTRY for the root entry and
+     * for removed entries.
+     */
+    private int[] parentIds;
+
+    /**
+     * texts, This holds the text of each entry.
+     */
+    private String[] texts;
+
+    /**
+     * userObjects, This holds the user object of each entry, or null if no entry has been given a
+     * user object. This array is only created when it is first needed.
+     */
+    private Object[] userObjects = null;
+
+    /**
+     * Constructor, with root text. This creates a model that holds only a root entry.
+     */
+    public CompactCheckModel(String rootText) {
+        this(rootText, 1024);
+    }
+
+    /**
+     * Constructor, with root text and initial capacity. The capacity is the number of entries that
+     * can be added before the arrays are enlarged.
+     */
+    public CompactCheckModel(String rootText, int initialCapacity) {
+        super(null);
+        zAllocate(Math.max(1, initialCapacity));
+        zNewEntry(rootText);
+        root = getEntry(0);
+    }
+
+    /**
+     * Constructor, with a root entry to copy. This copies the supplied entry and all of its
+     * descendants into a new model. The supplied entries are not changed, and do not become part of
+     * the model.
+     *
+     * @exception IllegalArgumentException if the root entry is null.
+     */
+    public CompactCheckModel(CheckEntry sourceRoot) {
+        super(null);
+        if (sourceRoot == null) {
+            throw new IllegalArgumentException("CompactCheckModel(), "
+                    + "The root entry can not be null.");
+        }
+        zAllocate(1024);
+        zNewEntry(sourceRoot.text);
+        zStoreFields(0, sourceRoot);
+        zCopyChildren(sourceRoot, 0);
+        root = getEntry(0);
+    }
+
+    /**
+     * addEntry, This adds a new entry with the supplied text at the end of the children of the
+     * supplied parent, and returns the id of the new entry. The new entry is unchecked, and has a
+     * visible checkbox. Like CheckEntry.add(), this does not notify the tree model listeners.
+     *
+     * @exception IllegalArgumentException if the parent id is not a valid id.
+     */
+    public int addEntry(int parentId, String text) {
+        return addEntry(parentId, text, false);
+    }
+
+    /**
+     * addEntry, This adds a new entry with the supplied text and check state at the end of the
+     * children of the supplied parent, and returns the id of the new entry. The new entry has a
+     * visible checkbox. This does not notify the tree model listeners or the check state listeners.
+     *
+     * @exception IllegalArgumentException if the parent id is not a valid id.
+     */
+    public int addEntry(int parentId, String text, boolean checked) {
+        zCheckId(parentId, "addEntry");
+        int id = zNewEntry(text);
+        zSetFlag(id, FLAG_CHECKED, checked);
+        zLink(id, parentId, childCounts[parentId]);
+        return id;
+    }
+
+    /**
+     * enableChangeTracking, Change tracking is not supported by this model, because the tracker
+     * would hold a handle for every changed entry, and the delta export requires the key index.
+     *
+     * @exception IllegalStateException always.
+     */
+    @Override
+    public CheckChangeTracker enableChangeTracking() {
+        throw new IllegalStateException("CompactCheckModel.enableChangeTracking(), "
+                + "Change tracking is not supported by the compact model.");
+    }
+
+    /**
+     * enableCheckStateStore, The check state store is not supported by this model, because this
+     * model already stores the check state of each entry in a single bit.
+     *
+     * @exception IllegalStateException always.
+     */
+    @Override
+    public CheckStateStore enableCheckStateStore() {
+        throw new IllegalStateException("CompactCheckModel.enableCheckStateStore(), "
+                + "The check state store is not supported by the compact model.");
+    }
+
+    /**
+     * enableKeyIndex, The key index is not supported by this model, because the index would hold a
+     * handle for every entry.
+     *
+     * @exception IllegalStateException always.
+     */
+    @Override
+    public EntryKeyIndex enableKeyIndex(Function<? super CheckEntry, ?> keyFunction) {
+        throw new IllegalStateException("CompactCheckModel.enableKeyIndex(), "
+                + "The key index is not supported by the compact model.");
+    }
+
+    /**
+     * getChildCount, This returns the number of children of the entry with the supplied id.
+     */
+    public int getChildCount(int id) {
+        zCheckId(id, "getChildCount");
+        return childCounts[id];
+    }
+
+    /**
+     * getChildCount, This returns the number of children of the supplied entry, without creating a
+     * handle for the entry.
+     */
+    @Override
+    public int getChildCount(Object parent) {
+        int id = getId((CheckEntry) parent);
+        return (id < 0) ? 0 : childCounts[id];
+    }
+
+    /**
+     * getEntry, This returns the handle of the entry with the supplied id. The same handle is
+     * returned for as long as the handle is referenced.
+     *
+     * @exception IllegalArgumentException if the id is not a valid id.
+     */
+    public CheckEntry getEntry(int id) {
+        zCheckId(id, "getEntry");
+        zExpungeHandles();
+        HandleReference reference = handles.get(id);
+        EntryHandle handle = (reference == null) ? null : reference.get();
+        if (handle == null) {
+            handle = new EntryHandle(this, id);
+            handles.put(id, new HandleReference(handle, handleQueue));
+        }
+        return handle;
+    }
+
+    /**
+     * getEntryCount, This returns the number of ids that have been assigned, including the root
+     * entry and any removed entries. Valid ids are in the range 0 to (getEntryCount() - 1).
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * getFirstChildId, This returns the id of the first child of the entry with the supplied id, or
+     * NO_ENTRY if the entry has no children.
+     */
+    public int getFirstChildId(int id) {
+        zCheckId(id, "getFirstChildId");
+        return (lastChildIds[id] == NO_ENTRY) ? NO_ENTRY : nextSiblingIds[lastChildIds[id]];
+    }
+
+    /**
+     * getIcon, This returns the user icon of the entry with the supplied id, or null.
+     */
+    public Icon getIcon(int id) {
+        zCheckId(id, "getIcon");
+        return (Icon) attributes.get(iconIndexes[id]);
+    }
+
+    /**
+     * getId, This returns the id of the supplied entry handle, or -1 if the entry is not a handle
+     * of this model.
+     */
+    public int getId(CheckEntry entry) {
+        if ((entry instanceof EntryHandle) && (entry.ownerModel == this)) {
+            return ((EntryHandle) entry).id;
+        }
+        return -1;
+    }
+
+    /**
+     * getMaximumIconHeight, This returns the height of the tallest icon in the attribute table of
+     * this model, or 0 if the table holds no icon. Every stored icon is in the table, so this does
+     * not require an attribute pool, and does not visit the entries.
+     */
+    @Override
+    public int getMaximumIconHeight() {
+        int maximumHeight = 0;
+        for (Object value : attributes) {
+            if (value instanceof Icon) {
+                maximumHeight = Math.max(maximumHeight, ((Icon) value).getIconHeight());
+            }
+        }
+        return maximumHeight;
+    }
+
+    /**
+     * getNextSiblingId, This returns the id of the next sibling of the entry with the supplied id,
+     * or NO_ENTRY if the entry is the last child of its parent, or has no parent.
+     */
+    public int getNextSiblingId(int id) {
+        zCheckId(id, "getNextSiblingId");
+        int parentId = parentIds[id];
+        return ((parentId == NO_ENTRY) || (lastChildIds[parentId] == id))
+                ? NO_ENTRY : nextSiblingIds[id];
+    }
+
+    /**
+     * getParentId, This returns the id of the parent of the entry with the supplied id, or NO_ENTRY
+     * if the entry is the root entry or has been removed.
+     */
+    public int getParentId(int id) {
+        zCheckId(id, "getParentId");
+        return parentIds[id];
+    }
+
+    /**
+     * getText, This returns the text of the entry with the supplied id.
+     */
+    public String getText(int id) {
+        zCheckId(id, "getText");
+        return texts[id];
+    }
+
+    /**
+     * getTextBackgroundColor, This returns the text background color of the entry with the
+     * supplied id, or null.
+     */
+    public Color getTextBackgroundColor(int id) {
+        zCheckId(id, "getTextBackgroundColor");
+        return (Color) attributes.get(backgroundIndexes[id]);
+    }
+
+    /**
+     * getTextForegroundColor, This returns the text foreground color of the entry with the
+     * supplied id, or null.
+     */
+    public Color getTextForegroundColor(int id) {
+        zCheckId(id, "getTextForegroundColor");
+        return (Color) attributes.get(foregroundIndexes[id]);
+    }
+
+    /**
+     * invertAllChecked, This inverts the check state of every entry in this model that has a
+     * visible checkbox. This works directly on the arrays, without creating any handles.
+     */
+    @Override
+    public void invertAllChecked() {
+        zChangeSubtreeChecks(0, true, false);
+    }
+
+    /**
+     * invertSubtreeChecked, This inverts the check state of the supplied entry and each of its
+     * descendants that has a visible checkbox. This works directly on the arrays.
+     */
+    @Override
+    public void invertSubtreeChecked(CheckEntry subtreeRoot) {
+        int id = getId(subtreeRoot);
+        if (id < 0) {
+            super.invertSubtreeChecked(subtreeRoot);
+            return;
+        }
+        zChangeSubtreeChecks(id, true, false);
+    }
+
+    /**
+     * isCheckboxVisible, This returns true if the checkbox of the entry with the supplied id is
+     * visible.
+     */
+    public boolean isCheckboxVisible(int id) {
+        zCheckId(id, "isCheckboxVisible");
+        return (flags[id] & FLAG_BOX_HIDDEN) == 0;
+    }
+
+    /**
+     * isChecked, This returns the check state of the entry with the supplied id.
+     */
+    public boolean isChecked(int id) {
+        zCheckId(id, "isChecked");
+        return (flags[id] & FLAG_CHECKED) != 0;
+    }
+
+    /**
+     * isIconVisible, This returns true if the user icon of the entry with the supplied id is
+     * visible.
+     */
+    public boolean isIconVisible(int id) {
+        zCheckId(id, "isIconVisible");
+        return (flags[id] & FLAG_ICON_HIDDEN) == 0;
+    }
+
+    /**
+     * isLeaf, This returns true if the supplied entry has no children, without creating a handle
+     * for the entry.
+     */
+    @Override
+    public boolean isLeaf(Object node) {
+        int id = getId((CheckEntry) node);
+        return (id < 0) || (lastChildIds[id] == NO_ENTRY);
+    }
+
+    /**
+     * nodesChanged, This stores the public field values of the supplied children, and then notifies
+     * the tree model listeners. If childIndices is null and the node is the root entry, then the
+     * root entry is stored. See also, CheckModel.nodesChanged().
+     */
+    @Override
+    public void nodesChanged(TreeNode node, int[] childIndices) {
+        int parentId = getId((CheckEntry) node);
+        if (parentId >= 0) {
+            if (childIndices != null) {
+                for (int childIndex : childIndices) {
+                    CheckEntry child = (CheckEntry) node.getChildAt(childIndex);
+                    zStoreFields(getId(child), child);
+                }
+            } else if (node == root) {
+                zStoreFields(parentId, (CheckEntry) node);
+            }
+        }
+        super.nodesChanged(node, childIndices);
+    }
+
+    /**
+     * setAllChecked, This sets the check state of every entry in this model that has a visible
+     * checkbox. This works directly on the arrays, without creating any handles.
+     */
+    @Override
+    public void setAllChecked(boolean checked) {
+        zChangeSubtreeChecks(0, false, checked);
+    }
+
+    /**
+     * setAttributePool, This sets the attribute pool of this model. The pool may be null. When a
+     * pool is set, the stored texts, colors and icons are replaced with the shared instances from
+     * the pool, and every text, color and icon that is stored later is also shared. This works
+     * directly on the arrays, without creating any handles. See also,
+     * CheckModel.setAttributePool().
+     */
+    @Override
+    public void setAttributePool(AttributePool pool) {
+        attributePool = pool;
+        if (pool == null) {
+            return;
+        }
+        for (int id = 0; id < entryCount; ++id) {
+            texts[id] = pool.internText(texts[id]);
+        }
+        attributeIndexes.clear();
+        for (int index = 1; index < attributes.size(); ++index) {
+            Object value = attributes.get(index);
+            value = (value instanceof Color)
+                    ? pool.internColor((Color) value) : pool.internIcon((Icon) value);
+            attributes.set(index, value);
+            // Equal values keep their first index, so existing entries do not need to change.
+            if (!attributeIndexes.containsKey(value)) {
+                attributeIndexes.put(value, index);
+            }
+        }
+    }
+
+    /**
+     * setCheckboxVisible, This shows or hides the checkbox of the entry with the supplied id.
+     */
+    public void setCheckboxVisible(int id, boolean visible) {
+        zCheckId(id, "setCheckboxVisible");
+        zSetFlag(id, FLAG_BOX_HIDDEN, !visible);
+        EntryHandle handle = zGetExistingHandle(id);
+        if (handle != null) {
+            handle.checkboxVisible = (visible) ? BoxVisible.Show : BoxVisible.Hide;
+        }
+    }
+
+    /**
+     * setChecked, This sets the check state of the entry with the supplied id. If the state
+     * changes, the check state listeners are notified.
+     */
+    public void setChecked(int id, boolean checked) {
+        zCheckId(id, "setChecked");
+        if (isChecked(id) == checked) {
+            return;
+        }
+        zSetFlag(id, FLAG_CHECKED, checked);
+        zEntryCheckChanged(getEntry(id), checked);
+    }
+
+    /**
+     * setColors, This sets the text background and foreground colors of the entry with the
+     * supplied id. Either color may be null. Colors are stored in a shared table, so equal colors
+     * are only stored once.
+     */
+    public void setColors(int id, Color textBackgroundColor, Color textForegroundColor) {
+        zCheckId(id, "setColors");
+        backgroundIndexes[id] = zGetAttributeIndex(textBackgroundColor);
+        foregroundIndexes[id] = zGetAttributeIndex(textForegroundColor);
+        EntryHandle handle = zGetExistingHandle(id);
+        if (handle != null) {
+            handle.textBackgroundColor = textBackgroundColor;
+            handle.textForegroundColor = textForegroundColor;
+        }
+    }
+
+    /**
+     * setIcon, This sets the user icon of the entry with the supplied id. The icon may be null.
+     * Icons are stored in a shared table, so each icon instance is only stored once.
+     */
+    public void setIcon(int id, Icon userIcon) {
+        zCheckId(id, "setIcon");
+        iconIndexes[id] = zGetAttributeIndex(userIcon);
+        EntryHandle handle = zGetExistingHandle(id);
+        if (handle != null) {
+            handle.userIcon = userIcon;
+        }
+    }
+
+    /**
+     * setIconVisible, This sets whether the user icon of the entry with the supplied id is shown.
+     */
+    public void setIconVisible(int id, boolean visible) {
+        zCheckId(id, "setIconVisible");
+        zSetFlag(id, FLAG_ICON_HIDDEN, !visible);
+        EntryHandle handle = zGetExistingHandle(id);
+        if (handle != null) {
+            handle.userIconVisible = visible;
+        }
+    }
+
+    /**
+     * setRoot, This replaces the whole tree with a copy of the supplied root entry and all of its
+     * descendants. Any existing handles are detached from the model. The supplied entries are not
+     * changed.
+     *
+     * @exception IllegalArgumentException if the root entry is null, or is not a CheckEntry.
+     */
+    @Override
+    public void setRoot(TreeNode rootEntry) {
+        if (!(rootEntry instanceof CheckEntry)) {
+            throw new IllegalArgumentException("CompactCheckModel.setRoot(), "
+                    + "The root entry must be an instance of CheckEntry, and can not be null.");
+        }
+        CheckEntry sourceRoot = (CheckEntry) rootEntry;
+        if (getId(sourceRoot) == 0) {
+            return;
+        }
+        // Copy the source first, because the source may be a handle of this model.
+        CompactCheckModel copy = new CompactCheckModel(sourceRoot);
+        for (HandleReference reference : handles.values()) {
+            EntryHandle handle = reference.get();
+            if (handle != null) {
+                handle.ownerModel = null;
+            }
+        }
+        handles.clear();
+        zTakeArrays(copy);
+        root = getEntry(0);
+        reload();
+    }
+
+    /**
+     * setSubtreeChecked, This sets the check state of the supplied entry and each of its
+     * descendants that has a visible checkbox. This works directly on the arrays, without creating
+     * any handles.
+     */
+    @Override
+    public void setSubtreeChecked(CheckEntry subtreeRoot, boolean checked) {
+        int id = getId(subtreeRoot);
+        if (id < 0) {
+            super.setSubtreeChecked(subtreeRoot, checked);
+            return;
+        }
+        zChangeSubtreeChecks(id, false, checked);
+    }
+
+    /**
+     * setSubtreeSummariesEnabled, The subtree summaries are not supported by this model.
+     *
+     * @exception IllegalStateException if enabled is true.
+     */
+    @Override
+    public void setSubtreeSummariesEnabled(boolean enabled) {
+        if (enabled) {
+            throw new IllegalStateException("CompactCheckModel.setSubtreeSummariesEnabled(), "
+                    + "The subtree summaries are not supported by the compact model.");
+        }
+    }
+
+    /**
+     * setText, This sets the text of the entry with the supplied id.
+     */
+    public void setText(int id, String text) {
+        zCheckId(id, "setText");
+        text = zPoolText(text);
+        texts[id] = text;
+        EntryHandle handle = zGetExistingHandle(id);
+        if (handle != null) {
+            handle.text = text;
+        }
+    }
+
+    /**
+     * setTriStateEnabled, The tri-state mode is not supported by this model.
+     *
+     * @exception IllegalStateException if enabled is true.
+     */
+    @Override
+    public void setTriStateEnabled(boolean enabled) {
+        if (enabled) {
+            throw new IllegalStateException("CompactCheckModel.setTriStateEnabled(), "
+                    + "The tri-state mode is not supported by the compact model.");
+        }
+    }
+
+    /**
+     * trimToSize, This shrinks the arrays to the number of assigned ids. This can be called after a
+     * large model has been built, to release the unused capacity.
+     */
+    public void trimToSize() {
+        zResize(entryCount);
+    }
+
+    /**
+     * zAllocate, This creates the arrays with the supplied capacity.
+     */
+    private void zAllocate(int capacity) {
+        parentIds = new int[capacity];
+        lastChildIds = new int[capacity];
+        nextSiblingIds = new int[capacity];
+        childCounts = new int[capacity];
+        flags = new byte[capacity];
+        foregroundIndexes = new char[capacity];
+        backgroundIndexes = new char[capacity];
+        iconIndexes = new char[capacity];
+        texts = new String[capacity];
+        attributes.add(null);
+    }
+
+    /**
+     * zChangeSubtreeChecks, This changes the check state of every entry in the subtree of the
+     * supplied id that has a visible checkbox. If invert is true, each entry is inverted, otherwise
+     * each entry is set to the supplied checked value. A single check state notification is sent for
+     * the subtree, if any entry was changed.
+     */
+    private void zChangeSubtreeChecks(int subtreeRootId, boolean invert, boolean checked) {
+        boolean changed = false;
+        int id = subtreeRootId;
+        while (id != NO_ENTRY) {
+            byte entryFlags = flags[id];
+            if ((entryFlags & FLAG_BOX_HIDDEN) == 0) {
+                boolean oldChecked = (entryFlags & FLAG_CHECKED) != 0;
+                boolean newChecked = (invert) ? (!oldChecked) : checked;
+                if (newChecked != oldChecked) {
+                    zSetFlag(id, FLAG_CHECKED, newChecked);
+                    changed = true;
+                }
+            }
+            id = zGetNextInPreorder(id, subtreeRootId);
+        }
+        if (changed) {
+            zNotifyCheckStateChanged(null, getEntry(subtreeRootId), false);
+        }
+    }
+
+    /**
+     * zCheckId, This throws an exception if the supplied id is not a valid id.
+     */
+    private void zCheckId(int id, String functionName) {
+        if ((id < 0) || (id >= entryCount)) {
+            throw new IllegalArgumentException("CompactCheckModel." + functionName + "(), "
+                    + "The id " + id + " is not valid for a model with " + entryCount
+                    + " ids.");
+        }
+    }
+
+    /**
+     * zCopyChildren, This copies the children of the supplied source entry, and all of their
+     * descendants, to the end of the children of the supplied parent id. This uses a loop instead
+     * of recursion, so that deep trees can not overflow the stack.
+     */
+    private void zCopyChildren(CheckEntry source, int parentId) {
+        ArrayList<CheckEntry> sourceStack = new ArrayList<CheckEntry>();
+        ArrayList<Integer> parentStack = new ArrayList<Integer>();
+        for (int i = source.getChildCount() - 1; i >= 0; --i) {
+            sourceStack.add(source.getChildAt(i));
+            parentStack.add(parentId);
+        }
+        while (!sourceStack.isEmpty()) {
+            CheckEntry entry = sourceStack.remove(sourceStack.size() - 1);
+            int entryParentId = parentStack.remove(parentStack.size() - 1);
+            if (entry.isPlaceholder()) {
+                continue;
+            }
+            int id = zNewEntry(entry.text);
+            zStoreFields(id, entry);
+            zLink(id, entryParentId, childCounts[entryParentId]);
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                sourceStack.add(entry.getChildAt(i));
+                parentStack.add(id);
+            }
+        }
+    }
+
+    /**
+     * zExpungeHandles, This removes the references of garbage collected handles from the handle
+     * map.
+     */
+    private void zExpungeHandles() {
+        HandleReference reference;
+        while ((reference = (HandleReference) handleQueue.poll()) != null) {
+            if (handles.get(reference.id) == reference) {
+                handles.remove(reference.id);
+            }
+        }
+    }
+
+    /**
+     * zGetAttributeIndex, This returns the attribute table index of the supplied color or icon,
+     * adding the value to the table if needed.
+     *
+     * @exception IllegalStateException if the table is full.
+     */
+    private char zGetAttributeIndex(Object value) {
+        if (value == null) {
+            return 0;
+        }
+        if (attributePool != null) {
+            value = (value instanceof Color) ? attributePool.internColor((Color) value)
+                    : attributePool.internIcon((Icon) value);
+        }
+        Integer index = attributeIndexes.get(value);
+        if (index == null) {
+            if (attributes.size() > Character.MAX_VALUE) {
+                throw new IllegalStateException("CompactCheckModel, "
+                        + "The model can not hold more than " + ((int) Character.MAX_VALUE)
+                        + " distinct colors and icons.");
+            }
+            index = attributes.size();
+            attributes.add(value);
+            attributeIndexes.put(value, index);
+        }
+        return (char) index.intValue();
+    }
+
+    /**
+     * zGetChildId, This returns the id of the child at the supplied index of the supplied parent.
+     * Reading the children of a parent in increasing order takes constant time for each child.
+     *
+     * @exception ArrayIndexOutOfBoundsException if the index is not a valid child index.
+     */
+    private int zGetChildId(int parentId, int index) {
+        if ((index < 0) || (index >= childCounts[parentId])) {
+            throw new ArrayIndexOutOfBoundsException("CompactCheckModel, The child index "
+                    + index + " is not valid for an entry with " + childCounts[parentId]
+                    + " children.");
+        }
+        int childId;
+        int childIndex;
+        if ((cursorParentId == parentId) && (cursorIndex <= index)) {
+            childId = cursorChildId;
+            childIndex = cursorIndex;
+        } else if (index == childCounts[parentId] - 1) {
+            childId = lastChildIds[parentId];
+            childIndex = index;
+        } else {
+            childId = nextSiblingIds[lastChildIds[parentId]];
+            childIndex = 0;
+        }
+        while (childIndex < index) {
+            childId = nextSiblingIds[childId];
+            ++childIndex;
+        }
+        cursorParentId = parentId;
+        cursorIndex = index;
+        cursorChildId = childId;
+        return childId;
+    }
+
+    /**
+     * zGetExistingHandle, This returns the handle of the supplied id if the handle exists, or null
+     * otherwise. This never creates a handle.
+     */
+    private EntryHandle zGetExistingHandle(int id) {
+        HandleReference reference = handles.get(id);
+        return (reference == null) ? null : reference.get();
+    }
+
+    /**
+     * zGetIndex, This returns the index of the supplied child id among the children of the
+     * supplied parent id, or -1 if it is not a child of that parent.
+     */
+    private int zGetIndex(int parentId, int childId) {
+        if ((childId < 0) || (parentIds[childId] != parentId)) {
+            return -1;
+        }
+        if ((cursorParentId == parentId) && (cursorChildId == childId)) {
+            return cursorIndex;
+        }
+        if (lastChildIds[parentId] == childId) {
+            return childCounts[parentId] - 1;
+        }
+        int id = nextSiblingIds[lastChildIds[parentId]];
+        for (int index = 0; index < childCounts[parentId]; ++index) {
+            if (id == childId) {
+                cursorParentId = parentId;
+                cursorIndex = index;
+                cursorChildId = childId;
+                return index;
+            }
+            id = nextSiblingIds[id];
+        }
+        return -1;
+    }
+
+    /**
+     * zGetNextInPreorder, This returns the id that follows the supplied id, in a "preorder
+     * traversal" of the subtree of the supplied subtree root id, or NO_ENTRY if the traversal is
+     * finished. This does not need a stack.
+     */
+    private int zGetNextInPreorder(int id, int subtreeRootId) {
+        if (lastChildIds[id] != NO_ENTRY) {
+            return nextSiblingIds[lastChildIds[id]];
+        }
+        while (id != subtreeRootId) {
+            int parentId = parentIds[id];
+            if (lastChildIds[parentId] != id) {
+                return nextSiblingIds[id];
+            }
+            id = parentId;
+        }
+        return NO_ENTRY;
+    }
+
+    /**
+     * zInsert, This inserts the supplied entry at the supplied index of the children of the
+     * supplied parent id. If the entry is a handle of this model, the entry is moved. Otherwise, the
+     * entry and its descendants are copied. This does not notify the tree model listeners.
+     */
+    private void zInsert(MutableTreeNode newChild, int parentId, int index) {
+        if (!(newChild instanceof CheckEntry)) {
+            throw new IllegalArgumentException("CompactCheckModel.insert(), "
+                    + "Inserted entries must be an instance of CheckEntry, and can not be null.");
+        }
+        CheckEntry entry = (CheckEntry) newChild;
+        int id = getId(entry);
+        // Like DefaultMutableTreeNode, a child of the same parent is removed before it is inserted,
+        // so the index is an index of the remaining children.
+        int availableCount = childCounts[parentId]
+                - (((id >= 0) && (parentIds[id] == parentId)) ? 1 : 0);
+        if ((index < 0) || (index > availableCount)) {
+            throw new ArrayIndexOutOfBoundsException("CompactCheckModel, The insertion index "
+                    + index + " is not valid for an entry with " + availableCount
+                    + " other children.");
+        }
+        if (id >= 0) {
+            for (int ancestorId = parentId; ancestorId != NO_ENTRY;
+                    ancestorId = parentIds[ancestorId]) {
+                if (ancestorId == id) {
+                    throw new IllegalArgumentException("CompactCheckModel.insert(), "
+                            + "An entry can not be inserted into itself or its descendants.");
+                }
+            }
+            if (parentIds[id] != NO_ENTRY) {
+                zUnlink(id);
+            }
+            zLink(id, parentId, index);
+            return;
+        }
+        // The copy is built while it is unlinked, and is then linked into place.
+        id = zNewEntry(entry.text);
+        zStoreFields(id, entry);
+        zCopyChildren(entry, id);
+        zLink(id, parentId, index);
+    }
+
+    /**
+     * zLink, This links the supplied unlinked id into the children of the supplied parent, at the
+     * supplied index.
+     */
+    private void zLink(int id, int parentId, int index) {
+        int lastChildId = lastChildIds[parentId];
+        if (lastChildId == NO_ENTRY) {
+            nextSiblingIds[id] = id;
+            lastChildIds[parentId] = id;
+        } else if (index == childCounts[parentId]) {
+            nextSiblingIds[id] = nextSiblingIds[lastChildId];
+            nextSiblingIds[lastChildId] = id;
+            lastChildIds[parentId] = id;
+        } else {
+            int previousId = (index == 0) ? lastChildId : zGetChildId(parentId, index - 1);
+            nextSiblingIds[id] = nextSiblingIds[previousId];
+            nextSiblingIds[previousId] = id;
+        }
+        parentIds[id] = parentId;
+        ++childCounts[parentId];
+        cursorParentId = NO_ENTRY;
+    }
+
+    /**
+     * zNewEntry, This assigns the next id to a new unlinked entry with the supplied text, and
+     * returns the id. The arrays are enlarged as needed.
+     */
+    private int zNewEntry(String text) {
+        if (entryCount == parentIds.length) {
+            zResize(Math.max(entryCount + 1, entryCount + (entryCount >> 1)));
+        }
+        int id = entryCount++;
+        parentIds[id] = NO_ENTRY;
+        lastChildIds[id] = NO_ENTRY;
+        nextSiblingIds[id] = NO_ENTRY;
+        texts[id] = zPoolText(text);
+        return id;
+    }
+
+    /**
+     * zPoolText, This returns the shared instance of the supplied text, if this model has an
+     * attribute pool. Otherwise, this returns the supplied text.
+     */
+    private String zPoolText(String text) {
+        return (attributePool == null) ? text : attributePool.internText(text);
+    }
+
+    /**
+     * zRemoveChild, This removes the child at the supplied index from the supplied parent id. The
+     * removed entry keeps its descendants, and can be inserted again. This does not notify the tree
+     * model listeners.
+     */
+    private void zRemoveChild(int parentId, int index) {
+        zUnlink(zGetChildId(parentId, index));
+    }
+
+    /**
+     * zResize, This copies the arrays into arrays of the supplied capacity.
+     */
+    private void zResize(int capacity) {
+        parentIds = Arrays.copyOf(parentIds, capacity);
+        lastChildIds = Arrays.copyOf(lastChildIds, capacity);
+        nextSiblingIds = Arrays.copyOf(nextSiblingIds, capacity);
+        childCounts = Arrays.copyOf(childCounts, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        foregroundIndexes = Arrays.copyOf(foregroundIndexes, capacity);
+        backgroundIndexes = Arrays.copyOf(backgroundIndexes, capacity);
+        iconIndexes = Arrays.copyOf(iconIndexes, capacity);
+        texts = Arrays.copyOf(texts, capacity);
+        if (userObjects != null) {
+            userObjects = Arrays.copyOf(userObjects, capacity);
+        }
+    }
+
+    /**
+     * zSetFlag, This sets or clears the supplied flag of the supplied id.
+     */
+    private void zSetFlag(int id, byte flag, boolean set) {
+        flags[id] = (byte) ((set) ? (flags[id] | flag) : (flags[id] & ~flag));
+    }
+
+    /**
+     * zStoreFields, This stores the public field values and the user object of the supplied entry
+     * into the arrays at the supplied id. The check state is also stored, unless the entry is the
+     * handle of the id.
+     */
+    private void zStoreFields(int id, CheckEntry entry) {
+        if (id < 0) {
+            return;
+        }
+        texts[id] = zPoolText(entry.text);
+        foregroundIndexes[id] = zGetAttributeIndex(entry.textForegroundColor);
+        backgroundIndexes[id] = zGetAttributeIndex(entry.textBackgroundColor);
+        iconIndexes[id] = zGetAttributeIndex(entry.userIcon);
+        zSetFlag(id, FLAG_ICON_HIDDEN, !entry.userIconVisible);
+        zSetFlag(id, FLAG_BOX_HIDDEN, !entry.isCheckboxVisible());
+        if (getId(entry) != id) {
+            zSetFlag(id, FLAG_CHECKED, entry.isChecked());
+        }
+        zStoreUserObject(id, entry.getUserObject());
+    }
+
+    /**
+     * zStoreUserObject, This stores the supplied user object at the supplied id. The user object
+     * array is only created when the first user object is stored.
+     */
+    private void zStoreUserObject(int id, Object userObject) {
+        if (userObjects == null) {
+            if (userObject == null) {
+                return;
+            }
+            userObjects = new Object[parentIds.length];
+        }
+        userObjects[id] = userObject;
+    }
+
+    /**
+     * zTakeArrays, This replaces the arrays of this model with the arrays of the supplied model.
+     */
+    private void zTakeArrays(CompactCheckModel source) {
+        parentIds = source.parentIds;
+        lastChildIds = source.lastChildIds;
+        nextSiblingIds = source.nextSiblingIds;
+        childCounts = source.childCounts;
+        flags = source.flags;
+        foregroundIndexes = source.foregroundIndexes;
+        backgroundIndexes = source.backgroundIndexes;
+        iconIndexes = source.iconIndexes;
+        texts = source.texts;
+        userObjects = source.userObjects;
+        entryCount = source.entryCount;
+        attributes.clear();
+        attributes.addAll(source.attributes);
+        attributeIndexes.clear();
+        attributeIndexes.putAll(source.attributeIndexes);
+        cursorParentId = NO_ENTRY;
+    }
+
+    /**
+     * zUnlink, This removes the supplied id from the children of its parent.
+     */
+    private void zUnlink(int id) {
+        int parentId = parentIds[id];
+        if (childCounts[parentId] == 1) {
+            lastChildIds[parentId] = NO_ENTRY;
+        } else {
+            int previousId = lastChildIds[parentId];
+            while (nextSiblingIds[previousId] != id) {
+                previousId = nextSiblingIds[previousId];
+            }
+            nextSiblingIds[previousId] = nextSiblingIds[id];
+            if (lastChildIds[parentId] == id) {
+                lastChildIds[parentId] = previousId;
+            }
+        }
+        parentIds[id] = NO_ENTRY;
+        nextSiblingIds[id] = NO_ENTRY;
+        --childCounts[parentId];
+        cursorParentId = NO_ENTRY;
+    }
+
+    /**
+     * EntryHandle, This is the CheckEntry handle of one entry of a compact model. The public fields
+     * are copied from the arrays when the handle is created. The check state functions and the
+     * child functions work directly on the arrays of the model.
+     *
+     * The children() function returns a raw enumeration, because its return type differs between
+     * Java versions. The unchecked warning for that is suppressed on the class, because the
+     * compiler reports it against the class.
+     */
+    @SuppressWarnings("unchecked")
+    private static class EntryHandle extends CheckEntry {
+
+        private static final long serialVersionUID = 1L;
+
+        final int id;
+
+        EntryHandle(CompactCheckModel model, int id) {
+            super(model.texts[id], (model.userObjects == null) ? null : model.userObjects[id]);
+            this.id = id;
+            ownerModel = model;
+            byte entryFlags = model.flags[id];
+            checkboxVisible = ((entryFlags & FLAG_BOX_HIDDEN) != 0)
+                    ? BoxVisible.Hide : BoxVisible.Show;
+            userIconVisible = (entryFlags & FLAG_ICON_HIDDEN) == 0;
+            textForegroundColor = (Color) model.attributes.get(model.foregroundIndexes[id]);
+            textBackgroundColor = (Color) model.attributes.get(model.backgroundIndexes[id]);
+            userIcon = (Icon) model.attributes.get(model.iconIndexes[id]);
+        }
+
+        @Override
+        @SuppressWarnings("rawtypes")
+        public Enumeration children() {
+            final CompactCheckModel model = zModel();
+            final int childCount = (model == null) ? 0 : model.childCounts[id];
+            return new Enumeration<TreeNode>() {
+                int index = 0;
+
+                @Override
+                public boolean hasMoreElements() {
+                    return index < childCount;
+                }
+
+                @Override
+                public TreeNode nextElement() {
+                    if (index >= childCount) {
+                        throw new NoSuchElementException("CompactCheckModel.children()");
+                    }
+                    return getChildAt(index++);
+                }
+            };
+        }
+
+        @Override
+        public boolean getAllowsChildren() {
+            return true;
+        }
+
+        @Override
+        public CheckEntry getChildAt(int index) {
+            CompactCheckModel model = zModel();
+            if (model == null) {
+                throw new ArrayIndexOutOfBoundsException("CompactCheckModel, "
+                        + "The entry has been detached from its model.");
+            }
+            return model.getEntry(model.zGetChildId(id, index));
+        }
+
+        @Override
+        public int getChildCount() {
+            CompactCheckModel model = zModel();
+            return (model == null) ? 0 : model.childCounts[id];
+        }
+
+        @Override
+        public int getIndex(TreeNode aChild) {
+            CompactCheckModel model = zModel();
+            if ((model == null) || (!(aChild instanceof CheckEntry))) {
+                return -1;
+            }
+            return model.zGetIndex(id, model.getId((CheckEntry) aChild));
+        }
+
+        @Override
+        public TreeNode getParent() {
+            CompactCheckModel model = zModel();
+            if ((model == null) || (model.parentIds[id] == NO_ENTRY)) {
+                return null;
+            }
+            return model.getEntry(model.parentIds[id]);
+        }
+
+        @Override
+        public void insert(MutableTreeNode newChild, int childIndex) {
+            CompactCheckModel model = zModel();
+            if (model == null) {
+                throw new IllegalStateException("CompactCheckModel.insert(), "
+                        + "The entry has been detached from its model.");
+            }
+            model.zInsert(newChild, id, childIndex);
+        }
+
+        @Override
+        public boolean isChecked() {
+            CompactCheckModel model = zModel();
+            return (model == null) ? checked : ((model.flags[id] & FLAG_CHECKED) != 0);
+        }
+
+        @Override
+        public boolean isLeaf() {
+            return getChildCount() == 0;
+        }
+
+        @Override
+        public void remove(int childIndex) {
+            CompactCheckModel model = zModel();
+            if (model == null) {
+                throw new ArrayIndexOutOfBoundsException("CompactCheckModel, "
+                        + "The entry has been detached from its model.");
+            }
+            model.zRemoveChild(id, childIndex);
+        }
+
+        @Override
+        public void setCheckboxVisible(BoxVisible checkboxVisible) {
+            CompactCheckModel model = zModel();
+            if (model != null) {
+                model.zSetFlag(id, FLAG_BOX_HIDDEN, checkboxVisible != BoxVisible.Show);
+            }
+            this.checkboxVisible = checkboxVisible;
+        }
+
+        @Override
+        public void setUserObject(Object userObject) {
+            super.setUserObject(userObject);
+            CompactCheckModel model = zModel();
+            if (model != null) {
+                model.zStoreUserObject(id, userObject);
+            }
+        }
+
+        @Override
+        void zWriteChecked(boolean checked) {
+            CompactCheckModel model = zModel();
+            if (model != null) {
+                model.zSetFlag(id, FLAG_CHECKED, checked);
+            } else {
+                this.checked = checked;
+            }
+        }
+
+        /**
+         * zModel, This returns the model of this handle, or null if the handle was detached by
+         * CompactCheckModel.setRoot().
+         */
+        private CompactCheckModel zModel() {
+            return (CompactCheckModel) ownerModel;
+        }
+    }
+
+    /**
+     * HandleReference, This is a weak reference to an entry handle, which remembers the id of the
+     * handle after the handle has been garbage collected.
+     */
+    private static class HandleReference extends WeakReference<EntryHandle> {
+
+        final int id;
+
+        HandleReference(EntryHandle handle, ReferenceQueue<EntryHandle> queue) {
+            super(handle, queue);
+            this.id = handle.id;
+        }
+    }
+}
@@ -0,0 +1,426 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * EntryKeyIndex, This class finds the entries of a CheckModel by key, or by a path of entry texts,
+ * without traversing the tree. An index is created and owned by a CheckModel. See also,
+ * CheckModel.enableKeyIndex().
+ *
+ * Keys: Each entry key is calculated by the key function of the index. The default key function
+ * returns the user object of the entry, or the entry text if the entry has no user object. Entries
+ * whose key is null are not indexed, and placeholder entries are never indexed. Keys should be
+ * unique. If more than one entry has the same key, then getEntry() returns the entry that was
+ * indexed first, and getEntries() returns all of them. Keys must have consistent equals() and
+ * hashCode() functions, and should not change while they are in the index.
+ *
+ * Paths: The getEntryByPath() functions find an entry by the texts of the entry and its ancestors
+ * below the root entry, for example "Food/Colorized Food/Skittles". The children of each parent
+ * that is used in a path lookup are stored in a hash map by text, so each step of a path lookup
+ * takes constant time. If a parent has more than one child with the same text, then the first of
+ * those children is found.
+ *
+ * Entries that are added to the model (or removed from the model) are automatically indexed (or
+ * removed from the index). This includes entries that are added with addEntryInto(),
+ * insertEntryInto(), and CheckEntry.add(), and entries that are removed with
+ * removeEntryFromParent() and CheckEntry.remove(). If the user object or the text of an indexed
+ * entry is changed, then the model function nodeChanged() should be called for the entry, as it is
+ * for any other change to the display of an entry. That updates the key and the path lookups of
+ * the entry. Alternately, reindexEntry() can be called directly.
+ *
+ * With an index, an entry can be found by key, and then checked, selected or revealed, in time
+ * proportional to the depth of the entry. Example: CheckEntry entry = index.getEntry(key);
+ * tree.scrollPathToVisible(new TreePath(model.getPathToRoot(entry)));
+ */
+public class EntryKeyIndex {
+
+    /**
+     * DEFAULT_PATH_SEPARATOR, This is the separator that is used by getEntryByPath(String).
+     */
+    static public final String DEFAULT_PATH_SEPARATOR = "/";
+
+    /**
+     * USER_OBJECT_OR_TEXT, This key function returns the user object of an entry, or the text of
+     * the entry if the entry has no user object. This is the default key function.
+     */
+    static public final Function<CheckEntry, Object> USER_OBJECT_OR_TEXT
+            = new Function<CheckEntry, Object>() {
+        @Override
+        public Object apply(CheckEntry entry) {
+            Object userObject = entry.getUserObject();
+            return (userObject != null) ? userObject : entry.text;
+        }
+    };
+
+    /**
+     * childrenByText, This holds the mapped children of each parent that has been used in a path
+     * lookup. The maps are created when they are first needed, and are kept up to date as
+     * children are inserted and removed. A map is discarded when a child is changed.
+     */
+    private final IdentityHashMap<CheckEntry, ChildTextMap> childrenByText
+            = new IdentityHashMap<CheckEntry, ChildTextMap>();
+
+    /**
+     * entriesByKey, This holds the indexed entry for each key. If more than one entry has the same
+     * key, then the value is a linked set of those entries, in the order that they were indexed.
+     * (CheckEntry does not override equals(), so the set compares the entries by identity.)
+     */
+    private final HashMap<Object, Object> entriesByKey = new HashMap<Object, Object>();
+
+    /**
+     * entryCount, This holds the number of indexed entries.
+     */
+    private int entryCount = 0;
+
+    /**
+     * keyFunction, This holds the function that calculates the key of each entry.
+     */
+    private final Function<? super CheckEntry, ?> keyFunction;
+
+    /**
+     * model, This holds the model that owns this index.
+     */
+    private final CheckModel model;
+
+    /**
+     * Constructor, This is package private because indexes are created by CheckModel.
+     */
+    EntryKeyIndex(CheckModel model, Function<? super CheckEntry, ?> keyFunction) {
+        this.model = model;
+        this.keyFunction = keyFunction;
+    }
+
+    /**
+     * containsKey, This returns true if at least one entry in the index has the supplied key.
+     */
+    public boolean containsKey(Object key) {
+        return (key != null) && entriesByKey.containsKey(key);
+    }
+
+    /**
+     * getChildByText, This returns the first child of the supplied parent that has the supplied
+     * text, or null if there is no such child. Placeholder entries are never returned. This takes
+     * constant time, after the children of the parent have been mapped once.
+     */
+    public CheckEntry getChildByText(CheckEntry parent, String text) {
+        if (parent == null) {
+            return null;
+        }
+        ChildTextMap childTextMap = childrenByText.get(parent);
+        if (childTextMap != null) {
+            CheckEntry child = childTextMap.firstChildByText.get(text);
+            // The text of a child may have been written without calling nodeChanged(), so a found
+            // child is verified before it is returned.
+            if ((child == null)
+                    || ((child.getParent() == parent) && zTextEquals(child.text, text))) {
+                return child;
+            }
+        }
+        return zMapChildren(parent).firstChildByText.get(text);
+    }
+
+    /**
+     * getEntries, This returns every indexed entry that has the supplied key, in the order that
+     * they were indexed. This returns an empty list if there is no such entry.
+     */
+    @SuppressWarnings("unchecked")
+    public List<CheckEntry> getEntries(Object key) {
+        Object value = (key == null) ? null : entriesByKey.get(key);
+        if (value == null) {
+            return Collections.emptyList();
+        }
+        if (value instanceof CheckEntry) {
+            return Collections.singletonList((CheckEntry) value);
+        }
+        return Collections.unmodifiableList(new ArrayList<CheckEntry>((Set<CheckEntry>) value));
+    }
+
+    /**
+     * getEntry, This returns the indexed entry that has the supplied key, or null if there is no
+     * such entry. If more than one entry has the key, the entry that was indexed first is returned.
+     */
+    @SuppressWarnings("unchecked")
+    public CheckEntry getEntry(Object key) {
+        Object value = (key == null) ? null : entriesByKey.get(key);
+        if ((value == null) || (value instanceof CheckEntry)) {
+            return (CheckEntry) value;
+        }
+        return ((Set<CheckEntry>) value).iterator().next();
+    }
+
+    /**
+     * getEntryByPath, This returns the entry at the supplied path of entry texts, using "/" as the
+     * path separator. See also, getEntryByPath(String, String).
+     */
+    public CheckEntry getEntryByPath(String path) {
+        return getEntryByPath(path, DEFAULT_PATH_SEPARATOR);
+    }
+
+    /**
+     * getEntryByPath, This returns the entry at the supplied path of entry texts, or null if there
+     * is no such entry. The path starts below the root entry, so "Food/Colorized Food" finds the
+     * root child with the text "Food", and then its child with the text "Colorized Food". An
+     * empty path returns the root entry. The separator is matched literally, and must not be
+     * empty.
+     *
+     * @exception IllegalArgumentException if the separator is null or empty.
+     */
+    public CheckEntry getEntryByPath(String path, String separator) {
+        if ((separator == null) || separator.isEmpty()) {
+            throw new IllegalArgumentException("EntryKeyIndex.getEntryByPath(), "
+                    + "The path separator can not be null or empty.");
+        }
+        CheckEntry entry = model.getRoot();
+        if ((path == null) || path.isEmpty() || (entry == null)) {
+            return entry;
+        }
+        int start = 0;
+        while (entry != null) {
+            int end = path.indexOf(separator, start);
+            if (end < 0) {
+                return getChildByText(entry, path.substring(start));
+            }
+            entry = getChildByText(entry, path.substring(start, end));
+            start = end + separator.length();
+        }
+        return null;
+    }
+
+    /**
+     * getEntryByPath, This returns the entry at the supplied path of entry texts, or null if there
+     * is no such entry. The first text is the text of a child of the root entry. An empty array
+     * returns the root entry.
+     */
+    public CheckEntry getEntryByPath(String[] texts) {
+        CheckEntry entry = model.getRoot();
+        for (int i = 0; (i < texts.length) && (entry != null); ++i) {
+            entry = getChildByText(entry, texts[i]);
+        }
+        return entry;
+    }
+
+    /**
+     * getEntryCount, This returns the number of indexed entries.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * getEntryCount, This returns the number of indexed entries that have the supplied key. This
+     * takes constant time.
+     */
+    @SuppressWarnings("unchecked")
+    public int getEntryCount(Object key) {
+        Object value = (key == null) ? null : entriesByKey.get(key);
+        if (value == null) {
+            return 0;
+        }
+        return (value instanceof CheckEntry) ? 1 : ((Set<CheckEntry>) value).size();
+    }
+
+    /**
+     * getKey, This returns the key of the supplied entry, as it was calculated when the entry was
+     * indexed, or null if the entry is not in this index.
+     */
+    public Object getKey(CheckEntry entry) {
+        return (entry.ownerModel == model) ? entry.indexKey : null;
+    }
+
+    /**
+     * getKeyFunction, This returns the function that calculates the key of each entry.
+     */
+    public Function<? super CheckEntry, ?> getKeyFunction() {
+        return keyFunction;
+    }
+
+    /**
+     * reindexEntry, This calculates the key of the supplied entry again, and updates the path
+     * lookups of its parent. This should be called after the user object or the text of an entry
+     * is changed. The model function nodeChanged() calls this automatically. This does nothing if
+     * the entry does not belong to the model of this index.
+     */
+    public void reindexEntry(CheckEntry entry) {
+        if ((entry == null) || (entry.ownerModel != model)) {
+            return;
+        }
+        zUnregister(entry);
+        zRegister(entry);
+        CheckEntry parent = (CheckEntry) entry.getParent();
+        if (parent != null) {
+            childrenByText.remove(parent);
+        }
+    }
+
+    /**
+     * zAddKey, This adds the supplied entry to the entries of the supplied key.
+     */
+    @SuppressWarnings("unchecked")
+    private void zAddKey(Object key, CheckEntry entry) {
+        Object value = entriesByKey.get(key);
+        if (value == null) {
+            entriesByKey.put(key, entry);
+        } else if (value instanceof CheckEntry) {
+            LinkedHashSet<CheckEntry> sameKeyEntries = new LinkedHashSet<CheckEntry>();
+            sameKeyEntries.add((CheckEntry) value);
+            sameKeyEntries.add(entry);
+            entriesByKey.put(key, sameKeyEntries);
+        } else {
+            ((Set<CheckEntry>) value).add(entry);
+        }
+    }
+
+    /**
+     * zChildInserted, This is called by the model after the supplied child has been inserted into
+     * the supplied parent. If the children of the parent are mapped, the map is updated.
+     */
+    void zChildInserted(CheckEntry parent, CheckEntry child) {
+        ChildTextMap childTextMap = childrenByText.get(parent);
+        if ((childTextMap == null) || child.isPlaceholder()) {
+            return;
+        }
+        CheckEntry mappedChild = childTextMap.firstChildByText.get(child.text);
+        if (mappedChild == null) {
+            childTextMap.firstChildByText.put(child.text, child);
+            return;
+        }
+        childTextMap.repeatedTexts.add(child.text);
+        if (parent.getIndex(child) < parent.getIndex(mappedChild)) {
+            childTextMap.firstChildByText.put(child.text, child);
+        }
+    }
+
+    /**
+     * zChildRemoved, This is called by the model after the supplied child has been removed from
+     * the supplied parent. If the removed child was mapped, then only its own mapping is removed.
+     * The children of the parent are only searched again if another child may have the same text,
+     * so removing many children takes time proportional to the number of removed children.
+     */
+    void zChildRemoved(CheckEntry parent, CheckEntry child) {
+        ChildTextMap childTextMap = childrenByText.get(parent);
+        if ((childTextMap == null) || (childTextMap.firstChildByText.get(child.text) != child)) {
+            return;
+        }
+        childTextMap.firstChildByText.remove(child.text);
+        if (!childTextMap.repeatedTexts.contains(child.text)) {
+            return;
+        }
+        // The remaining children with the same text are counted, so the text is only searched
+        // again while it is still repeated.
+        int sameTextCount = 0;
+        for (int i = 0; i < parent.getChildCount(); ++i) {
+            CheckEntry sibling = parent.getChildAt(i);
+            if ((!sibling.isPlaceholder()) && zTextEquals(sibling.text, child.text)) {
+                if (sameTextCount == 0) {
+                    childTextMap.firstChildByText.put(child.text, sibling);
+                }
+                ++sameTextCount;
+            }
+        }
+        if (sameTextCount < 2) {
+            childTextMap.repeatedTexts.remove(child.text);
+        }
+    }
+
+    /**
+     * zMapChildren, This maps the first child with each text, for the supplied parent, and returns
+     * the map.
+     */
+    private ChildTextMap zMapChildren(CheckEntry parent) {
+        int childCount = parent.getChildCount();
+        ChildTextMap childTextMap = new ChildTextMap(childCount);
+        for (int i = 0; i < childCount; ++i) {
+            CheckEntry child = parent.getChildAt(i);
+            if (child.isPlaceholder()) {
+                continue;
+            }
+            if (childTextMap.firstChildByText.containsKey(child.text)) {
+                childTextMap.repeatedTexts.add(child.text);
+            } else {
+                childTextMap.firstChildByText.put(child.text, child);
+            }
+        }
+        childrenByText.put(parent, childTextMap);
+        return childTextMap;
+    }
+
+    /**
+     * zRegister, This calculates the key of the supplied entry, and adds the entry to the index.
+     * Placeholder entries, and entries whose key is null, are not added.
+     */
+    void zRegister(CheckEntry entry) {
+        if (entry.isPlaceholder()) {
+            return;
+        }
+        Object key = keyFunction.apply(entry);
+        if (key == null) {
+            return;
+        }
+        entry.indexKey = key;
+        zAddKey(key, entry);
+        ++entryCount;
+    }
+
+    /**
+     * zUnregister, This removes the supplied entry from the index, if it is indexed. The mapped
+     * children of the entry are also discarded.
+     */
+    @SuppressWarnings("unchecked")
+    void zUnregister(CheckEntry entry) {
+        childrenByText.remove(entry);
+        Object key = entry.indexKey;
+        if (key == null) {
+            return;
+        }
+        entry.indexKey = null;
+        --entryCount;
+        Object value = entriesByKey.get(key);
+        if (value == entry) {
+            entriesByKey.remove(key);
+        } else if (value instanceof Set) {
+            Set<CheckEntry> sameKeyEntries = (Set<CheckEntry>) value;
+            sameKeyEntries.remove(entry);
+            if (sameKeyEntries.size() == 1) {
+                entriesByKey.put(key, sameKeyEntries.iterator().next());
+            }
+        }
+    }
+
+    /**
+     * zTextEquals, This returns true if the supplied text values are equal. Either value may be
+     * null.
+     */
+    private static boolean zTextEquals(String first, String second) {
+        return (first == second) || ((first != null) && first.equals(second));
+    }
+
+    /**
+     * ChildTextMap, This holds the mapped children of one parent.
+     */
+    private static class ChildTextMap {
+
+        /**
+         * firstChildByText, This holds the first child with each text.
+         */
+        final HashMap<String, CheckEntry> firstChildByText;
+
+        /**
+         * repeatedTexts, This holds the texts that may be used by more than one child. A text is
+         * removed from this set when a removal finds that the text is no longer repeated.
+         */
+        final HashSet<String> repeatedTexts = new HashSet<String>();
+
+        ChildTextMap(int childCount) {
+            int capacity = Math.max(16, (childCount * 4) / 3 + 1);
+            firstChildByText = new HashMap<String, CheckEntry>(capacity);
+        }
+    }
+}
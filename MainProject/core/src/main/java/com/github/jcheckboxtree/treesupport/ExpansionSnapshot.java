@@ -0,0 +1,204 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * ExpansionSnapshot, This holds the expanded entries of a checkbox tree view, in a compact form
+ * that does not refer to any entry objects. A snapshot can be taken from one model, and applied to
+ * a different model that was built again from the same data. See also,
+ * JCheckboxTree.getExpansionSnapshot() and JCheckboxTree.restoreExpansionSnapshot().
+ *
+ * Each expanded entry is identified by its text, and by the text of each of its ancestors below
+ * the root entry. If a parent has more than one child with the same text, then the children are
+ * told apart by their order among the children with that text. The snapshot stores each expanded
+ * entry as one text, one index of its expanded parent, and one such order number. The expanded
+ * entries are stored with every parent before its children, so they can be found again in a
+ * single pass through the snapshot.
+ *
+ * Only the expanded entries that are visible are stored. (These are the expanded entries whose
+ * ancestors are all expanded.) This class is serializable, and it can also be used from code that
+ * has no display.
+ */
+public class ExpansionSnapshot implements Serializable {
+
+    /**
+     * serialVersionUID, This is the serialization version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * parentIndexes, This holds the snapshot index of the parent of each expanded entry, or -1 if
+     * the parent is the root entry.
+     */
+    private final int[] parentIndexes;
+
+    /**
+     * rootExpanded, This is true if the root entry was expanded.
+     */
+    private final boolean rootExpanded;
+
+    /**
+     * sameTextIndexes, This holds the order of each expanded entry among the children of its
+     * parent that have the same text. The first child with a given text has an order of zero.
+     */
+    private final int[] sameTextIndexes;
+
+    /**
+     * texts, This holds the text of each expanded entry.
+     */
+    private final String[] texts;
+
+    /**
+     * Constructor. This creates a snapshot of the supplied root entry and the supplied expanded
+     * descendants of the root entry. Each expanded entry must come after its parent in the
+     * supplied list, unless its parent is the root entry. Any entries that do not meet that rule
+     * are not stored. The root entry may be null, to create an empty snapshot.
+     */
+    public ExpansionSnapshot(CheckEntry root, boolean rootExpanded,
+            List<CheckEntry> expandedEntries) {
+        this.rootExpanded = (root != null) && rootExpanded;
+        ArrayList<CheckEntry> storedEntries = new ArrayList<CheckEntry>();
+        ArrayList<Integer> storedParentIndexes = new ArrayList<Integer>();
+        IdentityHashMap<CheckEntry, Integer> snapshotIndexes
+                = new IdentityHashMap<CheckEntry, Integer>();
+        if (root != null) {
+            for (CheckEntry entry : expandedEntries) {
+                CheckEntry parent = (CheckEntry) entry.getParent();
+                Integer parentIndex = (parent == root) ? -1 : snapshotIndexes.get(parent);
+                if ((parent == null) || (parentIndex == null)
+                        || snapshotIndexes.containsKey(entry)) {
+                    continue;
+                }
+                snapshotIndexes.put(entry, storedEntries.size());
+                storedEntries.add(entry);
+                storedParentIndexes.add(parentIndex);
+            }
+        }
+        int count = storedEntries.size();
+        texts = new String[count];
+        parentIndexes = new int[count];
+        sameTextIndexes = new int[count];
+        IdentityHashMap<CheckEntry, Integer> sameTextIndexOfChild
+                = new IdentityHashMap<CheckEntry, Integer>();
+        for (int i = 0; i < count; ++i) {
+            CheckEntry entry = storedEntries.get(i);
+            if (!sameTextIndexOfChild.containsKey(entry)) {
+                zAddSameTextIndexes((CheckEntry) entry.getParent(), sameTextIndexOfChild);
+            }
+            texts[i] = entry.text;
+            parentIndexes[i] = storedParentIndexes.get(i);
+            sameTextIndexes[i] = sameTextIndexOfChild.get(entry);
+        }
+    }
+
+    /**
+     * findExpandedEntries, This finds the entries in the supplied root entry that match the
+     * expanded entries of this snapshot. Each returned entry comes after its parent, unless its
+     * parent is the root entry. Snapshot entries that do not exist below the supplied root are
+     * skipped, along with their descendants. Placeholder entries are never matched.
+     *
+     * Children are found with a hash map of the children of each matched parent, so this takes
+     * time proportional to the number of children of the matched entries.
+     */
+    public List<CheckEntry> findExpandedEntries(CheckEntry root) {
+        if ((root == null) || (texts.length == 0)) {
+            return Collections.emptyList();
+        }
+        ArrayList<CheckEntry> foundEntries = new ArrayList<CheckEntry>();
+        CheckEntry[] matchedEntries = new CheckEntry[texts.length];
+        IdentityHashMap<CheckEntry, Map<String, CheckEntry>> childrenByText
+                = new IdentityHashMap<CheckEntry, Map<String, CheckEntry>>();
+        for (int i = 0; i < texts.length; ++i) {
+            CheckEntry parent = (parentIndexes[i] < 0) ? root : matchedEntries[parentIndexes[i]];
+            if (parent == null) {
+                continue;
+            }
+            CheckEntry child = zFindChild(parent, texts[i], sameTextIndexes[i], childrenByText);
+            if (child != null) {
+                matchedEntries[i] = child;
+                foundEntries.add(child);
+            }
+        }
+        return foundEntries;
+    }
+
+    /**
+     * getExpandedCount, This returns the number of expanded entries in this snapshot, not
+     * counting the root entry.
+     */
+    public int getExpandedCount() {
+        return texts.length;
+    }
+
+    /**
+     * isRootExpanded, This returns true if the root entry was expanded when this snapshot was
+     * taken.
+     */
+    public boolean isRootExpanded() {
+        return rootExpanded;
+    }
+
+    /**
+     * zAddSameTextIndexes, This adds the same text order of every child of the supplied parent
+     * to the supplied map.
+     */
+    private static void zAddSameTextIndexes(CheckEntry parent,
+            IdentityHashMap<CheckEntry, Integer> sameTextIndexOfChild) {
+        HashMap<String, Integer> textCounts = new HashMap<String, Integer>();
+        for (int i = 0; i < parent.getChildCount(); ++i) {
+            CheckEntry child = parent.getChildAt(i);
+            Integer previousCount = textCounts.get(child.text);
+            int sameTextIndex = (previousCount == null) ? 0 : previousCount;
+            sameTextIndexOfChild.put(child, sameTextIndex);
+            textCounts.put(child.text, sameTextIndex + 1);
+        }
+    }
+
+    /**
+     * zFindChild, This returns the child of the supplied parent that has the supplied text and
+     * same text order, or null if there is no such child. The first child with each text is found
+     * with a hash map, which is built once for each parent. Any later children with the same text
+     * are found by counting.
+     */
+    private static CheckEntry zFindChild(CheckEntry parent, String text, int sameTextIndex,
+            IdentityHashMap<CheckEntry, Map<String, CheckEntry>> childrenByText) {
+        Map<String, CheckEntry> firstChildByText = childrenByText.get(parent);
+        if (firstChildByText == null) {
+            firstChildByText = new HashMap<String, CheckEntry>();
+            for (int i = 0; i < parent.getChildCount(); ++i) {
+                CheckEntry child = parent.getChildAt(i);
+                if ((!child.isPlaceholder()) && (!firstChildByText.containsKey(child.text))) {
+                    firstChildByText.put(child.text, child);
+                }
+            }
+            childrenByText.put(parent, firstChildByText);
+        }
+        CheckEntry child = firstChildByText.get(text);
+        if ((child == null) || (sameTextIndex == 0)) {
+            return child;
+        }
+        int remaining = sameTextIndex;
+        for (int i = parent.getIndex(child) + 1; i < parent.getChildCount(); ++i) {
+            CheckEntry sibling = parent.getChildAt(i);
+            if ((!sibling.isPlaceholder()) && zTextEquals(sibling.text, text)
+                    && (--remaining == 0)) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * zTextEquals, This returns true if the supplied text values are equal. Either value may be
+     * null.
+     */
+    private static boolean zTextEquals(String first, String second) {
+        return (first == second) || ((first != null) && first.equals(second));
+    }
+}
@@ -0,0 +1,777 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * TreeImporter, This class builds a new CheckModel from a large hierarchical text file, in a single
+ * pass over the file. Two text formats are supported.
+ *
+ * Format.PATHS: Each line holds the path of one entry, with the path components separated by the
+ * path separator, for example "Food/Fruit/Apple". Missing parent folders are created as needed.
+ * Empty path components are ignored, so "/Food//Fruit/" is the same path as "Food/Fruit". If the
+ * same path is listed more than once, only one entry is created.
+ *
+ * Format.INDENTED: Each line holds the text of one entry, indented with spaces or tabs. Each entry
+ * becomes a child of the nearest previous line that has less indentation. Each space or tab counts
+ * as one indentation step, so a file should not mix spaces and tabs for the same level.
+ *
+ * Check states: If a checked column separator is set with withCheckedColumn(), each line may end
+ * with the separator and a check state column, for example "Food/Fruit/Apple\t1". The entry is
+ * checked if the column holds "1", "true", "yes", "y", "x" or "checked", ignoring case. Otherwise,
+ * and for lines without the column, the entry is unchecked. Parent folders that are created for
+ * a path are unchecked.
+ *
+ * In both formats, blank lines are ignored, and spaces and tabs at the end of each line are
+ * removed. Lines may end with "\n" or "\r\n". Text that can not be decoded with the charset is
+ * replaced with the replacement character.
+ *
+ * Reading: Files are read through NIO channels into a reused buffer. Files that are at least as
+ * large as the mapping threshold are memory mapped instead, in regions of up to 256 megabytes.
+ * Each line is collected in a reused character buffer, and a String is only created for the text
+ * of each new entry.
+ *
+ * Parent lookup: In the paths format, the importer keeps the components of the previous path. A
+ * path that shares a prefix with the previous path reuses the parent entries of that prefix
+ * without any lookups, which is the common case for sorted listings. The other path prefixes are
+ * found in a hash table, by the entry of the shorter prefix and the text of the last component,
+ * so unsorted listings are also imported in a single pass. The table is held in primitive arrays
+ * that are discarded when the import is finished, and looking up a prefix creates no objects.
+ *
+ * Threads: The entries are built without a tree model, and the model is created when the whole
+ * file has been read. The model has no listeners until it is installed in a tree, so an import
+ * can run on any thread, and the finished model can then be installed in a tree on the event
+ * dispatch thread with a single setModel() call. Each import call uses its own state, so one
+ * importer can be used by several threads, as long as its settings are not changed during an
+ * import. An import that runs on an interrupted thread stops with an IOException, either an
+ * InterruptedIOException or the ClosedByInterruptException of an interrupted channel.
+ *
+ * Usage example: CheckModel model = new TreeImporter(TreeImporter.Format.PATHS)
+ * .withCheckedColumn('\t').importFile(file);
+ */
+public class TreeImporter {
+
+    /**
+     * CHECKED_VALUES, These are the check state column values that mean checked, in lower case.
+     */
+    static private final String[] CHECKED_VALUES = {"1", "true", "yes", "y", "x", "checked"};
+
+    /**
+     * DEFAULT_BUFFER_SIZE, This is the default size of the read buffer, in bytes.
+     */
+    static public final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * DEFAULT_MAPPING_THRESHOLD, This is the default file size, in bytes, at which files are
+     * memory mapped instead of read into a buffer.
+     */
+    static public final long DEFAULT_MAPPING_THRESHOLD = 16L * 1024 * 1024;
+
+    /**
+     * DEFAULT_ROOT_TEXT, This is the default text of the root entry.
+     */
+    static public final String DEFAULT_ROOT_TEXT = "Root";
+
+    /**
+     * INTERRUPT_CHECK_LINES, The thread interrupt status is checked once for this many lines. This
+     * must be a power of two.
+     */
+    static private final int INTERRUPT_CHECK_LINES = 65536;
+
+    /**
+     * MAPPED_REGION_SIZE, This is the largest part of a file that is memory mapped at one time.
+     */
+    static private final long MAPPED_REGION_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * NO_CHECKED_COLUMN, This checked column separator value means that lines have no check state
+     * column.
+     */
+    static private final int NO_CHECKED_COLUMN = -1;
+
+    /**
+     * Format, This enumeration lists the supported text formats.
+     */
+    public enum Format {
+
+        /**
+         * INDENTED, Each line holds the text of one entry, and the indentation gives its depth.
+         */
+        INDENTED,
+        /**
+         * PATHS, Each line holds the separated path of one entry.
+         */
+        PATHS
+    }
+
+    /**
+     * attributePool, This holds the pool that the entry texts are shared through, or null.
+     */
+    private AttributePool attributePool = null;
+
+    /**
+     * bufferSize, This holds the size of the read buffer, in bytes.
+     */
+    private int bufferSize = DEFAULT_BUFFER_SIZE;
+
+    /**
+     * charset, This holds the charset of the imported text.
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * checkedColumnSeparator, This holds the character that separates the check state column from
+     * the rest of each line, or NO_CHECKED_COLUMN.
+     */
+    private int checkedColumnSeparator = NO_CHECKED_COLUMN;
+
+    /**
+     * compactModel, This indicates if the import creates a CompactCheckModel instead of a tree of
+     * CheckEntry objects.
+     */
+    private boolean compactModel = false;
+
+    /**
+     * format, This holds the text format of the imported text.
+     */
+    private final Format format;
+
+    /**
+     * mappingThreshold, This holds the file size, in bytes, at which files are memory mapped.
+     */
+    private long mappingThreshold = DEFAULT_MAPPING_THRESHOLD;
+
+    /**
+     * pathSeparator, This holds the character that separates the components of each path in the
+     * paths format.
+     */
+    private char pathSeparator = '/';
+
+    /**
+     * rootText, This holds the text of the root entry of each imported model.
+     */
+    private String rootText = DEFAULT_ROOT_TEXT;
+
+    /**
+     * Constructor, with format.
+     *
+     * @exception IllegalArgumentException if the format is null.
+     */
+    public TreeImporter(Format format) {
+        if (format == null) {
+            throw new IllegalArgumentException("TreeImporter.TreeImporter(), "
+                    + "The format cannot be null.");
+        }
+        this.format = format;
+    }
+
+    /**
+     * importChannel, This reads the supplied channel until the end of its input, and returns a new
+     * model that holds the imported entries. The channel is not closed. The channel should be a
+     * blocking channel. Use Channels.newChannel() to import from an InputStream.
+     */
+    public CheckModel importChannel(ReadableByteChannel channel) throws IOException {
+        ImportRun run = new ImportRun();
+        ByteBuffer bytes = ByteBuffer.allocate(bufferSize);
+        while (channel.read(bytes) >= 0) {
+            bytes.flip();
+            run.zDecode(bytes, false);
+            bytes.compact();
+        }
+        bytes.flip();
+        run.zDecode(bytes, true);
+        return run.zFinish();
+    }
+
+    /**
+     * importFile, This reads the supplied file, and returns a new model that holds the imported
+     * entries. Files that are at least as large as the mapping threshold are memory mapped.
+     */
+    public CheckModel importFile(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size < mappingThreshold) {
+                return importChannel(channel);
+            }
+            ImportRun run = new ImportRun();
+            long position = 0;
+            while (position < size) {
+                long regionSize = Math.min(MAPPED_REGION_SIZE, size - position);
+                MappedByteBuffer bytes
+                        = channel.map(FileChannel.MapMode.READ_ONLY, position, regionSize);
+                boolean endOfInput = (position + regionSize == size);
+                run.zDecode(bytes, endOfInput);
+                // A character that is split by the end of a region is decoded from the next region.
+                position += (endOfInput) ? regionSize : bytes.position();
+            }
+            return run.zFinish();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * withAttributePool, The withX() functions can be chained together to set import settings.
+     * The entry texts are shared through the supplied pool, and the pool becomes the attribute
+     * pool of the imported model. The pool may be null.
+     */
+    public TreeImporter withAttributePool(AttributePool pool) {
+        this.attributePool = pool;
+        return this;
+    }
+
+    /**
+     * withBufferSize, The withX() functions can be chained together to set import settings. This
+     * sets the size of the read buffer in bytes. Values below 1024 are treated as 1024.
+     */
+    public TreeImporter withBufferSize(int bufferSize) {
+        this.bufferSize = Math.max(1024, bufferSize);
+        return this;
+    }
+
+    /**
+     * withCharset, The withX() functions can be chained together to set import settings. The
+     * default charset is UTF-8.
+     *
+     * @exception IllegalArgumentException if the charset is null.
+     */
+    public TreeImporter withCharset(Charset charset) {
+        if (charset == null) {
+            throw new IllegalArgumentException("TreeImporter.withCharset(), "
+                    + "The charset cannot be null.");
+        }
+        this.charset = charset;
+        return this;
+    }
+
+    /**
+     * withCheckedColumn, The withX() functions can be chained together to set import settings.
+     * Each line may end with the supplied separator, followed by the check state of the entry.
+     * The last separator in each line starts the column, so entry texts may contain the separator.
+     * In the indented format, a separator is only treated as the start of the column if entry text
+     * comes before it, so a tab separator can be used with tab indentation. (A line without the
+     * column is not split at one of its indentation tabs.)
+     */
+    public TreeImporter withCheckedColumn(char separator) {
+        this.checkedColumnSeparator = separator;
+        return this;
+    }
+
+    /**
+     * withCompactModel, The withX() functions can be chained together to set import settings. If
+     * this is true, the import creates a CompactCheckModel, which uses much less memory for large
+     * trees. See also, CompactCheckModel.
+     */
+    public TreeImporter withCompactModel(boolean compactModel) {
+        this.compactModel = compactModel;
+        return this;
+    }
+
+    /**
+     * withMappingThreshold, The withX() functions can be chained together to set import settings.
+     * Files that are at least as large as the supplied size in bytes are memory mapped. Use
+     * Long.MAX_VALUE to never map files, or zero to always map files.
+     */
+    public TreeImporter withMappingThreshold(long mappingThreshold) {
+        this.mappingThreshold = mappingThreshold;
+        return this;
+    }
+
+    /**
+     * withPathSeparator, The withX() functions can be chained together to set import settings.
+     * This sets the path component separator of the paths format. The default is '/'.
+     */
+    public TreeImporter withPathSeparator(char separator) {
+        this.pathSeparator = separator;
+        return this;
+    }
+
+    /**
+     * withRootText, The withX() functions can be chained together to set import settings. This
+     * sets the text of the root entry of each imported model.
+     */
+    public TreeImporter withRootText(String rootText) {
+        this.rootText = rootText;
+        return this;
+    }
+
+    /**
+     * ImportRun, This holds the state of a single import. Each imported entry is identified by an
+     * import id, which is the position of the entry in the import order, and the root entry has
+     * the id zero. In the compact mode, the import ids are the ids of the CompactCheckModel.
+     * Otherwise, the entries are held in an array by import id until the import is finished.
+     */
+    private class ImportRun {
+
+        /**
+         * chars, This receives the decoded characters.
+         */
+        final CharBuffer chars = CharBuffer.allocate(bufferSize);
+
+        /**
+         * childTableIds, This holds the import id of the child in each slot of the child table.
+         */
+        int[] childTableIds = new int[1024];
+
+        /**
+         * childTableParentIds, This holds the import id of the parent in each slot of the child
+         * table. Together with the child table texts, this forms an open addressing hash table
+         * from each parent id and child text to the child id. This is used in the paths format.
+         */
+        int[] childTableParentIds = new int[1024];
+
+        /**
+         * childTableSize, This holds the number of used slots in the child table.
+         */
+        int childTableSize = 0;
+
+        /**
+         * childTableTexts, This holds the child text in each slot of the child table, or null for
+         * an empty slot. These are the same String instances as the entry texts.
+         */
+        String[] childTableTexts = new String[1024];
+
+        /**
+         * compact, This holds the model that the entries are added to in the compact mode, or null.
+         */
+        final CompactCheckModel compact;
+
+        /**
+         * decoder, This decodes the imported bytes.
+         */
+        final CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        /**
+         * entries, This holds the entry of each import id, when the compact mode is not used.
+         */
+        CheckEntry[] entries;
+
+        /**
+         * entryCount, This holds the number of import ids that have been assigned.
+         */
+        int entryCount = 1;
+
+        /**
+         * line, This holds the characters of the current line.
+         */
+        char[] line = new char[256];
+
+        /**
+         * lineCount, This holds the number of lines that have been read.
+         */
+        int lineCount = 0;
+
+        /**
+         * lineLength, This holds the number of characters in the current line.
+         */
+        int lineLength = 0;
+
+        /**
+         * stackDepth, This holds the number of valid levels in the stack arrays.
+         */
+        int stackDepth = 0;
+
+        /**
+         * stackIds, This holds the import id of the entry at each level of the current path.
+         */
+        int[] stackIds = new int[16];
+
+        /**
+         * stackIndents, This holds the indentation of each level, in the indented format.
+         */
+        int[] stackIndents = new int[16];
+
+        /**
+         * stackTexts, This holds the entry text of each level, in the paths format.
+         */
+        String[] stackTexts = new String[16];
+
+        /**
+         * Constructor.
+         */
+        ImportRun() {
+            if (compactModel) {
+                compact = new CompactCheckModel(rootText);
+                compact.setAttributePool(attributePool);
+            } else {
+                compact = null;
+                entries = new CheckEntry[1024];
+                entries[0] = new CheckEntry(zPoolText(rootText));
+            }
+        }
+
+        /**
+         * zAddEntry, This adds a new entry as the last child of the supplied parent, and returns
+         * the import id of the new entry.
+         */
+        int zAddEntry(int parentId, String text, boolean checked) {
+            if (compact != null) {
+                return compact.addEntry(parentId, text, checked);
+            }
+            if (entryCount == entries.length) {
+                entries = Arrays.copyOf(entries, entryCount * 2);
+            }
+            CheckEntry entry = new CheckEntry(text);
+            entry.checked = checked;
+            entries[parentId].zAppendNewChild(entry);
+            entries[entryCount] = entry;
+            return entryCount++;
+        }
+
+        /**
+         * zAppend, This adds the supplied characters to the current line.
+         */
+        void zAppend(char[] source, int start, int length) {
+            if (lineLength + length > line.length) {
+                line = Arrays.copyOf(line, Math.max(lineLength + length, line.length * 2));
+            }
+            System.arraycopy(source, start, line, lineLength, length);
+            lineLength += length;
+        }
+
+        /**
+         * zDecode, This decodes the remaining bytes of the supplied buffer, and processes every
+         * complete line. Bytes at the end of the buffer that do not form a complete character are
+         * left in the buffer, unless this is the end of the input.
+         */
+        void zDecode(ByteBuffer bytes, boolean endOfInput) throws IOException {
+            CoderResult result;
+            do {
+                result = decoder.decode(bytes, chars, endOfInput);
+                zScanChars();
+            } while (result.isOverflow());
+            if (endOfInput) {
+                while (decoder.flush(chars).isOverflow()) {
+                    zScanChars();
+                }
+                zScanChars();
+                if (lineLength > 0) {
+                    zEndLine();
+                }
+            }
+        }
+
+        /**
+         * zEndLine, This processes the current line, and then clears it.
+         */
+        void zEndLine() throws IOException {
+            if ((++lineCount & (INTERRUPT_CHECK_LINES - 1)) == 0
+                    && Thread.currentThread().isInterrupted()) {
+                throw new InterruptedIOException("TreeImporter.ImportRun.zEndLine(), "
+                        + "The import was interrupted at line " + lineCount + ".");
+            }
+            int length = lineLength;
+            lineLength = 0;
+            boolean checked = false;
+            boolean hasColumn = false;
+            if (checkedColumnSeparator != NO_CHECKED_COLUMN) {
+                // In the indented format, the separator must follow some entry text, because the
+                // separator may also be an indentation character.
+                int textStart = 0;
+                if (format == Format.INDENTED) {
+                    while ((textStart < length)
+                            && ((line[textStart] == ' ') || (line[textStart] == '\t'))) {
+                        ++textStart;
+                    }
+                }
+                int columnStart = length - 1;
+                while ((columnStart >= textStart) && (line[columnStart] != checkedColumnSeparator)) {
+                    --columnStart;
+                }
+                if ((columnStart >= 0)
+                        && ((format != Format.INDENTED) || (columnStart > textStart))) {
+                    hasColumn = true;
+                    checked = zIsCheckedValue(columnStart + 1, length);
+                    length = columnStart;
+                }
+            }
+            while ((length > 0) && zIsTrailingSpace(line[length - 1])) {
+                --length;
+            }
+            if (length == 0) {
+                return;
+            }
+            if (format == Format.PATHS) {
+                zImportPath(length, checked, hasColumn);
+            } else {
+                zImportIndented(length, checked);
+            }
+        }
+
+        /**
+         * zEnsureLevel, This enlarges the stack arrays if needed, so that they hold the supplied
+         * level.
+         */
+        void zEnsureLevel(int level) {
+            if (level < stackIds.length) {
+                return;
+            }
+            int capacity = stackIds.length * 2;
+            stackIds = Arrays.copyOf(stackIds, capacity);
+            stackIndents = Arrays.copyOf(stackIndents, capacity);
+            stackTexts = Arrays.copyOf(stackTexts, capacity);
+        }
+
+        /**
+         * zFindChild, This returns the import id of the child of the supplied parent whose text is
+         * equal to the supplied part of the current line, or the negative slot number minus one of
+         * the empty child table slot where that child should be added.
+         */
+        int zFindChild(int parentId, int start, int end) {
+            int hash = parentId * 0x9e3779b9;
+            for (int i = start; i < end; ++i) {
+                hash = (31 * hash) + line[i];
+            }
+            int mask = childTableTexts.length - 1;
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (childTableTexts[slot] != null) {
+                if ((childTableParentIds[slot] == parentId)
+                        && zMatchesText(childTableTexts[slot], start, end)) {
+                    return childTableIds[slot];
+                }
+                slot = (slot + 1) & mask;
+            }
+            return -slot - 1;
+        }
+
+        /**
+         * zFinish, This creates the model that holds the imported entries.
+         */
+        CheckModel zFinish() {
+            childTableIds = null;
+            childTableParentIds = null;
+            childTableTexts = null;
+            if (compact != null) {
+                compact.trimToSize();
+                return compact;
+            }
+            CheckModel model = new CheckModel(entries[0]);
+            // The texts were already shared while they were imported, so the entries do not need
+            // to be visited again by setAttributePool().
+            model.attributePool = attributePool;
+            entries = null;
+            return model;
+        }
+
+        /**
+         * zGetText, This returns the text of the entry with the supplied import id.
+         */
+        String zGetText(int id) {
+            return (compact != null) ? compact.getText(id) : entries[id].text;
+        }
+
+        /**
+         * zGrowChildTable, This doubles the size of the child table.
+         */
+        void zGrowChildTable() {
+            int[] oldIds = childTableIds;
+            int[] oldParentIds = childTableParentIds;
+            String[] oldTexts = childTableTexts;
+            int capacity = oldTexts.length * 2;
+            childTableIds = new int[capacity];
+            childTableParentIds = new int[capacity];
+            childTableTexts = new String[capacity];
+            int mask = capacity - 1;
+            for (int i = 0; i < oldTexts.length; ++i) {
+                String text = oldTexts[i];
+                if (text == null) {
+                    continue;
+                }
+                int hash = oldParentIds[i] * 0x9e3779b9;
+                for (int j = 0; j < text.length(); ++j) {
+                    hash = (31 * hash) + text.charAt(j);
+                }
+                int slot = (hash ^ (hash >>> 16)) & mask;
+                while (childTableTexts[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                childTableIds[slot] = oldIds[i];
+                childTableParentIds[slot] = oldParentIds[i];
+                childTableTexts[slot] = text;
+            }
+        }
+
+        /**
+         * zImportIndented, This imports the current line in the indented format.
+         */
+        void zImportIndented(int length, boolean checked) {
+            int indent = 0;
+            while ((line[indent] == ' ') || (line[indent] == '\t')) {
+                ++indent;
+            }
+            while ((stackDepth > 0) && (stackIndents[stackDepth - 1] >= indent)) {
+                --stackDepth;
+            }
+            zEnsureLevel(stackDepth);
+            int parentId = (stackDepth == 0) ? 0 : stackIds[stackDepth - 1];
+            String text = zPoolText(new String(line, indent, length - indent));
+            stackIds[stackDepth] = zAddEntry(parentId, text, checked);
+            stackIndents[stackDepth] = indent;
+            ++stackDepth;
+        }
+
+        /**
+         * zImportPath, This imports the current line in the paths format. The levels of the
+         * previous path that match the start of this path are reused. The other levels are found
+         * in the child table, or added as new entries.
+         */
+        void zImportPath(int length, boolean checked, boolean hasColumn) {
+            while ((length > 0) && (line[length - 1] == pathSeparator)) {
+                --length;
+            }
+            int level = 0;
+            boolean matching = true;
+            int start = 0;
+            while (start < length) {
+                int end = start;
+                while ((end < length) && (line[end] != pathSeparator)) {
+                    ++end;
+                }
+                if (end == start) {
+                    ++start;
+                    continue;
+                }
+                boolean lastComponent = (end == length);
+                matching = matching && (level < stackDepth)
+                        && zMatchesText(stackTexts[level], start, end);
+                if (!matching) {
+                    zEnsureLevel(level);
+                    int parentId = (level == 0) ? 0 : stackIds[level - 1];
+                    int childId = zFindChild(parentId, start, end);
+                    if (childId < 0) {
+                        int slot = -childId - 1;
+                        String text = zPoolText(new String(line, start, end - start));
+                        childId = zAddEntry(parentId, text, lastComponent && checked);
+                        childTableIds[slot] = childId;
+                        childTableParentIds[slot] = parentId;
+                        childTableTexts[slot] = text;
+                        if (++childTableSize * 2 > childTableTexts.length) {
+                            zGrowChildTable();
+                        }
+                    } else if (lastComponent && hasColumn) {
+                        zSetChecked(childId, checked);
+                    }
+                    stackIds[level] = childId;
+                    stackTexts[level] = zGetText(childId);
+                } else if (lastComponent && hasColumn) {
+                    zSetChecked(stackIds[level], checked);
+                }
+                ++level;
+                start = end + 1;
+            }
+            stackDepth = level;
+        }
+
+        /**
+         * zIsCheckedValue, This returns true if the supplied part of the current line holds one
+         * of the check state values that mean checked, ignoring case and surrounding spaces.
+         */
+        boolean zIsCheckedValue(int start, int end) {
+            while ((start < end) && Character.isWhitespace(line[start])) {
+                ++start;
+            }
+            while ((end > start) && Character.isWhitespace(line[end - 1])) {
+                --end;
+            }
+            for (String checkedValue : CHECKED_VALUES) {
+                if (checkedValue.length() != end - start) {
+                    continue;
+                }
+                int i = start;
+                while ((i < end)
+                        && (Character.toLowerCase(line[i]) == checkedValue.charAt(i - start))) {
+                    ++i;
+                }
+                if (i == end) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * zIsTrailingSpace, This returns true if the supplied character is removed from the end of
+         * each line.
+         */
+        boolean zIsTrailingSpace(char character) {
+            return (character == ' ') || (character == '\t') || (character == '\r');
+        }
+
+        /**
+         * zMatchesText, This returns true if the supplied part of the current line is equal to the
+         * supplied text.
+         */
+        boolean zMatchesText(String text, int start, int end) {
+            if (text.length() != end - start) {
+                return false;
+            }
+            for (int i = start; i < end; ++i) {
+                if (line[i] != text.charAt(i - start)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * zPoolText, This returns the shared instance of the supplied text, if there is an
+         * attribute pool and the compact mode is not used. The compact model shares its texts
+         * through the pool itself.
+         */
+        String zPoolText(String text) {
+            return ((attributePool == null) || (compact != null))
+                    ? text : attributePool.internText(text);
+        }
+
+        /**
+         * zScanChars, This processes the decoded characters, and then clears the character
+         * buffer. Each complete line is processed, and the rest is kept in the current line.
+         */
+        void zScanChars() throws IOException {
+            chars.flip();
+            char[] array = chars.array();
+            int start = chars.arrayOffset() + chars.position();
+            int limit = chars.arrayOffset() + chars.limit();
+            while (start < limit) {
+                int end = start;
+                while ((end < limit) && (array[end] != '\n')) {
+                    ++end;
+                }
+                zAppend(array, start, end - start);
+                if (end < limit) {
+                    zEndLine();
+                }
+                start = end + 1;
+            }
+            chars.clear();
+        }
+
+        /**
+         * zSetChecked, This sets the check state of the entry with the supplied import id.
+         */
+        void zSetChecked(int id, boolean checked) {
+            if (compact != null) {
+                compact.setChecked(id, checked);
+            } else {
+                entries[id].setChecked(checked);
+            }
+        }
+    }
+}
@@ -1,15 +1,13 @@
 package com.github.jcheckboxtree.treesupport;
 
-import com.github.jcheckboxtree.components.JCheckboxTree;
-import javax.swing.tree.TreePath;
 import java.util.Iterator;
 import java.util.NoSuchElementException;
 
 /**
  * TreeIterator, This is an iterator that can be used to loop through the CheckEntry instances in a
- * JCheckboxTree. The iterator has settings for including or excluding: the root entry, checked or
- * unchecked entries, and expanded or unexpanded entries. The settings can be controlled using the
- * TreeIterator constructor parameters.
+ * JCheckboxTree, a CheckModel, or a CheckEntry subtree. The iterator has settings for including or
+ * excluding: the root entry, checked or unchecked entries, and expanded or unexpanded entries. The
+ * settings can be controlled using the TreeIterator constructor parameters.
  *
  * If includeRoot is not supplied, the default behavior is to include the root entry only if the
  * root entry is set to be visible in the tree. (If tree.isRootVisible() == true).
@@ -24,6 +22,23 @@ import java.util.NoSuchElementException;
  * through the whole tree. Any constructor that takes a startingEntry will attempt to loop through
  * the subtree that begins with the startingEntry. The startingEntry will be included in the
  * iteration unless it does not match one of the other specified parameters.
+ *
+ * Headless iteration: The constructors that take a CheckModel or a CheckEntry instead of a tree do
+ * not need any display or swing component. These constructors do not support an ExpandedSpecifier,
+ * because the expanded state belongs to the tree component. The constructors that take a tree
+ * accept any CheckTreeView, such as a JCheckboxTree.
+ *
+ * Pruning: Any constructor that takes a pruneSubtrees parameter can enable the pruning mode. In the
+ * pruning mode, the iterator skips whole subtrees that can not contain any matching entries, so the
+ * cost of an iteration is proportional to the number of matching entries (times the tree depth),
+ * instead of the size of the tree. With CheckedOnly, any subtree without checked entries is
+ * skipped. With UncheckedOnly, any subtree without unchecked entries is skipped. With ExpandedOnly,
+ * the descendants of any collapsed entry are skipped. (CollapsedOnly can not be pruned, because
+ * every leaf entry is collapsed.) The checked pruning rules use the subtree summaries of the tree
+ * model. The summaries add work to every later change of the model, so they are not enabled by the
+ * iterator. They must be enabled by the caller before a pruning iterator with a CheckedSpecifier
+ * is created, otherwise an IllegalStateException is thrown. See also,
+ * CheckModel.setSubtreeSummariesEnabled().
  */
 public class TreeIterator implements Iterator<CheckEntry> {
 
@@ -44,9 +59,10 @@ public class TreeIterator implements Iterator<CheckEntry> {
     }
 
     /**
-     * tree, This holds the tree that is being iterated.
+     * tree, This holds the tree that is being iterated, or null if the iteration is not using a
+     * tree. The tree is only needed when an ExpandedSpecifier is used.
      */
-    private JCheckboxTree tree;
+    private CheckTreeView tree;
 
     /**
      * root, This holds the root entry of the tree that is being iterated.
@@ -73,6 +89,18 @@ public class TreeIterator implements Iterator<CheckEntry> {
      */
     private ExpandedSpecifier expandedSpecifier = ExpandedSpecifier.DoesNotMatter;
 
+    /**
+     * pruneSubtrees, If this is true, then subtrees that can not contain any matching entries will
+     * be skipped without visiting their entries.
+     */
+    private boolean pruneSubtrees = false;
+
+    /**
+     * startingEntry, This holds the first entry of the subtree that is being iterated. The
+     * iteration will not leave the subtree that begins with this entry.
+     */
+    private CheckEntry startingEntry;
+
     /**
      * previousEntry, This holds the previous entry during the iteration process, or null if the
      * iteration process has not begun.
@@ -97,7 +125,7 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * If the root entry of the supplied tree is null, then the iterator will still function, but it
      * will not return any elements.
      */
-    public TreeIterator(JCheckboxTree tree) {
+    public TreeIterator(CheckTreeView tree) {
         this(tree, tree.getRoot(), tree.isRootVisible(), CheckedSpecifier.DoesNotMatter,
                 ExpandedSpecifier.DoesNotMatter);
     }
@@ -109,7 +137,7 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * If the root entry of the supplied tree is null, then the iterator will still function, but it
      * will not return any elements.
      */
-    public TreeIterator(JCheckboxTree tree, boolean includeRoot) {
+    public TreeIterator(CheckTreeView tree, boolean includeRoot) {
         this(tree, tree.getRoot(), includeRoot, CheckedSpecifier.DoesNotMatter,
                 ExpandedSpecifier.DoesNotMatter);
     }
@@ -121,11 +149,27 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * If the root entry of the supplied tree is null, then the iterator will still function, but it
      * will not return any elements.
      */
-    public TreeIterator(JCheckboxTree tree, boolean includeRoot,
+    public TreeIterator(CheckTreeView tree, boolean includeRoot,
             CheckedSpecifier checkedSpecifier, ExpandedSpecifier expandedSpecifier) {
         this(tree, tree.getRoot(), includeRoot, checkedSpecifier, expandedSpecifier);
     }
 
+    /**
+     * Constructor, for the whole tree with all options and pruning. This will iterate through the
+     * entire tree. This will skip over any entries that do not meet all of the specified parameters.
+     * If pruneSubtrees is true, then any subtrees that can not contain matching entries will be
+     * skipped without being visited.
+     *
+     * If the root entry of the supplied tree is null, then the iterator will still function, but it
+     * will not return any elements.
+     */
+    public TreeIterator(CheckTreeView tree, boolean includeRoot,
+            CheckedSpecifier checkedSpecifier, ExpandedSpecifier expandedSpecifier,
+            boolean pruneSubtrees) {
+        this(tree, tree.getRoot(), includeRoot, checkedSpecifier, expandedSpecifier,
+                pruneSubtrees);
+    }
+
     /**
      * Constructor, with a starting entry and default root behavior. This will iterate through the
      * starting entry and any children, with the possible exception of the root entry.
@@ -136,7 +180,7 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * If the startingEntry is null, then the iterator will still function, but it will not return
      * any elements.
      */
-    public TreeIterator(JCheckboxTree tree, CheckEntry startingEntry) {
+    public TreeIterator(CheckTreeView tree, CheckEntry startingEntry) {
         this(tree, startingEntry, tree.isRootVisible(), CheckedSpecifier.DoesNotMatter,
                 ExpandedSpecifier.DoesNotMatter);
     }
@@ -148,7 +192,7 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * If the startingEntry is null, then the iterator will still function, but it will not return
      * any elements.
      */
-    public TreeIterator(JCheckboxTree tree, CheckEntry startingEntry, boolean includeRoot) {
+    public TreeIterator(CheckTreeView tree, CheckEntry startingEntry, boolean includeRoot) {
         this(tree, startingEntry, includeRoot, CheckedSpecifier.DoesNotMatter,
                 ExpandedSpecifier.DoesNotMatter);
     }
@@ -158,13 +202,120 @@ public class TreeIterator implements Iterator<CheckEntry> {
      * entry and any children. This will skip over any entries that do not meet all of the specified
      * parameters.
      */
-    public TreeIterator(JCheckboxTree tree, CheckEntry startingEntry, boolean includeRoot,
+    public TreeIterator(CheckTreeView tree, CheckEntry startingEntry, boolean includeRoot,
             CheckedSpecifier checkedSpecifier, ExpandedSpecifier expandedSpecifier) {
+        this(tree, startingEntry, includeRoot, checkedSpecifier, expandedSpecifier, false);
+    }
+
+    /**
+     * Constructor, with starting entry, all options and pruning. This will iterate through the
+     * starting entry and any children. This will skip over any entries that do not meet all of the
+     * specified parameters. If pruneSubtrees is true, then any subtrees that can not contain
+     * matching entries will be skipped without being visited.
+     *
+     * When pruning is requested with a CheckedSpecifier, the subtree summaries of the tree model
+     * must be enabled. The startingEntry should be an entry in the tree model.
+     */
+    public TreeIterator(CheckTreeView tree, CheckEntry startingEntry, boolean includeRoot,
+            CheckedSpecifier checkedSpecifier, ExpandedSpecifier expandedSpecifier,
+            boolean pruneSubtrees) {
+        this(tree, tree.getModelFull(), tree.getRoot(), startingEntry, includeRoot,
+                checkedSpecifier, expandedSpecifier, pruneSubtrees);
+    }
+
+    /**
+     * Constructor, for a whole model. This will iterate through every entry in the supplied model,
+     * including the root entry. This does not require a tree component.
+     *
+     * If the root entry of the supplied model is null, then the iterator will still function, but
+     * it will not return any elements.
+     */
+    public TreeIterator(CheckModel model) {
+        this(null, model, model.getRoot(), model.getRoot(), true, CheckedSpecifier.DoesNotMatter,
+                ExpandedSpecifier.DoesNotMatter, false);
+    }
+
+    /**
+     * Constructor, for a whole model with options. This will iterate through the entire model. This
+     * will skip over any entries that do not meet all of the specified parameters. If
+     * pruneSubtrees is true, then any subtrees that can not contain matching entries will be
+     * skipped without being visited. This does not require a tree component.
+     *
+     * If the root entry of the supplied model is null, then the iterator will still function, but
+     * it will not return any elements.
+     */
+    public TreeIterator(CheckModel model, boolean includeRoot,
+            CheckedSpecifier checkedSpecifier, boolean pruneSubtrees) {
+        this(null, model, model.getRoot(), model.getRoot(), includeRoot, checkedSpecifier,
+                ExpandedSpecifier.DoesNotMatter, pruneSubtrees);
+    }
+
+    /**
+     * Constructor, for a model with a starting entry and options. This will iterate through the
+     * starting entry and any children. This will skip over any entries that do not meet all of the
+     * specified parameters. If pruneSubtrees is true, then any subtrees that can not contain
+     * matching entries will be skipped without being visited. This does not require a tree
+     * component.
+     *
+     * If the startingEntry is null, then the iterator will still function, but it will not return
+     * any elements.
+     */
+    public TreeIterator(CheckModel model, CheckEntry startingEntry, boolean includeRoot,
+            CheckedSpecifier checkedSpecifier, boolean pruneSubtrees) {
+        this(null, model, model.getRoot(), startingEntry, includeRoot, checkedSpecifier,
+                ExpandedSpecifier.DoesNotMatter, pruneSubtrees);
+    }
+
+    /**
+     * Constructor, for an entry subtree. This will iterate through the starting entry and any
+     * children. This does not require a tree component or a model.
+     *
+     * If the startingEntry is null, then the iterator will still function, but it will not return
+     * any elements.
+     */
+    public TreeIterator(CheckEntry startingEntry) {
+        this(startingEntry, CheckedSpecifier.DoesNotMatter);
+    }
+
+    /**
+     * Constructor, for an entry subtree with a CheckedSpecifier. This will iterate through the
+     * starting entry and any children. This will skip over any entries that do not match the
+     * specified checked state. This does not require a tree component or a model.
+     *
+     * If the startingEntry is null, then the iterator will still function, but it will not return
+     * any elements.
+     */
+    public TreeIterator(CheckEntry startingEntry, CheckedSpecifier checkedSpecifier) {
+        this(null, null, null, startingEntry, true, checkedSpecifier,
+                ExpandedSpecifier.DoesNotMatter, false);
+    }
+
+    /**
+     * Constructor, with every setting. This is used by all of the public constructors. The tree
+     * and the model may be null, when the supplied settings do not require them. The model is only
+     * used to verify that the subtree summaries are enabled for the pruning mode.
+     *
+     * @exception IllegalStateException if pruning is requested with a CheckedSpecifier, and the
+     * subtree summaries of the model are not enabled.
+     */
+    private TreeIterator(CheckTreeView tree, CheckModel model, CheckEntry root,
+            CheckEntry startingEntry, boolean includeRoot, CheckedSpecifier checkedSpecifier,
+            ExpandedSpecifier expandedSpecifier, boolean pruneSubtrees) {
         this.tree = tree;
-        this.root = tree.getRoot();
+        this.root = root;
+        this.startingEntry = startingEntry;
         this.includeRoot = includeRoot;
         this.checkedSpecifier = checkedSpecifier;
         this.expandedSpecifier = expandedSpecifier;
+        this.pruneSubtrees = pruneSubtrees;
+        if (pruneSubtrees && (checkedSpecifier != CheckedSpecifier.DoesNotMatter)) {
+            if ((model != null) && !model.isSubtreeSummariesEnabled()) {
+                throw new IllegalStateException("TreeIterator, Pruning by check state requires "
+                        + "the subtree summaries of the model. Call "
+                        + "CheckModel.setSubtreeSummariesEnabled(true) before creating the "
+                        + "iterator.");
+            }
+        }
         futureEntry = getFutureEntryOrNull(true, startingEntry, null);
     }
 
@@ -236,9 +387,9 @@ public class TreeIterator implements Iterator<CheckEntry> {
         while (true) {
             // Get the candidate entry.
             // We use the firstEntry during the first loop of the first call.
-            // Otherwise, we use the next entry returned by the "preorder traversal" methodology.
+            // Otherwise, we use the next entry in a "preorder traversal" of the starting subtree.
             CheckEntry candidate = (firstLoop && firstCall)
-                    ? firstCandidateOrNull : previous.getNextEntry();
+                    ? firstCandidateOrNull : getNextCandidateOrNull(previous);
             // Set the firstLoop indicator to false. 
             // Note, we will not need the firstloop variable below this line.
             firstLoop = false;
@@ -257,30 +408,32 @@ public class TreeIterator implements Iterator<CheckEntry> {
             if (checkedSpecifier != CheckedSpecifier.DoesNotMatter) {
                 // Enforce: CheckedSpecifier.SelectedOnly.
                 if ((checkedSpecifier == CheckedSpecifier.CheckedOnly)
-                        && (candidate.checked == false)) {
+                        && (!candidate.isChecked())) {
                     previous = candidate;
                     continue;
                 }
                 // Enforce: CheckedSpecifier.NotSelectedOnly.
                 if ((checkedSpecifier == CheckedSpecifier.UncheckedOnly)
-                        && (candidate.checked == true)) {
+                        && (candidate.isChecked())) {
                     previous = candidate;
                     continue;
                 }
             }
             // If indicated, we can skip the expandedSpecifier.
             if (expandedSpecifier != ExpandedSpecifier.DoesNotMatter) {
-                TreePath path = new TreePath(candidate.getPath());
+                // The expanded state is read from the entry itself, which does not allocate a
+                // tree path for each candidate.
+                boolean expanded = tree.isEntryExpanded(candidate);
                 // Enforce: ExpandedSpecifier.ExpandedOnly.
                 if (expandedSpecifier == ExpandedSpecifier.ExpandedOnly) {
-                    if (!(tree.isExpanded(path))) {
+                    if (!expanded) {
                         previous = candidate;
                         continue;
                     }
                 }
                 // Enforce: ExpandedSpecifier.CollapsedOnly.
                 if (expandedSpecifier == ExpandedSpecifier.CollapsedOnly) {
-                    if (tree.isExpanded(path)) {
+                    if (expanded) {
                         previous = candidate;
                         continue;
                     }
@@ -292,4 +445,47 @@ public class TreeIterator implements Iterator<CheckEntry> {
         // End: getFutureEntryOrNull().
     }
 
+    /**
+     * canSkipDescendants, This returns true if the pruning mode is enabled, and none of the
+     * descendants of the supplied entry can match the supplied parameters.
+     */
+    private boolean canSkipDescendants(CheckEntry entry) {
+        if (!pruneSubtrees) {
+            return false;
+        }
+        if ((checkedSpecifier == CheckedSpecifier.CheckedOnly)
+                && (entry.getTotalCheckedDescendantCount() == 0)) {
+            return true;
+        }
+        if ((checkedSpecifier == CheckedSpecifier.UncheckedOnly)
+                && (entry.getTotalCheckedDescendantCount() == entry.getTotalDescendantCount())) {
+            return true;
+        }
+        // The descendants of a collapsed entry are never expanded.
+        return (expandedSpecifier == ExpandedSpecifier.ExpandedOnly)
+                && (!tree.isEntryExpanded(entry));
+    }
+
+    /**
+     * getNextCandidateOrNull, This returns the entry that follows the supplied entry in a
+     * "preorder traversal" of the starting subtree, or null if the end of the starting subtree has
+     * been reached. In the pruning mode, the descendants of the supplied entry are skipped when
+     * they can not contain any matching entries.
+     */
+    private CheckEntry getNextCandidateOrNull(CheckEntry previous) {
+        if ((previous.getChildCount() > 0) && (!canSkipDescendants(previous))) {
+            return previous.getChildAt(0);
+        }
+        // Find the next sibling of the previous entry, or of the closest ancestor that has one,
+        // without leaving the starting subtree.
+        for (CheckEntry entry = previous; entry != startingEntry;
+                entry = (CheckEntry) entry.getParent()) {
+            CheckEntry sibling = entry.getNextSibling();
+            if (sibling != null) {
+                return sibling;
+            }
+        }
+        return null;
+    }
+
 }
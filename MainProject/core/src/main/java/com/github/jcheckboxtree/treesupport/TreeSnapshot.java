@@ -0,0 +1,863 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Color;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Function;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+
+/**
+ * TreeSnapshot, This class reads and writes a compact, versioned binary snapshot of the structure
+ * and the check states of a CheckModel. A snapshot can be used to save and restore a whole tree,
+ * or only the check states of a tree that was built again from the same data. Snapshots are
+ * written and read with loops instead of recursion, so deep trees can not overflow the stack.
+ *
+ * Format: All numbers are big endian. Numbers that are marked as varints are stored in seven bit
+ * groups, with the lowest group first, and with the high bit set on every byte except the last.
+ * The sections of the format, in order, are:
+ *
+ * Header: The magic number 0x4A435453 ("JCTS") and the format version, as four byte integers,
+ * and then the entry count, the string count, the color count and the icon count, as varints.
+ *
+ * String table: Each distinct text is stored once, as a varint byte length and the UTF-8 bytes.
+ * Strings are referred to by their position in the table plus one, so that zero means null.
+ *
+ * Color table: Each distinct color is stored once, as a four byte ARGB integer. Icon table: Each
+ * distinct icon is stored once, as the varint string index of its ImageIcon description. Colors
+ * and icons are also referred to by their position in their table plus one.
+ *
+ * Check bitset: One bit for each entry in preorder traversal order, packed eight entries to a
+ * byte with the first entry in the lowest bit. A set bit means that the entry is checked.
+ *
+ * Structure: One record for each entry in preorder traversal order, starting with the root
+ * entry. Each record holds the child count and the text index as varints, a flags byte (checkbox
+ * hidden, icon hidden, and which attributes follow), and then a varint table index for each
+ * attribute that follows: the foreground color, the background color, and the icon.
+ *
+ * User objects are not stored. Lazy loading placeholder entries are not stored either, so an entry
+ * whose children are being loaded is stored in the state it had before the loading started, and
+ * check states can be applied to the same tree whether or not a placeholder is displayed. Icons
+ * are only stored if they are ImageIcon instances with a description, and they are only restored
+ * if an icon resolver is supplied with withIconResolver().
+ *
+ * Reading: A snapshot file is memory mapped, and only the header and the positions of the table
+ * strings are read when the snapshot is opened. Strings are decoded the first time they are used,
+ * and each distinct string and color becomes one shared instance. The structure is then read in
+ * a single pass by toModel(), which builds CheckEntry objects, or by toCompactModel(), which fills
+ * the arrays of a CompactCheckModel, so that entry objects are only created for the entries that
+ * are displayed. The check states can also be read alone with isChecked(), or applied to an
+ * existing model with applyCheckStates().
+ *
+ * Usage example: TreeSnapshot.write(model, file); CheckModel restored = new
+ * TreeSnapshot(file).toCompactModel();
+ */
+public class TreeSnapshot {
+
+    /**
+     * FLAG_BACKGROUND, This record flag is set if the record holds a background color index.
+     */
+    static private final int FLAG_BACKGROUND = 8;
+
+    /**
+     * FLAG_BOX_HIDDEN, This record flag is set if the checkbox of the entry is hidden.
+     */
+    static private final int FLAG_BOX_HIDDEN = 1;
+
+    /**
+     * FLAG_FOREGROUND, This record flag is set if the record holds a foreground color index.
+     */
+    static private final int FLAG_FOREGROUND = 4;
+
+    /**
+     * FLAG_ICON, This record flag is set if the record holds an icon index.
+     */
+    static private final int FLAG_ICON = 16;
+
+    /**
+     * FLAG_ICON_HIDDEN, This record flag is set if the user icon of the entry is hidden.
+     */
+    static private final int FLAG_ICON_HIDDEN = 2;
+
+    /**
+     * FORMAT_VERSION, This is the format version that is written by this class. Snapshots with a
+     * higher version can not be read.
+     */
+    static public final int FORMAT_VERSION = 1;
+
+    /**
+     * MAGIC, This is the number at the start of every snapshot, "JCTS" in ASCII.
+     */
+    static private final int MAGIC = 0x4a435453;
+
+    /**
+     * bitsetOffset, This holds the buffer position of the check bitset.
+     */
+    private final int bitsetOffset;
+
+    /**
+     * buffer, This holds the whole snapshot.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * colorValues, This holds the ARGB value of each color table entry.
+     */
+    private final int[] colorValues;
+
+    /**
+     * colors, This holds the color of each color table entry, once it has been created.
+     */
+    private Color[] colors = null;
+
+    /**
+     * entryCount, This holds the number of entries in the snapshot.
+     */
+    private final int entryCount;
+
+    /**
+     * iconResolver, This holds the function that finds the icon for each icon description, or
+     * null if icons are not restored.
+     */
+    private Function<String, ? extends Icon> iconResolver = null;
+
+    /**
+     * iconTextIndexes, This holds the string index of the description of each icon table entry.
+     */
+    private final int[] iconTextIndexes;
+
+    /**
+     * icons, This holds the icon of each icon table entry, once it has been resolved.
+     */
+    private Icon[] icons = null;
+
+    /**
+     * stringBytes, This holds the bytes of the string that is being decoded.
+     */
+    private byte[] stringBytes = new byte[256];
+
+    /**
+     * stringLengths, This holds the UTF-8 byte length of each string table entry.
+     */
+    private final int[] stringLengths;
+
+    /**
+     * stringOffsets, This holds the buffer position of the bytes of each string table entry.
+     */
+    private final int[] stringOffsets;
+
+    /**
+     * strings, This holds each string table entry, once it has been decoded.
+     */
+    private final String[] strings;
+
+    /**
+     * structureOffset, This holds the buffer position of the first structure record.
+     */
+    private final int structureOffset;
+
+    /**
+     * Constructor, with file. This memory maps the supplied snapshot file, and reads its header.
+     *
+     * @exception IOException if the file can not be read, or is not a valid snapshot.
+     */
+    public TreeSnapshot(Path file) throws IOException {
+        this(zMapFile(file));
+    }
+
+    /**
+     * Constructor, with buffer. This reads the header of the snapshot that is held in the
+     * remaining bytes of the supplied buffer. The buffer must not be changed while this snapshot
+     * is used.
+     *
+     * @exception IOException if the buffer does not hold a valid snapshot.
+     */
+    public TreeSnapshot(ByteBuffer snapshotBytes) throws IOException {
+        buffer = snapshotBytes.slice();
+        try {
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("TreeSnapshot.TreeSnapshot(), "
+                        + "The data is not a tree snapshot.");
+            }
+            int version = buffer.getInt();
+            if ((version < 1) || (version > FORMAT_VERSION)) {
+                throw new IOException("TreeSnapshot.TreeSnapshot(), "
+                        + "The snapshot format version " + version + " is not supported.");
+            }
+            entryCount = zReadVarint(buffer);
+            int stringCount = zReadVarint(buffer);
+            int colorCount = zReadVarint(buffer);
+            int iconCount = zReadVarint(buffer);
+            // Every table item takes at least one byte, so a larger count can not be valid. This
+            // is checked before any table array is allocated.
+            int remaining = buffer.remaining();
+            if ((entryCount < 0) || (stringCount < 0) || (colorCount < 0) || (iconCount < 0)
+                    || (stringCount > remaining) || (colorCount > remaining)
+                    || (iconCount > remaining) || (((entryCount + 7L) / 8) > remaining)) {
+                throw new IOException("TreeSnapshot.TreeSnapshot(), "
+                        + "The snapshot header holds a count that is not valid.");
+            }
+            stringOffsets = new int[stringCount];
+            stringLengths = new int[stringCount];
+            strings = new String[stringCount];
+            for (int i = 0; i < stringCount; ++i) {
+                stringLengths[i] = zReadVarint(buffer);
+                stringOffsets[i] = buffer.position();
+                buffer.position(buffer.position() + stringLengths[i]);
+            }
+            colorValues = new int[colorCount];
+            for (int i = 0; i < colorCount; ++i) {
+                colorValues[i] = buffer.getInt();
+            }
+            iconTextIndexes = new int[iconCount];
+            for (int i = 0; i < iconCount; ++i) {
+                iconTextIndexes[i] = zReadVarint(buffer);
+            }
+            bitsetOffset = buffer.position();
+            structureOffset = bitsetOffset + ((entryCount + 7) / 8);
+            if ((entryCount < 1) || (structureOffset > buffer.limit())) {
+                throw new IOException("TreeSnapshot.TreeSnapshot(), The snapshot is truncated.");
+            }
+        } catch (BufferUnderflowException | IllegalArgumentException exception) {
+            throw new IOException("TreeSnapshot.TreeSnapshot(), The snapshot is not valid.",
+                    exception);
+        }
+    }
+
+    /**
+     * applyCheckStates, This sets the check state of every entry of the supplied model to the
+     * check state that is stored in this snapshot for the entry at the same preorder position.
+     * The model should have the same structure as the snapshot, for example because it was built
+     * again from the same data. The changes are sent as one update batch.
+     *
+     * @exception IllegalArgumentException if the model does not have the same number of entries as
+     * this snapshot.
+     */
+    public void applyCheckStates(CheckModel model) {
+        if (model instanceof CompactCheckModel) {
+            CompactCheckModel compactModel = (CompactCheckModel) model;
+            int[] ids = zGetPreorderIds(compactModel);
+            zCheckEntryCount(ids.length);
+            model.beginUpdate();
+            try {
+                for (int i = 0; i < ids.length; ++i) {
+                    compactModel.setChecked(ids[i], isChecked(i));
+                }
+            } finally {
+                model.endUpdate();
+            }
+            return;
+        }
+        ArrayList<CheckEntry> entries = zGetPreorderEntries(model.getRoot());
+        zCheckEntryCount(entries.size());
+        model.beginUpdate();
+        try {
+            for (int i = 0; i < entries.size(); ++i) {
+                entries.get(i).setChecked(isChecked(i));
+            }
+        } finally {
+            model.endUpdate();
+        }
+    }
+
+    /**
+     * getEntryCount, This returns the number of entries in this snapshot, including the root
+     * entry.
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * isChecked, This returns the stored check state of the entry at the supplied preorder
+     * position. The root entry has the position zero.
+     */
+    public boolean isChecked(int index) {
+        if ((index < 0) || (index >= entryCount)) {
+            throw new IllegalArgumentException("TreeSnapshot.isChecked(), "
+                    + "The index " + index + " is not valid for " + entryCount + " entries.");
+        }
+        return (buffer.get(bitsetOffset + (index >>> 3)) & (1 << (index & 7))) != 0;
+    }
+
+    /**
+     * toCompactModel, This returns a new CompactCheckModel that holds the entries of this
+     * snapshot. This is the fastest way to restore a large tree, because no entry objects are
+     * created until the entries are displayed.
+     *
+     * @exception IOException if the snapshot structure is not valid.
+     */
+    public CompactCheckModel toCompactModel() throws IOException {
+        ByteBuffer records = zGetRecords();
+        CompactCheckModel model = new CompactCheckModel(null, entryCount);
+        int[] parentIds = new int[16];
+        int[] remainingCounts = new int[16];
+        int depth = 0;
+        try {
+            for (int index = 0; index < entryCount; ++index) {
+                int childCount = zReadVarint(records);
+                String text = zGetString(zReadVarint(records));
+                int id;
+                if (index == 0) {
+                    id = 0;
+                    model.setText(0, text);
+                    model.setChecked(0, isChecked(0));
+                } else {
+                    if (depth == 0) {
+                        throw zInvalidStructure("toCompactModel");
+                    }
+                    id = model.addEntry(parentIds[depth - 1], text, isChecked(index));
+                    if (--remainingCounts[depth - 1] == 0) {
+                        --depth;
+                    }
+                }
+                int recordFlags = records.get();
+                if (recordFlags != 0) {
+                    zReadCompactAttributes(records, recordFlags, model, id);
+                }
+                if (childCount > 0) {
+                    if (depth == parentIds.length) {
+                        parentIds = Arrays.copyOf(parentIds, depth * 2);
+                        remainingCounts = Arrays.copyOf(remainingCounts, depth * 2);
+                    }
+                    parentIds[depth] = id;
+                    remainingCounts[depth] = childCount;
+                    ++depth;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException exception) {
+            throw zInvalidStructure("toCompactModel");
+        }
+        if (depth != 0) {
+            throw zInvalidStructure("toCompactModel");
+        }
+        return model;
+    }
+
+    /**
+     * toModel, This returns a new CheckModel that holds a new CheckEntry for each entry of this
+     * snapshot.
+     *
+     * @exception IOException if the snapshot structure is not valid.
+     */
+    public CheckModel toModel() throws IOException {
+        ByteBuffer records = zGetRecords();
+        CheckEntry root = null;
+        CheckEntry[] parents = new CheckEntry[16];
+        int[] remainingCounts = new int[16];
+        int depth = 0;
+        try {
+            for (int index = 0; index < entryCount; ++index) {
+                int childCount = zReadVarint(records);
+                CheckEntry entry = new CheckEntry(zGetString(zReadVarint(records)));
+                entry.checked = isChecked(index);
+                int recordFlags = records.get();
+                if (recordFlags != 0) {
+                    zReadEntryAttributes(records, recordFlags, entry);
+                }
+                if (index == 0) {
+                    root = entry;
+                } else {
+                    if (depth == 0) {
+                        throw zInvalidStructure("toModel");
+                    }
+                    parents[depth - 1].zAppendNewChild(entry);
+                    if (--remainingCounts[depth - 1] == 0) {
+                        --depth;
+                    }
+                }
+                if (childCount > 0) {
+                    if (depth == parents.length) {
+                        parents = Arrays.copyOf(parents, depth * 2);
+                        remainingCounts = Arrays.copyOf(remainingCounts, depth * 2);
+                    }
+                    parents[depth] = entry;
+                    remainingCounts[depth] = childCount;
+                    ++depth;
+                }
+            }
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+                | IllegalArgumentException exception) {
+            throw zInvalidStructure("toModel");
+        }
+        if (depth != 0) {
+            throw zInvalidStructure("toModel");
+        }
+        return new CheckModel(root);
+    }
+
+    /**
+     * withIconResolver, This sets the function that returns the icon for each stored icon
+     * description, and returns this snapshot. Each description is resolved once. If no resolver
+     * is set, or if the resolver returns null, the entries are restored without their icons. For
+     * icons that were loaded from a URL, AttributePool.icon() can be used with the URL of the
+     * description.
+     */
+    public TreeSnapshot withIconResolver(Function<String, ? extends Icon> iconResolver) {
+        this.iconResolver = iconResolver;
+        icons = null;
+        return this;
+    }
+
+    /**
+     * write, This writes a snapshot of the supplied model to the supplied file. The file is
+     * replaced if it exists.
+     *
+     * @exception IllegalArgumentException if the model is null, or has no root entry.
+     */
+    static public void write(CheckModel model, Path file) throws IOException {
+        // The model is checked before the file is opened, so an existing file is not truncated.
+        zCheckWritableModel(model);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+        try {
+            write(model, channel);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * write, This writes a snapshot of the supplied model to the supplied channel. The channel is
+     * not closed.
+     *
+     * @exception IllegalArgumentException if the model is null, or has no root entry.
+     */
+    static public void write(CheckModel model, WritableByteChannel channel) throws IOException {
+        zCheckWritableModel(model);
+        SnapshotBuilder builder = new SnapshotBuilder();
+        if (model instanceof CompactCheckModel) {
+            CompactCheckModel compactModel = (CompactCheckModel) model;
+            for (int id : zGetPreorderIds(compactModel)) {
+                builder.zAddRecord(compactModel.getChildCount(id), compactModel.getText(id),
+                        compactModel.isChecked(id), compactModel.isCheckboxVisible(id),
+                        compactModel.isIconVisible(id), compactModel.getTextForegroundColor(id),
+                        compactModel.getTextBackgroundColor(id), compactModel.getIcon(id));
+            }
+        } else {
+            for (CheckEntry entry : zGetPreorderEntries(model.getRoot())) {
+                builder.zAddRecord(zGetStoredChildCount(entry), entry.text, entry.isChecked(),
+                        entry.isCheckboxVisible(), entry.userIconVisible,
+                        entry.textForegroundColor, entry.textBackgroundColor, entry.userIcon);
+            }
+        }
+        builder.zWriteTo(channel);
+    }
+
+    /**
+     * zCheckEntryCount, This throws an exception if the supplied model entry count is not equal to
+     * the entry count of this snapshot.
+     */
+    private void zCheckEntryCount(int modelEntryCount) {
+        if (modelEntryCount != entryCount) {
+            throw new IllegalArgumentException("TreeSnapshot.applyCheckStates(), The model has "
+                    + modelEntryCount + " entries, but the snapshot has " + entryCount
+                    + " entries.");
+        }
+    }
+
+    /**
+     * zCheckWritableModel, This throws an exception if the supplied model can not be written to a
+     * snapshot.
+     *
+     * @exception IllegalArgumentException if the model is null, or has no root entry.
+     */
+    static private void zCheckWritableModel(CheckModel model) {
+        if ((model == null) || (model.getRoot() == null)) {
+            throw new IllegalArgumentException("TreeSnapshot.write(), "
+                    + "The model must not be null, and must have a root entry.");
+        }
+    }
+
+    /**
+     * zGetColor, This returns the color with the supplied table index, or null for index zero.
+     */
+    private Color zGetColor(int index) {
+        if (index == 0) {
+            return null;
+        }
+        if (colors == null) {
+            colors = new Color[colorValues.length];
+        }
+        Color color = colors[index - 1];
+        if (color == null) {
+            color = new Color(colorValues[index - 1], true);
+            colors[index - 1] = color;
+        }
+        return color;
+    }
+
+    /**
+     * zGetIcon, This returns the icon with the supplied table index, or null for index zero or if
+     * there is no icon resolver.
+     */
+    private Icon zGetIcon(int index) {
+        if ((index == 0) || (iconResolver == null)) {
+            return null;
+        }
+        if (icons == null) {
+            icons = new Icon[iconTextIndexes.length];
+        }
+        Icon icon = icons[index - 1];
+        if (icon == null) {
+            icon = iconResolver.apply(zGetString(iconTextIndexes[index - 1]));
+            icons[index - 1] = icon;
+        }
+        return icon;
+    }
+
+    /**
+     * zGetPreorderEntries, This returns the entries of the tree of the supplied root entry, in
+     * preorder traversal order. Lazy loading placeholder entries are skipped.
+     */
+    static private ArrayList<CheckEntry> zGetPreorderEntries(CheckEntry root) {
+        ArrayList<CheckEntry> entries = new ArrayList<CheckEntry>();
+        ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            CheckEntry entry = stack.pop();
+            entries.add(entry);
+            for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                CheckEntry child = entry.getChildAt(i);
+                if (!child.isPlaceholder()) {
+                    stack.push(child);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * zGetPreorderIds, This returns the ids of the entries of the supplied compact model that are
+     * in the tree of the root entry, in preorder traversal order. This walks the first child and
+     * next sibling ids, so no entry handles are created.
+     */
+    static private int[] zGetPreorderIds(CompactCheckModel model) {
+        int[] ids = new int[model.getEntryCount()];
+        int count = 0;
+        int id = 0;
+        while (id != CompactCheckModel.NO_ENTRY) {
+            ids[count++] = id;
+            int nextId = model.getFirstChildId(id);
+            while ((nextId == CompactCheckModel.NO_ENTRY) && (id != CompactCheckModel.NO_ENTRY)) {
+                nextId = model.getNextSiblingId(id);
+                id = (nextId == CompactCheckModel.NO_ENTRY) ? model.getParentId(id) : id;
+            }
+            id = nextId;
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * zGetRecords, This returns a buffer that is positioned at the first structure record.
+     */
+    private ByteBuffer zGetRecords() {
+        ByteBuffer records = buffer.duplicate();
+        records.position(structureOffset);
+        return records;
+    }
+
+    /**
+     * zGetStoredChildCount, This returns the number of children of the supplied entry that are
+     * stored in a snapshot. Lazy loading placeholder entries are not counted.
+     */
+    static private int zGetStoredChildCount(CheckEntry entry) {
+        int childCount = entry.getChildCount();
+        int storedCount = childCount;
+        for (int i = 0; i < childCount; ++i) {
+            if (entry.getChildAt(i).isPlaceholder()) {
+                --storedCount;
+            }
+        }
+        return storedCount;
+    }
+
+    /**
+     * zGetString, This returns the string with the supplied table index, or null for index zero.
+     * Each string is decoded the first time that it is used.
+     */
+    private String zGetString(int index) {
+        if (index == 0) {
+            return null;
+        }
+        String text = strings[index - 1];
+        if (text == null) {
+            int length = stringLengths[index - 1];
+            if (length > stringBytes.length) {
+                stringBytes = new byte[Math.max(length, stringBytes.length * 2)];
+            }
+            ByteBuffer source = buffer.duplicate();
+            source.position(stringOffsets[index - 1]);
+            source.get(stringBytes, 0, length);
+            text = new String(stringBytes, 0, length, StandardCharsets.UTF_8);
+            strings[index - 1] = text;
+        }
+        return text;
+    }
+
+    /**
+     * zInvalidStructure, This returns the exception for a snapshot structure that is not valid.
+     */
+    static private IOException zInvalidStructure(String functionName) {
+        return new IOException("TreeSnapshot." + functionName + "(), "
+                + "The snapshot structure is not valid.");
+    }
+
+    /**
+     * zMapFile, This memory maps the whole of the supplied file.
+     */
+    static private ByteBuffer zMapFile(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("TreeSnapshot.TreeSnapshot(), "
+                        + "Snapshots larger than 2 gigabytes are not supported.");
+            }
+            // The mapping stays valid after the channel is closed.
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * zReadCompactAttributes, This reads the attributes of a record with the supplied flags, and
+     * stores them for the supplied id of the supplied compact model.
+     */
+    private void zReadCompactAttributes(ByteBuffer records, int recordFlags,
+            CompactCheckModel model, int id) {
+        if ((recordFlags & FLAG_BOX_HIDDEN) != 0) {
+            model.setCheckboxVisible(id, false);
+        }
+        if ((recordFlags & FLAG_ICON_HIDDEN) != 0) {
+            model.setIconVisible(id, false);
+        }
+        Color foreground = ((recordFlags & FLAG_FOREGROUND) != 0)
+                ? zGetColor(zReadVarint(records)) : null;
+        Color background = ((recordFlags & FLAG_BACKGROUND) != 0)
+                ? zGetColor(zReadVarint(records)) : null;
+        if ((foreground != null) || (background != null)) {
+            model.setColors(id, background, foreground);
+        }
+        if ((recordFlags & FLAG_ICON) != 0) {
+            Icon icon = zGetIcon(zReadVarint(records));
+            if (icon != null) {
+                model.setIcon(id, icon);
+            }
+        }
+    }
+
+    /**
+     * zReadEntryAttributes, This reads the attributes of a record with the supplied flags, and
+     * stores them in the supplied entry.
+     */
+    private void zReadEntryAttributes(ByteBuffer records, int recordFlags, CheckEntry entry) {
+        if ((recordFlags & FLAG_BOX_HIDDEN) != 0) {
+            entry.checkboxVisible = BoxVisible.Hide;
+        }
+        entry.userIconVisible = ((recordFlags & FLAG_ICON_HIDDEN) == 0);
+        if ((recordFlags & FLAG_FOREGROUND) != 0) {
+            entry.textForegroundColor = zGetColor(zReadVarint(records));
+        }
+        if ((recordFlags & FLAG_BACKGROUND) != 0) {
+            entry.textBackgroundColor = zGetColor(zReadVarint(records));
+        }
+        if ((recordFlags & FLAG_ICON) != 0) {
+            entry.userIcon = zGetIcon(zReadVarint(records));
+        }
+    }
+
+    /**
+     * zReadVarint, This reads one varint from the supplied buffer.
+     *
+     * @exception IllegalArgumentException if the varint is longer than five bytes.
+     */
+    static private int zReadVarint(ByteBuffer source) {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int part = source.get();
+            value |= (part & 0x7f) << shift;
+            if (part >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("TreeSnapshot, A varint is longer than five bytes.");
+    }
+
+    /**
+     * SnapshotBuilder, This collects the tables, the check bitset and the structure records of a
+     * snapshot while the entries are visited, and then writes the snapshot.
+     */
+    private static class SnapshotBuilder {
+
+        byte[] bitset = new byte[1024];
+        final HashMap<Integer, Integer> colorIndexes = new HashMap<Integer, Integer>();
+        final ArrayList<Integer> colorValues = new ArrayList<Integer>();
+        int entryCount = 0;
+        final HashMap<String, Integer> iconIndexes = new HashMap<String, Integer>();
+        final ArrayList<Integer> iconTextIndexes = new ArrayList<Integer>();
+        final ByteOutput records = new ByteOutput();
+        final HashMap<String, Integer> stringIndexes = new HashMap<String, Integer>();
+        final ArrayList<String> strings = new ArrayList<String>();
+
+        void zAddRecord(int childCount, String text, boolean checked, boolean boxVisible,
+                boolean iconVisible, Color foreground, Color background, Icon icon) {
+            if ((entryCount >>> 3) == bitset.length) {
+                bitset = Arrays.copyOf(bitset, bitset.length * 2);
+            }
+            if (checked) {
+                bitset[entryCount >>> 3] |= (byte) (1 << (entryCount & 7));
+            }
+            ++entryCount;
+            int foregroundIndex = zGetColorIndex(foreground);
+            int backgroundIndex = zGetColorIndex(background);
+            int iconIndex = zGetIconIndex(icon);
+            int recordFlags = ((boxVisible) ? 0 : FLAG_BOX_HIDDEN)
+                    | ((iconVisible) ? 0 : FLAG_ICON_HIDDEN)
+                    | ((foregroundIndex == 0) ? 0 : FLAG_FOREGROUND)
+                    | ((backgroundIndex == 0) ? 0 : FLAG_BACKGROUND)
+                    | ((iconIndex == 0) ? 0 : FLAG_ICON);
+            records.zWriteVarint(childCount);
+            records.zWriteVarint(zGetStringIndex(text));
+            records.zWriteByte(recordFlags);
+            if (foregroundIndex != 0) {
+                records.zWriteVarint(foregroundIndex);
+            }
+            if (backgroundIndex != 0) {
+                records.zWriteVarint(backgroundIndex);
+            }
+            if (iconIndex != 0) {
+                records.zWriteVarint(iconIndex);
+            }
+        }
+
+        int zGetColorIndex(Color color) {
+            if (color == null) {
+                return 0;
+            }
+            Integer index = colorIndexes.get(color.getRGB());
+            if (index == null) {
+                colorValues.add(color.getRGB());
+                index = colorValues.size();
+                colorIndexes.put(color.getRGB(), index);
+            }
+            return index;
+        }
+
+        int zGetIconIndex(Icon icon) {
+            if (!(icon instanceof ImageIcon)) {
+                return 0;
+            }
+            String description = ((ImageIcon) icon).getDescription();
+            if (description == null) {
+                return 0;
+            }
+            Integer index = iconIndexes.get(description);
+            if (index == null) {
+                iconTextIndexes.add(zGetStringIndex(description));
+                index = iconTextIndexes.size();
+                iconIndexes.put(description, index);
+            }
+            return index;
+        }
+
+        int zGetStringIndex(String text) {
+            if (text == null) {
+                return 0;
+            }
+            Integer index = stringIndexes.get(text);
+            if (index == null) {
+                strings.add(text);
+                index = strings.size();
+                stringIndexes.put(text, index);
+            }
+            return index;
+        }
+
+        void zWriteTo(WritableByteChannel channel) throws IOException {
+            ByteOutput header = new ByteOutput();
+            header.zWriteInt(MAGIC);
+            header.zWriteInt(FORMAT_VERSION);
+            header.zWriteVarint(entryCount);
+            header.zWriteVarint(strings.size());
+            header.zWriteVarint(colorValues.size());
+            header.zWriteVarint(iconTextIndexes.size());
+            for (String text : strings) {
+                byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+                header.zWriteVarint(bytes.length);
+                header.zWriteBytes(bytes, bytes.length);
+            }
+            for (int colorValue : colorValues) {
+                header.zWriteInt(colorValue);
+            }
+            for (int iconTextIndex : iconTextIndexes) {
+                header.zWriteVarint(iconTextIndex);
+            }
+            header.zWriteBytes(bitset, (entryCount + 7) / 8);
+            header.zWriteTo(channel);
+            records.zWriteTo(channel);
+        }
+    }
+
+    /**
+     * ByteOutput, This is a growable byte array that numbers can be written to.
+     */
+    private static class ByteOutput {
+
+        byte[] bytes = new byte[8192];
+        int length = 0;
+
+        void zEnsureSpace(int space) {
+            if (length + space > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(length + space, bytes.length * 2));
+            }
+        }
+
+        void zWriteByte(int value) {
+            zEnsureSpace(1);
+            bytes[length++] = (byte) value;
+        }
+
+        void zWriteBytes(byte[] source, int count) {
+            zEnsureSpace(count);
+            System.arraycopy(source, 0, bytes, length, count);
+            length += count;
+        }
+
+        void zWriteInt(int value) {
+            zEnsureSpace(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+        }
+
+        void zWriteTo(WritableByteChannel channel) throws IOException {
+            ByteBuffer source = ByteBuffer.wrap(bytes, 0, length);
+            while (source.hasRemaining()) {
+                channel.write(source);
+            }
+        }
+
+        void zWriteVarint(int value) {
+            zEnsureSpace(5);
+            while ((value & ~0x7f) != 0) {
+                bytes[length++] = (byte) ((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.github.jcheckboxtree.treesupport;
+
+/**
+ * TriState, These enumerations are used to indicate the displayed check state of an entry when the
+ * tri-state mode of the CheckModel is enabled. An entry with checkable descendants is "Partial"
+ * when some, but not all, of those descendants are checked.
+ */
+public enum TriState {
+    Unchecked, Checked, Partial
+}
@@ -0,0 +1,347 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import javax.swing.tree.TreeNode;
+
+/**
+ * UpdateBatch, This class records the tree model notifications that are requested while a
+ * CheckModel update batch is open, and merges them into the smallest practical set of
+ * notifications when the batch is committed. See also, CheckModel.beginUpdate().
+ *
+ * The merging rules are as follows. Any parent that had a structure change requested receives a
+ * single nodeStructureChanged notification, and all other records inside that subtree are dropped.
+ * Removals are kept as nodesWereRemoved notifications, which are sent first, in removal order,
+ * with the same indices and removed children as the original requests. A structure change would
+ * collapse every expanded descendant of the parent, so a removal is only turned into a structure
+ * change if it can not be expressed this way, which is when children were already inserted into
+ * the same parent during the batch. Each other parent with inserted children receives a single
+ * nodesWereInserted notification with sorted indices, or a single nodeStructureChanged
+ * notification if every child of the parent was inserted during the batch. Each other parent with
+ * changed children receives a single nodesChanged notification with sorted indices.
+ *
+ * Check state changes are recorded separately, and are sent as a single CheckStateEvent after the
+ * tree model notifications. Entries that are no longer part of the model are left out.
+ */
+class UpdateBatch {
+
+    /**
+     * changedChildren, This holds the changed children for each parent, in the order that the
+     * parents were first recorded.
+     */
+    private final Map<TreeNode, Set<TreeNode>> changedChildren
+            = new LinkedHashMap<TreeNode, Set<TreeNode>>();
+
+    /**
+     * checkStateAllChanged, This is true if a check state change was recorded for all entries.
+     */
+    private boolean checkStateAllChanged = false;
+
+    /**
+     * checkStateEntries, This holds the entries whose own check state change was recorded.
+     */
+    private final Set<CheckEntry> checkStateEntries
+            = Collections.newSetFromMap(new IdentityHashMap<CheckEntry, Boolean>());
+
+    /**
+     * checkStateSubtrees, This holds the root entries of the recorded subtree check state changes.
+     */
+    private final Set<CheckEntry> checkStateSubtrees
+            = Collections.newSetFromMap(new IdentityHashMap<CheckEntry, Boolean>());
+
+    /**
+     * insertedChildren, This holds the inserted children for each parent, in the order that the
+     * parents were first recorded.
+     */
+    private final Map<TreeNode, Set<TreeNode>> insertedChildren
+            = new LinkedHashMap<TreeNode, Set<TreeNode>>();
+
+    /**
+     * removals, This holds the recorded removals, in the order that they were requested.
+     */
+    private final ArrayList<RemovalRecord> removals = new ArrayList<RemovalRecord>();
+
+    /**
+     * rootChanged, This is true if a change notification was requested for the root entry itself.
+     */
+    private boolean rootChanged = false;
+
+    /**
+     * structureChanged, This holds the nodes that need a nodeStructureChanged notification.
+     */
+    private final Set<TreeNode> structureChanged
+            = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+
+    /**
+     * commit, This sends the merged notifications to the listeners of the supplied model. This
+     * must be called after the model has closed the batch, so that the notifications are sent
+     * directly instead of being recorded again.
+     */
+    void commit(CheckModel model) {
+        TreeNode root = model.getRoot();
+        // Keep only the topmost structure changes that are still part of the tree.
+        ArrayList<TreeNode> structureRoots = new ArrayList<TreeNode>();
+        for (TreeNode node : structureChanged) {
+            if (zIsInTree(node, root) && !zHasStructureChangedAncestor(node.getParent())) {
+                structureRoots.add(node);
+            }
+        }
+        // Send the removals in the order that they were made. The listeners have not seen any other
+        // change of the batch yet, so the recorded indices still match their view of the tree.
+        for (RemovalRecord removal : removals) {
+            if (!zIsInTree(removal.parent, root) || zHasStructureChangedAncestor(removal.parent)) {
+                continue;
+            }
+            model.nodesWereRemoved(removal.parent, removal.childIndices, removal.removedChildren);
+        }
+        // Send one insert notification per parent.
+        for (Map.Entry<TreeNode, Set<TreeNode>> record : insertedChildren.entrySet()) {
+            TreeNode parent = record.getKey();
+            if (!zIsInTree(parent, root) || zHasStructureChangedAncestor(parent)) {
+                continue;
+            }
+            int[] indices = zGetSortedIndices(parent, record.getValue(), null);
+            if (indices.length == 0) {
+                continue;
+            }
+            if (indices.length == parent.getChildCount()) {
+                // Every child is new, so a structure change is cheaper, and it can not discard
+                // the expanded state of any existing descendants.
+                model.nodeStructureChanged(parent);
+            } else {
+                model.nodesWereInserted(parent, indices);
+            }
+        }
+        // Send one change notification per parent. Inserted children are skipped, because the
+        // listeners will read their current state from the insert notification.
+        if (rootChanged && (root != null) && !structureChanged.contains(root)) {
+            model.nodesChanged(root, null);
+        }
+        for (Map.Entry<TreeNode, Set<TreeNode>> record : changedChildren.entrySet()) {
+            TreeNode parent = record.getKey();
+            if (!zIsInTree(parent, root) || zHasStructureChangedAncestor(parent)) {
+                continue;
+            }
+            int[] indices = zGetSortedIndices(parent, record.getValue(),
+                    insertedChildren.get(parent));
+            if (indices.length > 0) {
+                model.nodesChanged(parent, indices);
+            }
+        }
+        // Send the structure change notifications.
+        for (TreeNode node : structureRoots) {
+            model.nodeStructureChanged(node);
+        }
+        // Send a single check state event for the whole batch.
+        if (checkStateAllChanged) {
+            model.zFireCheckStateChanged(new CheckStateEvent(model, null, null, true));
+        } else if (!(checkStateEntries.isEmpty() && checkStateSubtrees.isEmpty())) {
+            model.zFireCheckStateChanged(new CheckStateEvent(model,
+                    zGetEntriesInModel(checkStateEntries, model),
+                    zGetEntriesInModel(checkStateSubtrees, model), false));
+        }
+    }
+
+    /**
+     * recordChanged, This records a nodesChanged request. Null childIndices indicate that the
+     * supplied node is the root, and has itself changed.
+     */
+    void recordChanged(TreeNode parent, int[] childIndices) {
+        if (childIndices == null) {
+            rootChanged = true;
+            return;
+        }
+        Set<TreeNode> children = zGetChildSet(changedChildren, parent);
+        for (int index : childIndices) {
+            children.add(parent.getChildAt(index));
+        }
+    }
+
+    /**
+     * recordCheckStateChanged, This records a check state change for a changed entry, a changed
+     * subtree, or for all entries. Either entry may be null.
+     */
+    void recordCheckStateChanged(CheckEntry changedEntry, CheckEntry changedSubtree,
+            boolean allEntriesChanged) {
+        if (allEntriesChanged) {
+            checkStateAllChanged = true;
+        }
+        if (checkStateAllChanged) {
+            // Individual entries do not need to be recorded after a change to all entries.
+            checkStateEntries.clear();
+            checkStateSubtrees.clear();
+            return;
+        }
+        if (changedEntry != null) {
+            checkStateEntries.add(changedEntry);
+        }
+        if (changedSubtree != null) {
+            checkStateSubtrees.add(changedSubtree);
+        }
+    }
+
+    /**
+     * recordInserted, This records a nodesWereInserted request. The inserted children are recorded
+     * instead of the indices, because the indices can be shifted by later changes in the batch.
+     */
+    void recordInserted(TreeNode parent, int[] childIndices) {
+        Set<TreeNode> children = zGetChildSet(insertedChildren, parent);
+        for (int index : childIndices) {
+            children.add(parent.getChildAt(index));
+        }
+    }
+
+    /**
+     * recordRemoved, This records a nodesWereRemoved request. The removal is kept as it was
+     * requested, unless children were already inserted into the same parent during the batch. In
+     * that case, the recorded indices would not match the view of the listeners, so a structure
+     * change is recorded for the parent instead. A removal from a parent that is not visible to the
+     * listeners needs no notification, because the parent is covered by the notification for one
+     * of its ancestors.
+     */
+    void recordRemoved(TreeNode parent, TreeNode root, int[] childIndices,
+            Object[] removedChildren) {
+        if (!zIsInTree(parent, root) || zHasStructureChangedAncestor(parent)
+                || zHasInsertedAncestor(parent)) {
+            return;
+        }
+        Set<TreeNode> inserted = insertedChildren.get(parent);
+        if ((inserted != null) && !inserted.isEmpty()) {
+            structureChanged.add(parent);
+            return;
+        }
+        removals.add(new RemovalRecord(parent, childIndices.clone(), removedChildren.clone()));
+    }
+
+    /**
+     * recordStructureChanged, This records a nodeStructureChanged request.
+     */
+    void recordStructureChanged(TreeNode node) {
+        structureChanged.add(node);
+    }
+
+    /**
+     * zGetChildSet, This returns the child set for the supplied parent, creating it if needed.
+     */
+    private static Set<TreeNode> zGetChildSet(Map<TreeNode, Set<TreeNode>> map, TreeNode parent) {
+        Set<TreeNode> children = map.get(parent);
+        if (children == null) {
+            children = Collections.newSetFromMap(new IdentityHashMap<TreeNode, Boolean>());
+            map.put(parent, children);
+        }
+        return children;
+    }
+
+    /**
+     * zGetEntriesInModel, This returns the recorded entries that still belong to the supplied
+     * model.
+     */
+    private static CheckEntry[] zGetEntriesInModel(Set<CheckEntry> recorded, CheckModel model) {
+        ArrayList<CheckEntry> result = new ArrayList<CheckEntry>(recorded.size());
+        for (CheckEntry entry : recorded) {
+            if (entry.ownerModel == model) {
+                result.add(entry);
+            }
+        }
+        return result.toArray(new CheckEntry[result.size()]);
+    }
+
+    /**
+     * zGetSortedIndices, This returns the sorted current indices of the recorded children that are
+     * still children of the supplied parent. Any children in the excluded set are skipped. This
+     * either scans the child list of the parent once, or reads the maintained index of each
+     * recorded child, whichever is cheaper.
+     */
+    private static int[] zGetSortedIndices(TreeNode parent, Set<TreeNode> recorded,
+            Set<TreeNode> excluded) {
+        int[] indices = new int[recorded.size()];
+        int found = 0;
+        int childCount = parent.getChildCount();
+        if ((parent instanceof CheckEntry) && ((recorded.size() * 8) < childCount)) {
+            // For a few children of a large parent, the maintained child indexes are cheaper than a
+            // scan of the child array.
+            for (TreeNode child : recorded) {
+                if ((child.getParent() == parent)
+                        && ((excluded == null) || !excluded.contains(child))) {
+                    indices[found++] = parent.getIndex(child);
+                }
+            }
+            Arrays.sort(indices, 0, found);
+        } else {
+            for (int i = 0; (i < childCount) && (found < indices.length); ++i) {
+                TreeNode child = parent.getChildAt(i);
+                if (recorded.contains(child) && ((excluded == null) || !excluded.contains(child))) {
+                    indices[found++] = i;
+                }
+            }
+        }
+        int[] result = new int[found];
+        System.arraycopy(indices, 0, result, 0, found);
+        return result;
+    }
+
+    /**
+     * zHasInsertedAncestor, This returns true if the supplied node, or any of its ancestors, was
+     * inserted during the batch. The listeners have not seen such a node yet.
+     */
+    private boolean zHasInsertedAncestor(TreeNode node) {
+        if (insertedChildren.isEmpty()) {
+            return false;
+        }
+        for (TreeNode current = node; current.getParent() != null; current = current.getParent()) {
+            Set<TreeNode> inserted = insertedChildren.get(current.getParent());
+            if ((inserted != null) && inserted.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * zHasStructureChangedAncestor, This returns true if the supplied node, or any of its
+     * ancestors, has a recorded structure change.
+     */
+    private boolean zHasStructureChangedAncestor(TreeNode node) {
+        if (structureChanged.isEmpty()) {
+            return false;
+        }
+        for (TreeNode current = node; current != null; current = current.getParent()) {
+            if (structureChanged.contains(current)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * zIsInTree, This returns true if the supplied node is still connected to the supplied root.
+     */
+    private static boolean zIsInTree(TreeNode node, TreeNode root) {
+        TreeNode current = node;
+        while (current.getParent() != null) {
+            current = current.getParent();
+        }
+        return (current == root);
+    }
+
+    /**
+     * RemovalRecord, This holds one recorded nodesWereRemoved request.
+     */
+    private static class RemovalRecord {
+
+        final int[] childIndices;
+        final TreeNode parent;
+        final Object[] removedChildren;
+
+        RemovalRecord(TreeNode parent, int[] childIndices, Object[] removedChildren) {
+            this.parent = parent;
+            this.childIndices = childIndices;
+            this.removedChildren = removedChildren;
+        }
+    }
+}
@@ -0,0 +1,1432 @@
+package com.github.jcheckboxtree.components;
+
+import com.github.jcheckboxtree.treesupport.BoxVisible;
+import com.github.jcheckboxtree.treesupport.CheckCellRenderer;
+import com.github.jcheckboxtree.treesupport.CheckEntry;
+import com.github.jcheckboxtree.treesupport.CheckModel;
+import com.github.jcheckboxtree.treesupport.CheckRowRenderer;
+import com.github.jcheckboxtree.treesupport.CheckStateEvent;
+import com.github.jcheckboxtree.treesupport.CheckStateListener;
+import com.github.jcheckboxtree.treesupport.CheckTreeView;
+import com.github.jcheckboxtree.treesupport.ChildProvider;
+import com.github.jcheckboxtree.treesupport.ExpandAllTask;
+import com.github.jcheckboxtree.treesupport.ExpansionSnapshot;
+import com.github.jcheckboxtree.treesupport.TreeImportTask;
+import com.github.jcheckboxtree.treesupport.TreeImporter;
+import com.github.jcheckboxtree.treesupport.TreeIterator;
+import com.github.jcheckboxtree.treesupport.TriState;
+import com.github.jcheckboxtree.treesupport.Use;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Graphics;
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import javax.swing.AbstractAction;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.JTree;
+import javax.swing.KeyStroke;
+import javax.swing.SwingWorker;
+import javax.swing.Timer;
+import javax.swing.UIManager;
+import javax.swing.event.TreeExpansionEvent;
+import javax.swing.event.TreeExpansionListener;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
+import javax.swing.tree.ExpandVetoException;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+import javax.swing.tree.TreeSelectionModel;
+
+/**
+ * JCheckboxTree, This class implements a swing tree component that can have a checkbox on any or
+ * all of its tree entries.
+ *
+ * Every tree entry is an instance of CheckEntry. The CheckEntry class has a "checkboxVisible" field
+ * that controls whether or not any particular entry has a visible checkbox. The current checkbox
+ * state (selected or unselected) is also stored in the CheckEntry class.
+ *
+ * The programmer should only add entries to the tree that are instances of CheckEntry, and not any
+ * other class type. If you wish to store custom data with the tree entries, you can store any
+ * desired data type with each entry by using the function called CheckEntry.setUserObject().
+ *
+ * Each tree entry may optionally have a custom icon. Custom icons are stored in the CheckEntry
+ * class. Additionally, the JCheckboxTree class has settings for optionally using the default tree
+ * icons for folder entries or leaf entries. When the default icons are used, they will act as
+ * "fallback icons" for any entries with no custom icon.
+ *
+ * This tree uses a custom tree cell renderer, but does not require a custom tree cell editor class.
+ * Changing the state of checkboxes is handled through the JCheckboxTree.processMouseEvent()
+ * function.
+ *
+ * This class is part of the swing module. The tree model, the tree entries, and the TreeIterator
+ * class are part of the core module, which does not require a display. This class implements the
+ * CheckTreeView interface, so that a TreeIterator can read the expanded state of this tree.
+ */
+public class JCheckboxTree extends JTree implements CheckTreeView {
+
+    /**
+     * checkGestureHandler, This implements the drag and shift click check gestures. See also,
+     * checkGesturesEnabled.
+     */
+    private final CheckGestureHandler checkGestureHandler = new CheckGestureHandler();
+
+    /**
+     * checkGesturesEnabled, If this is true, the tree supports two check gestures. Pressing on a
+     * checkbox and then dragging over the checkboxes of other rows will give every passed row the
+     * same check state as the pressed row. Clicking a checkbox while holding the shift key will
+     * give every row between the previously clicked checkbox and the clicked checkbox the new
+     * check state of the clicked checkbox. If this is false, each click only toggles one checkbox.
+     *
+     * The rows that are passed during a drag are changed in one model update batch per display
+     * frame, so a fast drag across many rows does not delay the mouse pointer.
+     */
+    public boolean checkGesturesEnabled = false;
+
+    /**
+     * checkRowRepainter, This repaints the rows of entries whose check state has changed. This is
+     * created by setModel(), for the same reason as expandedEntries.
+     */
+    private CheckRowRepainter checkRowRepainter;
+
+    /**
+     * expandedEntries, This holds every entry whose own expanded state is set in this tree, using
+     * identity comparison. This mirrors the toggled path table inside JTree, so that the expanded
+     * state of an entry can be tested without creating a TreePath. See also, isEntryExpanded().
+     *
+     * This is created by setModel(), which is first called from the JTree constructor, before the
+     * field initializers of this class have run. For that reason, this has no field initializer.
+     */
+    private Set<CheckEntry> expandedEntries;
+
+    /**
+     * expansionTracker, This keeps the expandedEntries set up to date. This is created by
+     * setModel(), for the same reason as expandedEntries.
+     */
+    private ExpansionTracker expansionTracker;
+
+    /**
+     * fixedRowHeightEnabled, This is true when the fixed row height mode is turned on. See also,
+     * setFixedRowHeightEnabled().
+     */
+    private boolean fixedRowHeightEnabled = false;
+
+    /**
+     * fixedRowIconHeight, This holds the user icon height that was used for the current fixed row
+     * height, so that a taller icon can be noticed when entries are added or changed.
+     */
+    private int fixedRowIconHeight = 0;
+
+    /**
+     * fixedRowMaximumIconHeight, This optionally overrides the height in pixels of the tallest user
+     * icon that should fit in the rows of the fixed row height mode. If this is 0 or less (the
+     * default), the height is taken from the icons that are registered with the model, as
+     * described in updateFixedRowHeight(). After this is changed, updateFixedRowHeight() should be
+     * called. See also, setFixedRowHeightEnabled().
+     */
+    public int fixedRowMaximumIconHeight = 0;
+
+    /**
+     * heldExpandedPaths, While this is not null, the expansion notifications of this tree are held
+     * back, and the expanded paths are collected in this list instead. See also,
+     * fireTreeExpanded() and restoreExpansionSnapshot().
+     */
+    private ArrayList<TreePath> heldExpandedPaths = null;
+
+    /**
+     * iconFallbackFolderNodes, If this is true, "folder nodes" (nodes with children), will show the
+     * default folder icons whenever a custom icon is not being displayed. If this is false, then
+     * folder nodes will not have any icon when a custom icon is not being displayed. A displayed
+     * custom icon always has priority over these fallback settings.
+     */
+    public boolean iconFallbackFolderNodes = false;
+
+    /**
+     * iconFallbackLeafNodes, If this is true, "leaf nodes" (nodes without children), will show the
+     * default leaf icon whenever a custom icon is not being displayed. If this is false, then leaf
+     * nodes will not have any icon when a custom icon is not being displayed. A displayed custom
+     * icon always has priority over these fallback settings.
+     */
+    public boolean iconFallbackLeafNodes = false;
+
+    /**
+     * lazyLoadingText, This is the text that will be shown in the placeholder row that is
+     * displayed under a lazy entry, while the children of the lazy entry are being loaded. See
+     * also, CheckEntry.childProvider.
+     */
+    public String lazyLoadingText = "Loading...";
+
+    /**
+     * rowWidthAddedPixels, This determines the number of pixels that should be added to the width
+     * of each tree row. Rows can only be selected by clicking on a space that is inside the total
+     * row width, so this number is set to a large value by default. A large value allows the user
+     * to select a row by clicking anywhere in the empty space to the right of each row.
+     *
+     * When this is set to a large value, "selectionsHighlightsEntireRow" should generally be set to
+     * true, and the horizontal scrollbar of the tree scroll pane should generally be disabled.
+     *
+     * If this is set to a low value (or zero), then the user will only be able to select a row by
+     * clicking on or near the row text. A possible benefit of a low value is that the horizontal
+     * scrollbar would become more usable again.
+     *
+     * Note that this could also be set to a negative value, but that would run the risk of chopping
+     * off some of the row text in certain common situations.
+     */
+    public int rowWidthAddedPixels = 2000;
+
+    /**
+     * selectionBackgroundColor, This is the color that will be used for the background of any
+     * selected rows. This is initialized to a default color for the current look and feel, but it
+     * can be set to any color that is desired. This color is is used inside this class, and inside
+     * the CheckCellRenderer and FastCheckCellRenderer classes.
+     */
+    public Color selectionBackgroundColor;
+
+    /**
+     * selectionForegroundColor, This holds the default color for selected entry foreground areas.
+     */
+    public Color selectionForegroundColor;
+
+    /**
+     * selectionsHighlightEntireRow, If this is true, then selecting a row will highlight the entire
+     * row, from the left to the right side of the tree area. If this is false, then selecting a row
+     * will only highlight the row text, plus any additional pixels that are set in the
+     * "rowWidthAddedPixels" variable.
+     *
+     * When this is set to false, the rowWidthAddedPixels setting should generally be set to a low
+     * value or zero.
+     *
+     * When this is set to true, the tree will automatically be set to setOpaque(false) to
+     * accommodate the custom highlight rendering.
+     */
+    public boolean selectionsHighlightEntireRow = true;
+
+    /**
+     * CHECK_DRAG_FRAME_MILLIS, This is the time in milliseconds between the batches of check state
+     * changes that are made while the checkboxes of passed rows are dragged over.
+     */
+    static private final int CHECK_DRAG_FRAME_MILLIS = 16;
+
+    /**
+     * NULL_ROOT, This can be passed into the JCheckboxTree constructor to create a tree that is
+     * initialized with a null root entry.
+     *
+     * Example: JCheckboxTree tree = new JCheckboxTree(JCheckboxTree.NULL_ROOT)
+     */
+    static public final CheckEntry NULL_ROOT = null;
+
+    /**
+     * ROW_REPAINT_LIMIT, This is the largest number of changed entries in a check state event for
+     * which the rows are repainted individually. Events with more entries repaint the whole tree.
+     */
+    static private final int ROW_REPAINT_LIMIT = 64;
+
+    /**
+     * TOGGLE_CHECKS_ACTION_KEY, This is the action map key of the action that toggles the check
+     * state of the selected rows. This action is bound to the space key. The key binding can be
+     * changed through the input map of the tree. See also, toggleSelectedRowsChecked().
+     */
+    static public final String TOGGLE_CHECKS_ACTION_KEY = "toggleSelectedRowsChecked";
+
+    /**
+     * Constructor with default data, This creates a tree with a set of example checkbox tree data.
+     * This constructor is generally used only for creating demo applications.
+     */
+    public JCheckboxTree() {
+        this(zGetSampleTreeModel());
+        expandAllEntries();
+    }
+
+    /**
+     * Constructor with a CheckModel instance, This will create a tree using the supplied tree
+     * model. If the model contains any nodes that are not a CheckEntry, then this will throw an
+     * exception.
+     */
+    public JCheckboxTree(CheckModel treemodel) {
+        super(treemodel);
+        // The checkTreeForInvalidNodes() function is called during super(treemodel), via setModel().
+        zInitializeTreeSettings();
+    }
+
+    /**
+     * Constructor with a root entry, Creates a tree using the specified entry as the root. This
+     * root entry will be used to create a CheckModel instance. If the root contains any descendents
+     * that are not a CheckEntry, then this will throw an exception.
+     *
+     * To create a tree with a null root entry, call this constructor with the NULL_ROOT constant,
+     * like this: JCheckboxTree tree = new JCheckboxTree(JCheckboxTree.NULL_ROOT)
+     */
+    public JCheckboxTree(CheckEntry root) {
+        super(new CheckModel(root));
+        // The checkTreeForInvalidNodes() function is called during super(root), via setModel().
+        zInitializeTreeSettings();
+    }
+
+    /**
+     * collapseAllEntries, This collapses every entry below the root entry, in one operation. The
+     * expanded state of the root entry is not changed. The remembered expanded state of the
+     * entries inside collapsed entries is also cleared, so expanding any entry afterwards will
+     * only show its children. Selected entries that are hidden by the collapse are replaced in the
+     * selection by their visible ancestor, the same as when a single entry is collapsed.
+     *
+     * No expansion events are sent for the collapsed entries. The expanded state is cleared in one
+     * step, and the tree UI then rebuilds its row layout once from the new expanded state. JTree
+     * has no public way to ask the tree UI for this, so the tree sends the model property
+     * notification that the tree UI uses when a model is installed, with the current model as the
+     * new value and null as the old value. The cost is proportional to the number of rows that are
+     * visible afterwards, instead of to the number of expanded entries multiplied by the number of
+     * rows. Any property change listener of the "model" property also receives this notification.
+     */
+    public void collapseAllEntries() {
+        CheckEntry root = getRoot();
+        if (root == null) {
+            return;
+        }
+        TreePath rootPath = new TreePath(root);
+        boolean rootExpanded = isExpanded(rootPath);
+        int visiblePathCount = rootExpanded ? 2 : 1;
+        TreePath[] selectedPaths = getSelectionPaths();
+        if (selectedPaths != null) {
+            ArrayList<TreePath> hiddenPaths = new ArrayList<TreePath>();
+            ArrayList<TreePath> visibleAncestors = new ArrayList<TreePath>();
+            for (TreePath path : selectedPaths) {
+                if (path.getPathCount() > visiblePathCount) {
+                    hiddenPaths.add(path);
+                    TreePath ancestor = path;
+                    while (ancestor.getPathCount() > visiblePathCount) {
+                        ancestor = ancestor.getParentPath();
+                    }
+                    visibleAncestors.add(ancestor);
+                }
+            }
+            if (!hiddenPaths.isEmpty()) {
+                removeSelectionPaths(hiddenPaths.toArray(new TreePath[hiddenPaths.size()]));
+                addSelectionPaths(visibleAncestors.toArray(new TreePath[visibleAncestors.size()]));
+            }
+        }
+        clearToggledPaths();
+        expandedEntries.clear();
+        if (rootExpanded) {
+            // The root entry was only expanded again internally, so this is not reported.
+            heldExpandedPaths = new ArrayList<TreePath>();
+            try {
+                expandPath(rootPath);
+            } finally {
+                heldExpandedPaths = null;
+            }
+            expandedEntries.add(root);
+        }
+        // The tree UI rebuilds its layout cache from the expanded state of the tree when it
+        // receives a model notification. The old value must differ from the new value, or the
+        // notification is not sent.
+        firePropertyChange(TREE_MODEL_PROPERTY, null, getModel());
+    }
+
+    /**
+     * expandAllEntries, This will expand all the entries in the tree, before returning. To expand
+     * a large tree without blocking the event dispatch thread, use startExpandAll() instead.
+     */
+    public void expandAllEntries() {
+        CheckEntry root = getRoot();
+        if (root != null) {
+            expandChildren(new TreePath(root));
+        }
+    }
+
+    /**
+     * expandChildren, This will expand the last entry in the supplied tree path, and all of its
+     * descendants, before returning. This uses a loop instead of recursion. See also, ExpandAllTask.
+     */
+    public void expandChildren(TreePath path) {
+        new ExpandAllTask(this, path, ExpandAllTask.NO_DEPTH_LIMIT, null).runToCompletion();
+    }
+
+    /**
+     * fireTreeExpanded, This is called by JTree after any tree path is expanded. While expanded
+     * state is being restored, the notification is held back, and only the outermost restored
+     * paths are reported afterwards. See also, restoreExpansionSnapshot().
+     */
+    @Override
+    public void fireTreeExpanded(TreePath path) {
+        if (heldExpandedPaths != null) {
+            heldExpandedPaths.add(path);
+            return;
+        }
+        super.fireTreeExpanded(path);
+    }
+
+    /**
+     * fireTreeWillExpand, This is called by JTree before any tree path is expanded. If the expanding
+     * entry is a lazy entry whose children have not been loaded, then this will start loading the
+     * children in a background thread. A placeholder row will be shown under the entry until the
+     * children are available.
+     */
+    @Override
+    public void fireTreeWillExpand(TreePath path) throws ExpandVetoException {
+        Object possibleEntry = path.getLastPathComponent();
+        if (possibleEntry instanceof CheckEntry) {
+            zLoadLazyChildren((CheckEntry) possibleEntry);
+        }
+        super.fireTreeWillExpand(path);
+    }
+
+    /**
+     * getExpandedDescendants, This returns the expanded descendants of the supplied path that are
+     * currently visible, or null if the supplied path is not expanded. This gives the same result as
+     * JTree.getExpandedDescendants().
+     *
+     * The tree UI calls this function every time that a path is expanded. JTree checks every
+     * expanded path in the whole tree, so expanding a large number of entries one at a time takes
+     * time proportional to the square of the number of expanded entries. This function only visits
+     * the children of the expanded entries below the supplied path, using the expandedEntries set.
+     */
+    @Override
+    public Enumeration<TreePath> getExpandedDescendants(TreePath parent) {
+        if ((expandedEntries == null) || (parent == null)
+                || (!(parent.getLastPathComponent() instanceof CheckEntry))) {
+            return super.getExpandedDescendants(parent);
+        }
+        if (!isExpanded(parent)) {
+            return null;
+        }
+        ArrayList<TreePath> descendants = new ArrayList<TreePath>();
+        ArrayDeque<TreePath> stack = new ArrayDeque<TreePath>();
+        stack.push(parent);
+        while (!stack.isEmpty()) {
+            TreePath path = stack.pop();
+            CheckEntry entry = (CheckEntry) path.getLastPathComponent();
+            // The descendants of a collapsed child are not visible, so they are skipped. The set is
+            // only used to skip the collapsed children quickly. JTree may have already forgotten
+            // the expanded state of an entry before the set is updated, so JTree makes the final
+            // decision for each child that is found in the set.
+            for (int i = 0; i < entry.getChildCount(); ++i) {
+                CheckEntry child = entry.getChildAt(i);
+                if (expandedEntries.contains(child)) {
+                    TreePath childPath = path.pathByAddingChild(child);
+                    if (isExpanded(childPath)) {
+                        descendants.add(childPath);
+                        stack.push(childPath);
+                    }
+                }
+            }
+        }
+        return Collections.enumeration(descendants);
+    }
+
+    /**
+     * getExpansionSnapshot, This returns a snapshot of the visible expanded entries of this tree.
+     * The snapshot identifies the entries by their text, so it can be applied to a model that was
+     * built again from the same data. See also, restoreExpansionSnapshot() and ExpansionSnapshot.
+     */
+    public ExpansionSnapshot getExpansionSnapshot() {
+        CheckEntry root = getRoot();
+        ArrayList<CheckEntry> entries = new ArrayList<CheckEntry>();
+        boolean rootExpanded = (root != null) && isExpanded(new TreePath(root));
+        if (rootExpanded) {
+            // Each expanded descendant is returned after its parent.
+            Enumeration<TreePath> descendants = getExpandedDescendants(new TreePath(root));
+            while ((descendants != null) && descendants.hasMoreElements()) {
+                entries.add((CheckEntry) descendants.nextElement().getLastPathComponent());
+            }
+        }
+        return new ExpansionSnapshot(root, rootExpanded, entries);
+    }
+
+    /**
+     * getModelFull, Returns the tree model as a CheckModel instance, instead of a TreeModel
+     * instance.
+     */
+    @Override
+    public CheckModel getModelFull() {
+        TreeModel model = getModel();
+        if (model instanceof CheckModel) {
+            return (CheckModel) model;
+        }
+        throw new RuntimeException("JCheckboxTree.getModelFull(), "
+                + "The current model is not a CheckModel instance.");
+    }
+
+    /**
+     * getRoot, Returns the root entry of this tree. If the tree has no entries, or if the tree has
+     * no model, this will return null.
+     */
+    @Override
+    public CheckEntry getRoot() {
+        TreeModel model = getModel();
+        if (model == null) {
+            return null;
+        }
+        CheckEntry rootEntry = (CheckEntry) model.getRoot();
+        return rootEntry;
+    }
+
+    /**
+     * isEntryExpanded, This returns true if the supplied entry is expanded in this tree. This gives
+     * the same result as isExpanded(new TreePath(entry.getPath())), which means that the entry and
+     * all of its ancestors must be expanded. This does not allocate any objects, and its cost is
+     * proportional to the depth of the entry.
+     */
+    @Override
+    public boolean isEntryExpanded(CheckEntry entry) {
+        if ((entry == null) || (expandedEntries == null)) {
+            return false;
+        }
+        for (CheckEntry node = entry; node != null; node = (CheckEntry) node.getParent()) {
+            if (!expandedEntries.contains(node)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * isFixedRowHeightEnabled, This returns true if the fixed row height mode is turned on. See also,
+     * setFixedRowHeightEnabled().
+     */
+    public boolean isFixedRowHeightEnabled() {
+        return fixedRowHeightEnabled;
+    }
+
+    /**
+     * paintComponent, This does custom painting of the tree component, in order to supply a whole
+     * row selection indicator as needed.
+     *
+     * Only the rows that intersect the clip area are checked for selection, so the cost of painting
+     * depends on the number of visible rows, rather than on the number of selected rows.
+     */
+    @Override
+    public void paintComponent(Graphics g) {
+        if (selectionsHighlightEntireRow) {
+            setOpaque(false);
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            if ((getSelectionCount() > 0) && (clip.height > 0)) {
+                int firstRow = getClosestRowForLocation(clip.x, clip.y);
+                int lastRow = getClosestRowForLocation(clip.x, clip.y + clip.height - 1);
+                g.setColor(selectionBackgroundColor);
+                for (int row = Math.max(0, firstRow); row <= lastRow; row++) {
+                    if (isRowSelected(row)) {
+                        Rectangle r = getRowBounds(row);
+                        if (r != null) {
+                            g.fillRect(clip.x, r.y, clip.width, r.height);
+                        }
+                    }
+                }
+            }
+        }
+        super.paintComponent(g);
+    }
+
+    /**
+     * processMouseEvent, This catches tree mouse pressed events, for changing the state of
+     * checkboxes. This overrides the processMouseEvent() function in JTree.
+     *
+     * Technical note: The checkbox tree was originally implemented using a custom tree cell editor,
+     * but unfortunately this caused a bug in some Java "look and feel" settings, where the
+     * JCheckBox component could behave erratically. The checkbox would sometimes flicker when the
+     * tree selection was changed. Using the processMouseEvent() function instead fixes that bug.
+     */
+    @Override
+    protected void processMouseEvent(MouseEvent event) {
+        // This will be set to true if it is detected that the mouse is inside the inactive zone
+        // surrounding the outside of the checkbox.
+        boolean mouseIsInsideInactiveZone = false;
+        // Check to see if the tree is enabled, if the event has not been consumed, and if this
+        // event is a mouse press event.
+        if ((isEnabled()) && (!event.isConsumed()) && (event.getID() == MouseEvent.MOUSE_PRESSED)) {
+            // Get the event mouse location, relative to the tree.
+            Point mouseLocationRelativeToTree = event.getPoint();
+            // Check to see if there is a tree row under the mouse location.
+            int row = getRowForLocation(mouseLocationRelativeToTree.x,
+                    mouseLocationRelativeToTree.y);
+            if (row != -1) {
+                // A row was found under the location.
+                Rectangle rowBounds = getRowBounds(row);
+                // Try to get the bounding rectangle for the row.
+                if ((rowBounds != null) && (cellRenderer instanceof CheckRowRenderer)) {
+                    // The row is not collapsed under a parent node.
+                    // Get the CheckEntry instance for this row. The renderer needs the entry,
+                    // because a row with a hidden checkbox has no checkbox zones.
+                    CheckRowRenderer treeRenderer = (CheckRowRenderer) cellRenderer;
+                    Object possibleNode = getPathForRow(row).getLastPathComponent();
+                    CheckEntry entry = (possibleNode instanceof CheckEntry)
+                            ? (CheckEntry) possibleNode : null;
+                    // Check to see if the mouse location is in the inactive zone.
+                    mouseIsInsideInactiveZone = treeRenderer.isPointInInactiveZone(
+                            entry, rowBounds, mouseLocationRelativeToTree);
+                    // Check to see if the mouse location is inside of the row checkbox, and if
+                    // the checkbox is visible.
+                    if ((entry != null) && (entry.checkboxVisible == BoxVisible.Show)
+                            && treeRenderer.isPointInCheckboxActivationZone(
+                                    entry, rowBounds, mouseLocationRelativeToTree)) {
+                        // In response to the click, toggle the check state for this node.
+                        CheckModel model = getModelFull();
+                        boolean newState = zGetToggledCheckState(model, entry);
+                        if (checkGesturesEnabled) {
+                            checkGestureHandler.zPress(row, entry, newState,
+                                    event.isShiftDown());
+                        } else {
+                            zSetEntryChecked(model, entry, newState);
+                        }
+                        // The check state change does not change the size of any row, so the
+                        // changed rows are repainted by the checkRowRepainter, instead of sending
+                        // a tree model notification.
+                    }
+                }
+            }
+        }
+        if (event.getID() == MouseEvent.MOUSE_RELEASED) {
+            checkGestureHandler.zFinishDrag();
+        }
+        // If needed, perform default JTree processing for this click event, such as changing the
+        // tree selection.
+        if (!mouseIsInsideInactiveZone) {
+            super.processMouseEvent(event);
+        }
+    }
+
+    /**
+     * processMouseMotionEvent, While a check drag gesture is active, this sends the mouse drag
+     * events to the check gesture handler instead of to JTree, so that the drag does not change
+     * the tree selection. See also, checkGesturesEnabled.
+     */
+    @Override
+    protected void processMouseMotionEvent(MouseEvent event) {
+        if ((event.getID() == MouseEvent.MOUSE_DRAGGED) && checkGestureHandler.dragging) {
+            checkGestureHandler.zDragTo(event.getPoint());
+            return;
+        }
+        super.processMouseMotionEvent(event);
+    }
+
+    /**
+     * setSelectedRowsChecked, This sets the check state of the entry in every selected row to the
+     * supplied value, in one pass. Entries with a hidden checkbox are not changed. In tri-state
+     * mode, a selected folder with checkable descendants is changed together with its
+     * descendants, the same as when its checkbox is clicked.
+     *
+     * The selected rows are read from the row bits of the selection model, so no selection path
+     * array is created. All of the changes are made inside one model update batch, so the check
+     * state listeners receive a single notification, and the tree is repainted once.
+     */
+    public void setSelectedRowsChecked(boolean checked) {
+        ArrayList<CheckEntry> entries = zGetSelectedRowEntries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        CheckModel model = getModelFull();
+        model.beginUpdate();
+        try {
+            for (CheckEntry entry : entries) {
+                zSetEntryChecked(model, entry, checked);
+            }
+        } finally {
+            model.endUpdate();
+        }
+    }
+
+    /**
+     * restoreExpansionSnapshot, This expands the entries of this tree that match the expanded
+     * entries of the supplied snapshot. This is usually called right after a new model was set,
+     * to keep the view of the user when the tree data is loaded again. Snapshot entries that no
+     * longer exist are skipped. Entries are only expanded, never collapsed. To show exactly the
+     * expanded state of the snapshot in a tree that is already in use, call collapseAllEntries()
+     * first.
+     *
+     * The entries are expanded as one batch. Expansion listeners, including the tree UI, receive
+     * one event for each outermost restored entry, after the whole batch is expanded. The tree UI
+     * then lays out the restored rows under each of those entries in one pass. This matches the
+     * events of JTree when an entry with remembered expanded descendants is expanded. The will
+     * expand notifications are still sent for every entry, so lazy entries start loading, and
+     * expansion vetoes are respected.
+     */
+    public void restoreExpansionSnapshot(ExpansionSnapshot snapshot) {
+        if (snapshot == null) {
+            throw new IllegalArgumentException("JCheckboxTree.restoreExpansionSnapshot(), "
+                    + "The snapshot cannot be null.");
+        }
+        CheckEntry root = getRoot();
+        if (root == null) {
+            return;
+        }
+        List<CheckEntry> entries = snapshot.findExpandedEntries(root);
+        ArrayList<TreePath> expandedPaths = new ArrayList<TreePath>();
+        heldExpandedPaths = expandedPaths;
+        try {
+            if (snapshot.isRootExpanded()) {
+                expandPath(new TreePath(root));
+            }
+            for (CheckEntry entry : entries) {
+                expandPath(new TreePath(entry.getPath()));
+            }
+        } finally {
+            heldExpandedPaths = null;
+            zReportHeldExpandedPaths(expandedPaths);
+        }
+    }
+
+    /**
+     * setFixedRowHeightEnabled, This turns the fixed row height mode on or off. The mode is off by
+     * default.
+     *
+     * When the mode is off, the height of each row is measured by the cell renderer, and the row
+     * height is increased during painting whenever an entry has an icon that is taller than the
+     * current rows. Every row must be measured when it is displayed, and finding the row at a
+     * vertical position can require work that is proportional to the number of rows.
+     *
+     * When the mode is on, all rows share a single height, which is calculated once by
+     * updateFixedRowHeight(). The tree also turns on the JTree large model setting. This allows the
+     * tree to find rows by position in constant time, and to expand or scroll through very large
+     * folders without measuring each row. The cell renderer never changes the row height in this
+     * mode. Instead, the height includes the tallest user icon that is registered with the model,
+     * and it is calculated again when an added or changed entry brings a taller icon. See
+     * updateFixedRowHeight(), which should also be called after the cell renderer is replaced.
+     */
+    public void setFixedRowHeightEnabled(boolean enabled) {
+        fixedRowHeightEnabled = enabled;
+        if (enabled) {
+            updateFixedRowHeight();
+            setLargeModel(true);
+        } else {
+            setLargeModel(false);
+            setRowHeight(0);
+        }
+    }
+
+    /**
+     * setModel, This will set the model for the tree. The model must be an instance or descendant
+     * of the CheckModel class, and cannot be null.
+     */
+    @Override
+    public void setModel(TreeModel newModel) {
+        if (newModel instanceof CheckModel) {
+            if (expansionTracker == null) {
+                expandedEntries = Collections.newSetFromMap(
+                        new IdentityHashMap<CheckEntry, Boolean>());
+                expansionTracker = new ExpansionTracker();
+                addTreeExpansionListener(expansionTracker);
+                checkRowRepainter = new CheckRowRepainter();
+            }
+            TreeModel oldModel = getModel();
+            if (oldModel != null) {
+                oldModel.removeTreeModelListener(expansionTracker);
+                ((CheckModel) oldModel).removeCheckStateListener(checkRowRepainter);
+            }
+            ((CheckModel) newModel).addCheckStateListener(checkRowRepainter);
+            // The tree UI reads the expanded descendants while the new model is installed, so the
+            // entries of the old model are forgotten first.
+            expandedEntries.clear();
+            // The tracker is added before JTree adds its own model listener. Tree models notify
+            // their listeners in reverse order, so the tracker sees each event after JTree has
+            // updated its expanded state.
+            newModel.addTreeModelListener(expansionTracker);
+            super.setModel(newModel);
+            expansionTracker.zResetToRoot();
+            zCheckTreeForInvalidEntries();
+            // The icons of the old model no longer need to fit.
+            fixedRowIconHeight = 0;
+            updateFixedRowHeight();
+        } else {
+            throw new RuntimeException("JCheckboxTree.setModel(), The model must be an "
+                    + "instance or descendant of the CheckModel class, and cannot be null.");
+        }
+    }
+
+    /**
+     * startExpandAll, This starts expanding the supplied entry, and all of its descendants down to
+     * the supplied maximum depth, in slices on the event dispatch thread. The tree stays responsive
+     * while the entries are expanded. If the starting entry is null, the root entry is used. Use
+     * ExpandAllTask.NO_DEPTH_LIMIT to expand the descendants at any depth. The progress listener
+     * may be null. The returned task can be used to read the progress, or to cancel the expansion.
+     */
+    public ExpandAllTask startExpandAll(CheckEntry startingEntry, int maximumDepth,
+            ExpandAllTask.ProgressListener progressListener) {
+        CheckEntry entry = (startingEntry == null) ? getRoot() : startingEntry;
+        TreePath startingPath = (entry == null) ? null : new TreePath(entry.getPath());
+        ExpandAllTask task = new ExpandAllTask(this, startingPath, maximumDepth, progressListener);
+        task.start();
+        return task;
+    }
+
+    /**
+     * startImport, This starts importing the supplied file with the supplied importer on a
+     * background thread. When the whole file has been imported, the new model replaces the model of
+     * this tree with a single setModel() call. The tree keeps its current model, and stays
+     * responsive, until then. The completion listener may be null. The returned task can be used to
+     * read the result, or to cancel the import. See also, TreeImporter.
+     */
+    public TreeImportTask startImport(TreeImporter importer, Path file,
+            TreeImportTask.CompletionListener completionListener) {
+        TreeImportTask task = new TreeImportTask(this, importer, file, completionListener);
+        task.start();
+        return task;
+    }
+
+    /**
+     * toggleSelectedRowsChecked, This toggles the check state of all of the selected rows
+     * together. The new state is the opposite of the current state of the lead selection row, or
+     * of the first selected row with a visible checkbox if the lead row has no visible checkbox.
+     * Every selected row then receives that same state, so a mixed selection becomes all checked
+     * or all unchecked. This is called by the space key. See also, setSelectedRowsChecked().
+     */
+    public void toggleSelectedRowsChecked() {
+        ArrayList<CheckEntry> entries = zGetSelectedRowEntries();
+        if (entries.isEmpty()) {
+            return;
+        }
+        CheckEntry stateEntry = entries.get(0);
+        TreePath leadPath = getLeadSelectionPath();
+        if ((leadPath != null) && entries.contains(leadPath.getLastPathComponent())) {
+            stateEntry = (CheckEntry) leadPath.getLastPathComponent();
+        }
+        setSelectedRowsChecked(zGetToggledCheckState(getModelFull(), stateEntry));
+    }
+
+    /**
+     * updateFixedRowHeight, This calculates the fixed row height, and applies it to the tree. This
+     * does nothing when the fixed row height mode is off. See also, setFixedRowHeightEnabled().
+     *
+     * The height is measured by the cell renderer, using a sample entry that shows the tallest icon
+     * that can be displayed in this tree. The tallest icon is chosen from the default folder and
+     * leaf icons when the icon fallback settings are turned on, and a blank icon with the height of
+     * the tallest user icon. The user icon height is fixedRowMaximumIconHeight if that is set, and
+     * otherwise CheckModel.getMaximumIconHeight(), which reads the attribute table of a
+     * CompactCheckModel, or the attribute pool of any other model. This means the height reflects
+     * the current look and feel, the checkbox size, the text font, and the tallest icon. The cost
+     * does not depend on the number of entries in the model.
+     *
+     * While the mode is on, the icons of the entries that are added or changed are also compared
+     * with the current height, so a taller icon raises the row height even without a pool. Icons
+     * of entries below the added entries are only found through the model.
+     */
+    public void updateFixedRowHeight() {
+        if (!fixedRowHeightEnabled) {
+            return;
+        }
+        setRowHeight(zCalculateFixedRowHeight());
+    }
+
+    /**
+     * updateUI, This updates the tree for a new look and feel. In the fixed row height mode, this
+     * also calculates the row height again.
+     */
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        if (fixedRowHeightEnabled) {
+            updateFixedRowHeight();
+        }
+    }
+
+    /**
+     * zCalculateFixedRowHeight, This returns the row height for the fixed row height mode. See
+     * also, updateFixedRowHeight().
+     */
+    private int zCalculateFixedRowHeight() {
+        Icon tallestIcon = null;
+        if (iconFallbackFolderNodes) {
+            tallestIcon = zTallerIcon(tallestIcon, UIManager.getIcon("Tree.openIcon"));
+            tallestIcon = zTallerIcon(tallestIcon, UIManager.getIcon("Tree.closedIcon"));
+        }
+        if (iconFallbackLeafNodes) {
+            tallestIcon = zTallerIcon(tallestIcon, UIManager.getIcon("Tree.leafIcon"));
+        }
+        int iconHeight = (fixedRowMaximumIconHeight > 0) ? fixedRowMaximumIconHeight
+                : Math.max(fixedRowIconHeight, getModelFull().getMaximumIconHeight());
+        fixedRowIconHeight = iconHeight;
+        if (iconHeight > 0) {
+            tallestIcon = zTallerIcon(tallestIcon, new ImageIcon(new BufferedImage(
+                    1, iconHeight, BufferedImage.TYPE_INT_ARGB)));
+        }
+        // Measure a sample row that shows the tallest icon.
+        CheckEntry sampleEntry = new CheckEntry("Sample").withIcon(tallestIcon);
+        Component rendererComponent = getCellRenderer().getTreeCellRendererComponent(
+                this, sampleEntry, false, false, true, -1, false);
+        return Math.max(1, rendererComponent.getPreferredSize().height);
+    }
+
+    /**
+     * zCheckTreeForInvalidEntries, This method confirms that the tree contains a CheckModel, with
+     * only CheckEntry instances. This will throw a RuntimeException if the tree contains any
+     * entries that are not CheckEntry instances, or if the tree model or the tree entries have any
+     * other problems.
+     */
+    private void zCheckTreeForInvalidEntries() {
+        TreeModel model = getModel();
+        if (model == null) {
+            throw new RuntimeException("JCheckboxTree.checkTreeForInvalidNodes(), "
+                    + "The tree model is null.");
+        }
+        if (!(model instanceof CheckModel)) {
+            throw new RuntimeException("JCheckboxTree.checkTreeForInvalidNodes(), "
+                    + "The tree model is not an instance of CheckModel.");
+        }
+        Object root = model.getRoot();
+        if (root == null) {
+            // A null root entry is allowed.
+        } else if (!(root instanceof CheckEntry)) {
+            throw new RuntimeException("JCheckboxTree.checkTreeForInvalidNodes(), "
+                    + "The root entry is not an instance of CheckEntry.");
+        }
+        try {
+            TreeIterator iterator = new TreeIterator(this, true);
+            while (iterator.hasNext()) {
+                CheckEntry current = iterator.next();
+                if (current == null) {
+                    throw new RuntimeException("JCheckboxTree.checkTreeForInvalidNodes(), "
+                            + "An entry is set to null.");
+                }
+            }
+        } catch (Exception e) {
+            throw new RuntimeException("JCheckboxTree.checkTreeForInvalidNodes(), "
+                    + "Could not loop through the entries. The exception was: " + e.getMessage());
+        }
+    }
+
+    /**
+     * zGetSampleTreeModel, This creates and returns a sample CheckModel instance. The model is
+     * populated with sample tree entries. This is used primarily for demo applications, to show
+     * something interesting in the tree.
+     */
+    public static CheckModel zGetSampleTreeModel() {
+        // Get an icon to use in the model.
+        Icon iconOriginal = javax.swing.UIManager.getIcon("OptionPane.informationIcon");
+        Image imageOriginal = Use.iconToImage(iconOriginal);
+        Image imageScaled = imageOriginal.getScaledInstance(16, 16, Image.SCALE_SMOOTH);
+        Icon icon = new ImageIcon(imageScaled);
+        // Create a tree entry structure.
+        CheckEntry root = new CheckEntry("JTree");
+        CheckEntry custom = new CheckEntry("Custom Entries");
+        root.add(custom);
+        custom.add(new CheckEntry("Entry without a checkbox.").withBoxHidden());
+        custom.add(new CheckEntry("Entry that is initially checked.").withBoxChecked(true));
+        custom.add(new CheckEntry("Entry with a custom image icon.").withIcon(icon));
+        CheckEntry colors = new CheckEntry("Colors");
+        root.add(colors);
+        colors.add(new CheckEntry("Purple").withColor(new Color(148, 0, 211)));
+        colors.add(new CheckEntry("Blue").withColor(Color.blue));
+        colors.add(new CheckEntry("Green").withColor(new Color(0, 120, 0)));
+        colors.add(new CheckEntry("Orange").withColor(new Color(230, 102, 0)));
+        colors.add(new CheckEntry("Red").withColor(Color.red));
+        CheckEntry food = new CheckEntry("Food");
+        root.add(food);
+        food.add(new CheckEntry("Hot dogs"));
+        food.add(new CheckEntry("Pizza"));
+        food.add(new CheckEntry("Ravioli"));
+        food.add(new CheckEntry("Bananas"));
+        CheckEntry coloredFood = new CheckEntry("Colorized Food");
+        food.add(coloredFood);
+        coloredFood.add(new CheckEntry("Green eggs and ham"));
+        coloredFood.add(new CheckEntry("Skittles bite sized candies"));
+        coloredFood.add(new CheckEntry("Painted Easter eggs"));
+        CheckEntry last = new CheckEntry("More stuff.");
+        root.add(last);
+        // Create and return the tree model.
+        CheckModel treeModel = new CheckModel(root);
+        return treeModel;
+    }
+
+    /**
+     * zGetSelectedRowEntries, This returns the entries of the selected rows that have a visible
+     * checkbox, in row order. Only the selection rows between the first and the last selected row
+     * are tested, and each test reads one bit of the selection model.
+     */
+    private ArrayList<CheckEntry> zGetSelectedRowEntries() {
+        ArrayList<CheckEntry> entries = new ArrayList<CheckEntry>();
+        TreeSelectionModel selection = getSelectionModel();
+        if (selection == null) {
+            return entries;
+        }
+        int firstRow = selection.getMinSelectionRow();
+        int lastRow = Math.min(selection.getMaxSelectionRow(), getRowCount() - 1);
+        for (int row = Math.max(firstRow, 0); (firstRow >= 0) && (row <= lastRow); ++row) {
+            if (selection.isRowSelected(row)) {
+                Object possibleEntry = getPathForRow(row).getLastPathComponent();
+                if ((possibleEntry instanceof CheckEntry)
+                        && (((CheckEntry) possibleEntry).checkboxVisible == BoxVisible.Show)) {
+                    entries.add((CheckEntry) possibleEntry);
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * zGetToggledCheckState, This returns the check state that the supplied entry should receive
+     * when it is toggled. In tri-state mode, a folder with checkable descendants becomes checked
+     * unless it is already fully checked.
+     */
+    private static boolean zGetToggledCheckState(CheckModel model, CheckEntry entry) {
+        if (model.isTriStateEnabled() && (entry.getCheckableDescendantCount() > 0)) {
+            return (entry.getTriState() != TriState.Checked);
+        }
+        return !entry.isChecked();
+    }
+
+    /**
+     * zInitializeTreeSettings, This initializes the tree to have the default settings. Note that
+     * this function is not responsible for creating a tree model or a root node. That task should
+     * be done by the specific constructors before this function is called.
+     */
+    private void zInitializeTreeSettings() {
+        setEnabled(true);
+        setRootVisible(false);
+        setShowsRootHandles(true);
+        setRowHeight(0);
+        setToggleClickCount(0);
+        setCellRenderer(new CheckCellRenderer(this));
+        this.selectionModel.setSelectionMode(TreeSelectionModel.DISCONTIGUOUS_TREE_SELECTION);
+        selectionBackgroundColor = UIManager.getColor("Tree.selectionBackground");
+        selectionForegroundColor = UIManager.getColor("Tree.selectionForeground");
+        // This changes the line style for the metal look and feel.
+        putClientProperty("JTree.lineStyle", "Angled");
+        getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, 0),
+                TOGGLE_CHECKS_ACTION_KEY);
+        getActionMap().put(TOGGLE_CHECKS_ACTION_KEY, new ToggleChecksAction());
+    }
+
+    /**
+     * zLoadLazyChildren, If the supplied entry is a lazy entry with unloaded children, this will
+     * insert a placeholder row under the entry, and then call the child provider from a background
+     * thread. When the provider returns, the placeholder is replaced with the new children on the
+     * event dispatch thread. If the provider fails, the entry is returned to the unloaded state so
+     * that loading can be retried, and the exception is stored in the entry. The failure can be
+     * observed with a tree model listener, and read with CheckEntry.getChildLoadingFailure().
+     */
+    private void zLoadLazyChildren(final CheckEntry entry) {
+        final CheckModel model = getModelFull();
+        if (!model.beginChildLoading(entry, lazyLoadingText)) {
+            return;
+        }
+        final ChildProvider provider = entry.childProvider;
+        SwingWorker<List<CheckEntry>, Void> worker = new SwingWorker<List<CheckEntry>, Void>() {
+            @Override
+            protected List<CheckEntry> doInBackground() throws Exception {
+                return provider.getChildren(entry);
+            }
+
+            @Override
+            protected void done() {
+                List<CheckEntry> children;
+                try {
+                    children = get();
+                } catch (Exception e) {
+                    Throwable cause = (e.getCause() == null) ? e : e.getCause();
+                    model.failChildLoading(entry, cause);
+                    return;
+                }
+                model.finishChildLoading(entry, children);
+            }
+        };
+        worker.execute();
+    }
+
+    /**
+     * zReportHeldExpandedPaths, This reports the supplied paths, which were expanded while the
+     * expansion notifications were held back. Every path is added to the expanded entries set, but
+     * an expansion event is only sent for each path whose parent was not also held back. The tree
+     * UI handles each event by laying out the expanded descendants of the reported path.
+     */
+    private void zReportHeldExpandedPaths(ArrayList<TreePath> paths) {
+        Set<CheckEntry> heldEntries = Collections.newSetFromMap(
+                new IdentityHashMap<CheckEntry, Boolean>());
+        for (TreePath path : paths) {
+            heldEntries.add((CheckEntry) path.getLastPathComponent());
+        }
+        expandedEntries.addAll(heldEntries);
+        for (TreePath path : paths) {
+            TreePath parentPath = path.getParentPath();
+            if ((parentPath == null) || (!heldEntries.contains(parentPath.getLastPathComponent()))) {
+                super.fireTreeExpanded(path);
+            }
+        }
+    }
+
+    /**
+     * zSetEntryChecked, This sets the check state of the supplied entry. In tri-state mode, a
+     * folder with checkable descendants applies the new state to the folder and all of its
+     * checkable descendants.
+     */
+    private static void zSetEntryChecked(CheckModel model, CheckEntry entry, boolean checked) {
+        if (model.isTriStateEnabled() && (entry.getCheckableDescendantCount() > 0)) {
+            model.setSubtreeChecked(entry, checked);
+        } else {
+            entry.setChecked(checked);
+        }
+    }
+
+    /**
+     * zTallerIcon, This returns the taller of the two supplied icons. Either icon may be null.
+     */
+    private static Icon zTallerIcon(Icon first, Icon second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return (second.getIconHeight() > first.getIconHeight()) ? second : first;
+    }
+
+    /**
+     * CheckGestureHandler, This implements the check gestures of the tree. See also,
+     * checkGesturesEnabled. While the pointer is dragged, the entries of the passed rows are only
+     * collected. A timer applies the collected entries in one model update batch per display
+     * frame, and the last entries are applied when the mouse button is released.
+     */
+    private class CheckGestureHandler implements ActionListener {
+
+        /**
+         * anchorEntry, This holds the entry of the last clicked checkbox, or null. A shift click
+         * applies the new state to the rows between this entry and the clicked entry.
+         */
+        CheckEntry anchorEntry = null;
+
+        /**
+         * dragging, This is true while a drag that began on a checkbox is active.
+         */
+        boolean dragging = false;
+
+        /**
+         * dragState, This holds the check state that is applied to the passed rows.
+         */
+        boolean dragState = false;
+
+        /**
+         * flushTimer, This applies the pending entries once per display frame.
+         */
+        final Timer flushTimer;
+
+        /**
+         * lastDragRow, This holds the row that the pointer was over at the previous drag event.
+         */
+        int lastDragRow = -1;
+
+        /**
+         * pendingEntries, This holds the entries that were passed, but not yet changed.
+         */
+        final ArrayList<CheckEntry> pendingEntries = new ArrayList<CheckEntry>();
+
+        CheckGestureHandler() {
+            flushTimer = new Timer(CHECK_DRAG_FRAME_MILLIS, this);
+            flushTimer.setRepeats(false);
+        }
+
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            zFlush();
+        }
+
+        /**
+         * zAddRowEntry, This adds the entry of the supplied row to the pending entries, if the
+         * entry has a visible checkbox.
+         */
+        void zAddRowEntry(int row) {
+            Object possibleEntry = getPathForRow(row).getLastPathComponent();
+            if ((possibleEntry instanceof CheckEntry)
+                    && (((CheckEntry) possibleEntry).checkboxVisible == BoxVisible.Show)) {
+                pendingEntries.add((CheckEntry) possibleEntry);
+            }
+        }
+
+        /**
+         * zDragTo, This collects the entries of the rows that the pointer passed since the last
+         * drag event. A passed row is collected if the pointer column crosses its checkbox
+         * activation zone. This also collects rows that were skipped by a fast pointer movement.
+         */
+        void zDragTo(Point point) {
+            int row = getClosestRowForLocation(point.x, point.y);
+            if ((row < 0) || (lastDragRow < 0) || (row == lastDragRow)
+                    || (!(cellRenderer instanceof CheckRowRenderer))) {
+                return;
+            }
+            CheckRowRenderer rowRenderer = (CheckRowRenderer) cellRenderer;
+            int step = (row > lastDragRow) ? 1 : -1;
+            for (int passedRow = lastDragRow + step; passedRow != row + step; passedRow += step) {
+                // Each passed row is tested at its vertical center, in the column of the pointer.
+                Rectangle rowBounds = getRowBounds(passedRow);
+                if (rowBounds == null) {
+                    continue;
+                }
+                Object possibleEntry = getPathForRow(passedRow).getLastPathComponent();
+                CheckEntry rowEntry = (possibleEntry instanceof CheckEntry)
+                        ? (CheckEntry) possibleEntry : null;
+                if (rowRenderer.isPointInCheckboxActivationZone(rowEntry, rowBounds,
+                        new Point(point.x, rowBounds.y + (rowBounds.height / 2)))) {
+                    zAddRowEntry(passedRow);
+                }
+            }
+            lastDragRow = row;
+            if ((!pendingEntries.isEmpty()) && (!flushTimer.isRunning())) {
+                flushTimer.start();
+            }
+        }
+
+        /**
+         * zFinishDrag, This applies any pending entries, and ends the drag.
+         */
+        void zFinishDrag() {
+            if (dragging) {
+                flushTimer.stop();
+                zFlush();
+                dragging = false;
+                lastDragRow = -1;
+            }
+        }
+
+        /**
+         * zFlush, This applies the drag state to all of the pending entries, in one model update
+         * batch. Entries that were removed from the tree since they were passed are skipped.
+         */
+        void zFlush() {
+            if (pendingEntries.isEmpty()) {
+                return;
+            }
+            CheckModel model = getModelFull();
+            CheckEntry root = getRoot();
+            model.beginUpdate();
+            try {
+                for (CheckEntry entry : pendingEntries) {
+                    if (entry.getRootLocal() == root) {
+                        zSetEntryChecked(model, entry, dragState);
+                    }
+                }
+            } finally {
+                pendingEntries.clear();
+                model.endUpdate();
+            }
+        }
+
+        /**
+         * zPress, This handles a press on the checkbox of the supplied row. With the shift key,
+         * the new state is applied to every row between the anchor entry and the pressed row, in
+         * one batch. Otherwise only the pressed entry is changed. In both cases, a drag begins.
+         */
+        void zPress(int row, CheckEntry entry, boolean newState, boolean shiftDown) {
+            zFinishDrag();
+            dragState = newState;
+            int anchorRow = -1;
+            if (shiftDown && (anchorEntry != null) && (anchorEntry.getRootLocal() == getRoot())) {
+                anchorRow = getRowForPath(new TreePath(anchorEntry.getPath()));
+            }
+            if (anchorRow >= 0) {
+                for (int rangeRow = Math.min(anchorRow, row);
+                        rangeRow <= Math.max(anchorRow, row); ++rangeRow) {
+                    zAddRowEntry(rangeRow);
+                }
+                zFlush();
+            } else {
+                zSetEntryChecked(getModelFull(), entry, newState);
+            }
+            anchorEntry = entry;
+            dragging = true;
+            lastDragRow = row;
+        }
+    }
+
+    /**
+     * CheckRowRepainter, This repaints the rows that display a changed check state. Only the rows
+     * of the changed entries are repainted, and in the tri-state mode, also the rows of their
+     * ancestors. Changed subtrees are repainted from the subtree root row to the bottom of the
+     * tree. Changes that involve many entries repaint the whole tree.
+     */
+    private class CheckRowRepainter implements CheckStateListener {
+
+        @Override
+        public void checkStateChanged(CheckStateEvent event) {
+            CheckEntry[] changedEntries = event.getChangedEntries();
+            CheckEntry[] changedSubtrees = event.getChangedSubtrees();
+            if (event.isAllEntriesChanged()
+                    || ((changedEntries.length + changedSubtrees.length) > ROW_REPAINT_LIMIT)) {
+                repaint();
+                return;
+            }
+            boolean repaintAncestors = event.getModel().isTriStateEnabled();
+            for (CheckEntry entry : changedEntries) {
+                zRepaintRows(entry, false, repaintAncestors);
+            }
+            for (CheckEntry subtreeRoot : changedSubtrees) {
+                zRepaintRows(subtreeRoot, true, repaintAncestors);
+            }
+        }
+
+        /**
+         * zRepaintRows, This repaints the row of the supplied entry, if the row is visible. If
+         * toBottom is true, then everything from the top of the row to the bottom of the tree is
+         * repainted. If withAncestors is true, then the visible rows of the ancestors are also
+         * repainted.
+         */
+        private void zRepaintRows(CheckEntry entry, boolean toBottom, boolean withAncestors) {
+            for (CheckEntry node = entry; node != null; node = (CheckEntry) node.getParent()) {
+                CheckEntry parent = (CheckEntry) node.getParent();
+                // The entry expansion test does not allocate, so rows that are collapsed inside a
+                // parent are skipped without creating a tree path.
+                boolean rowVisible = (parent == null) ? isRootVisible() : isEntryExpanded(parent);
+                Rectangle bounds = (rowVisible) ? getPathBounds(new TreePath(node.getPath())) : null;
+                if (bounds != null) {
+                    int height = (toBottom && (node == entry))
+                            ? (getHeight() - bounds.y) : bounds.height;
+                    repaint(0, bounds.y, getWidth(), height);
+                }
+                if (!withAncestors) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * ExpansionTracker, This keeps the expandedEntries set in step with the expanded state that is
+     * stored inside JTree. The expansion events report every change that is made through the JTree
+     * expansion functions. The tree model events are used to apply the changes that JTree makes
+     * without firing expansion events, when entries are removed or when a structure changes.
+     */
+    private class ExpansionTracker implements TreeExpansionListener, TreeModelListener {
+
+        @Override
+        public void treeCollapsed(TreeExpansionEvent event) {
+            expandedEntries.remove(event.getPath().getLastPathComponent());
+        }
+
+        @Override
+        public void treeExpanded(TreeExpansionEvent event) {
+            expandedEntries.add((CheckEntry) event.getPath().getLastPathComponent());
+        }
+
+        @Override
+        public void treeNodesChanged(TreeModelEvent event) {
+            zCheckFixedRowIconHeight(event.getChildren(), false);
+        }
+
+        @Override
+        public void treeNodesInserted(TreeModelEvent event) {
+            zCheckFixedRowIconHeight(event.getChildren(), true);
+        }
+
+        @Override
+        public void treeNodesRemoved(TreeModelEvent event) {
+            // JTree forgets the expanded state of the removed entries and their descendants. Only
+            // the removed subtrees are visited, and entries without children are never expanded.
+            Object[] removedChildren = event.getChildren();
+            if ((removedChildren != null) && !expandedEntries.isEmpty()) {
+                ArrayDeque<CheckEntry> stack = new ArrayDeque<CheckEntry>();
+                for (Object removed : removedChildren) {
+                    stack.push((CheckEntry) removed);
+                }
+                while (!stack.isEmpty()) {
+                    CheckEntry entry = stack.pop();
+                    expandedEntries.remove(entry);
+                    for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                        CheckEntry child = entry.getChildAt(i);
+                        if (child.getChildCount() > 0) {
+                            stack.push(child);
+                        }
+                    }
+                }
+            }
+            Object parent = event.getTreePath().getLastPathComponent();
+            if (getModel().isLeaf(parent)) {
+                expandedEntries.remove(parent);
+            }
+        }
+
+        @Override
+        public void treeStructureChanged(TreeModelEvent event) {
+            zCheckFixedRowIconHeight(null, true);
+            TreePath path = event.getTreePath();
+            if ((path == null) || (path.getPathCount() == 1)) {
+                zResetToRoot();
+                return;
+            }
+            // JTree forgets the expanded state of every descendant, and keeps the changed entry
+            // expanded only if it was visibly expanded.
+            CheckEntry changed = (CheckEntry) path.getLastPathComponent();
+            for (Iterator<CheckEntry> it = expandedEntries.iterator(); it.hasNext();) {
+                CheckEntry entry = it.next();
+                if ((entry != changed) && changed.isNodeDescendant(entry)) {
+                    it.remove();
+                }
+            }
+            if (isExpanded(path)) {
+                expandedEntries.add(changed);
+            } else {
+                expandedEntries.remove(changed);
+            }
+        }
+
+        /**
+         * zCheckFixedRowIconHeight, In the fixed row height mode, this calculates the row height
+         * again if the supplied entries include an icon that is taller than the icon height of the
+         * current rows. If checkModel is true, the icons that are registered with the model are
+         * also compared, because added entries may have descendants with taller icons. Changed
+         * entries only need their own icons compared. The entries may be null.
+         */
+        void zCheckFixedRowIconHeight(Object[] entries, boolean checkModel) {
+            if ((!fixedRowHeightEnabled) || (fixedRowMaximumIconHeight > 0)) {
+                return;
+            }
+            int iconHeight = (checkModel) ? getModelFull().getMaximumIconHeight() : 0;
+            if (entries != null) {
+                for (Object entry : entries) {
+                    Icon icon = (entry instanceof CheckEntry)
+                            ? ((CheckEntry) entry).userIcon : null;
+                    if (icon != null) {
+                        iconHeight = Math.max(iconHeight, icon.getIconHeight());
+                    }
+                }
+            }
+            if (iconHeight > fixedRowIconHeight) {
+                fixedRowIconHeight = iconHeight;
+                updateFixedRowHeight();
+            }
+        }
+
+        /**
+         * zResetToRoot, This clears the expanded entries, and then records the expanded state of
+         * the root entry. JTree does the same when a new model or a new root is supplied.
+         */
+        void zResetToRoot() {
+            expandedEntries.clear();
+            CheckEntry root = getRoot();
+            if ((root != null) && isExpanded(new TreePath(root))) {
+                expandedEntries.add(root);
+            }
+        }
+    }
+
+    /**
+     * ToggleChecksAction, This action toggles the check state of the selected rows. See also,
+     * TOGGLE_CHECKS_ACTION_KEY and toggleSelectedRowsChecked().
+     */
+    private class ToggleChecksAction extends AbstractAction {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public void actionPerformed(ActionEvent event) {
+            if (isEnabled()) {
+                toggleSelectedRowsChecked();
+            }
+        }
+    }
+
+}
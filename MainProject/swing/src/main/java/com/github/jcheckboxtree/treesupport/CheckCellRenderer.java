@@ -6,7 +6,6 @@ import com.github.jcheckboxtree.components.JCheckboxTree;
 import java.awt.*;
 import javax.swing.*;
 import javax.swing.border.*;
-import javax.swing.tree.TreeCellRenderer;
 
 /**
  * CheckCellRenderer, This class is used for displaying checkbox tree entries. This implements the
@@ -14,9 +13,25 @@ import javax.swing.tree.TreeCellRenderer;
  *
  * This class has a panel, a checkbox, and a customized DefaultTreeCellRenderer. The default
  * renderer does a significant portion of the work for drawing the tree entries.
+ *
+ * See also, FastCheckCellRenderer, which draws the same rows without any nested components or
+ * layout managers.
  */
 public class CheckCellRenderer extends JPanel
-        implements TreeCellRenderer {
+        implements CheckRowRenderer {
+
+    /**
+     * ACTIVATION_ZONE_BORDER, This is the width of the empty border around the checkbox, inside the
+     * checkbox activation zone panel. This must match the border that is set in initComponents().
+     */
+    private static final int ACTIVATION_ZONE_BORDER = 2;
+
+    /**
+     * checkboxPreferredSize, This holds the preferred size of the checkbox, or null if the size has
+     * not been measured yet for the current look and feel. This is also used to calculate the
+     * checkbox hit zones.
+     */
+    private Dimension checkboxPreferredSize = null;
 
     /**
      * defaultRendererLabel, This holds our instance of the custom default tree cell renderer. This
@@ -55,6 +70,29 @@ public class CheckCellRenderer extends JPanel
      */
     private final Color defaultTextForegroundColor;
 
+    /**
+     * emptyIcon, This is used when a row has no icon. A single instance is used, so that rows
+     * without an icon can share the same row size cache key.
+     */
+    private final Icon emptyIcon = new ImageIcon();
+
+    /**
+     * partialCheckIcon, This holds the icon that is used to draw the checkbox of partially checked
+     * entries, when the tri-state mode of the tree model is enabled.
+     */
+    private final Icon partialCheckIcon = new PartialCheckIcon();
+
+    /**
+     * renderedEntry, This holds the entry that was most recently configured for rendering, or null
+     * if the most recently rendered value was not an entry.
+     */
+    private CheckEntry renderedEntry = null;
+
+    /**
+     * rowSizeCache, This holds the measured label area sizes of the rendered entries.
+     */
+    private final RowSizeCache rowSizeCache = new RowSizeCache();
+
     /**
      * tree, This holds the tree associated with this renderer.
      */
@@ -103,7 +141,8 @@ public class CheckCellRenderer extends JPanel
     /**
      * ensureMinimumRowHeight, This checks the tree row height, and increases it to meet the
      * supplied minimum row height whenever needed. Note that this function can only increased the
-     * tree row height, it can never decrease it.
+     * tree row height, it can never decrease it. This does nothing when the fixed row height mode
+     * of the tree is turned on, because that mode calculates the row height in advance.
      *
      * Technical Note: This function was created so that the tree cell renderer can adjust the tree
      * row height to meet the minimum required size of any default or custom icons which are set to
@@ -113,7 +152,7 @@ public class CheckCellRenderer extends JPanel
      * classes.
      */
     private void ensureMinimumRowHeight(int minimumRowHeight) {
-        if (tree.getRowHeight() < minimumRowHeight) {
+        if ((!tree.isFixedRowHeightEnabled()) && (tree.getRowHeight() < minimumRowHeight)) {
             tree.setRowHeight(minimumRowHeight);
         }
     }
@@ -164,8 +203,8 @@ public class CheckCellRenderer extends JPanel
     public Dimension getPreferredSize() {
         // Gather some variables we will need.
         int minimumWidth = 50;
-        Dimension checkboxPreferredSize = checkbox.getPreferredSize();
-        Dimension labelAreaPreferredSize = defaultRendererLabel.getPreferredSize();
+        Dimension checkboxPreferredSize = zGetCheckboxPreferredSize();
+        Dimension labelAreaPreferredSize = zGetLabelAreaPreferredSize();
         // Calculate the width.
         int widthResult = checkboxPreferredSize.width
                 + labelAreaPreferredSize.width + tree.rowWidthAddedPixels;
@@ -195,18 +234,24 @@ public class CheckCellRenderer extends JPanel
         // using the default string value for the unexpected entry object.
         if ((!(possibleEntry instanceof CheckEntry))
                 || (!(possibleTree instanceof JCheckboxTree))) {
+            renderedEntry = null;
             return defaultRendererLabel.getTreeCellRendererComponent(
                     possibleTree, possibleEntry, selected, expanded, leaf, row, hasFocus);
         }
         // All received instances are the expected class type.
         JCheckboxTree checkTree = (JCheckboxTree) possibleTree;
         CheckEntry entry = (CheckEntry) possibleEntry;
+        renderedEntry = entry;
         // Configure the default renderer based on the passed in components.
         defaultRendererLabel.getTreeCellRendererComponent(
                 checkTree, entry.text, selected, expanded, leaf, row, hasFocus);
         // Configure the checkbox state.
+        // In tri-state mode, the state is read from the entry counters, without any traversal.
         checkbox.setVisible(entry.isCheckboxVisible());
-        checkbox.setSelected(entry.checked);
+        TriState triState = (checkTree.getModelFull().isTriStateEnabled())
+                ? entry.getTriState() : ((entry.isChecked()) ? TriState.Checked : TriState.Unchecked);
+        checkbox.setSelected(triState == TriState.Checked);
+        checkbox.setIcon((triState == TriState.Partial) ? partialCheckIcon : null);
 
         // Enable or disable the visual components based on the tree enabled setting.
         boolean treeEnabled = checkTree.isEnabled();
@@ -254,7 +299,8 @@ public class CheckCellRenderer extends JPanel
         // Set the appropriate icon for this entry.
         // This can also hide the icon, when no icon is desired.
         // Also save the icon height for use by the getPreferredSize() function.
-        boolean rowIsFolder = (entry.getChildCount() > 0);
+        // Lazy entries with unloaded children are also displayed as folders.
+        boolean rowIsFolder = !entry.isLeaf();
         boolean rowIsExpanded = checkTree.isExpanded(row);
         Icon userIcon = entry.userIcon;
         if (entry.userIconVisible && userIcon != null) {
@@ -270,7 +316,7 @@ public class CheckCellRenderer extends JPanel
             defaultRendererLabel.setIcon(iconLeaf);
             ensureMinimumRowHeight(iconLeaf.getIconHeight());
         } else {
-            defaultRendererLabel.setIcon(new ImageIcon());
+            defaultRendererLabel.setIcon(emptyIcon);
         }
 
         // Return this class instance. This class is a panel that contains the checkbox and the 
@@ -279,34 +325,61 @@ public class CheckCellRenderer extends JPanel
     }
 
     /**
-     * isPointInCheckbox, Returns true if the supplied point is inside the checkbox for this cell.
+     * isPointInCheckboxActivationZone, Returns true if the supplied point is inside the checkbox
+     * activation zone of the row with the supplied entry and bounds.
+     *
+     * The zone is calculated arithmetically from the cached checkbox size, instead of being read
+     * from the renderer panels. The panels hold the layout of whichever row was rendered last,
+     * which is not necessarily the row that was clicked. The zone is the checkbox plus the
+     * activation zone border on every side, placed at the left edge of the row and vertically
+     * centered in the row, in the same way that the form layout places the zone panel. A row with a
+     * hidden checkbox has no zone, because the form layout collapses the left side of that row.
+     */
+    @Override
+    public boolean isPointInCheckboxActivationZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree) {
+        if ((entry == null) || (!entry.isCheckboxVisible())) {
+            return false;
+        }
+        return zIsPointInActivationZone(rowBounds, mouseLocationRelativeToTree);
+    }
+
+    /**
+     * isPointInCheckboxActivationZone, Deprecated because the row entry is needed to know whether
+     * the row shows a checkbox. isPointInCheckboxActivationZone(CheckEntry, Rectangle, Point)
+     * should be used instead. This assumes that the row shows a visible checkbox.
      */
+    @Deprecated
     public boolean isPointInCheckboxActivationZone(
             Rectangle rowBounds, Point mouseLocationRelativeToTree) {
-        int locationRelativeToRow_X = mouseLocationRelativeToTree.x - rowBounds.x;
-        int locationRelativeToRow_Y = mouseLocationRelativeToTree.y - rowBounds.y;
-        // We do not have to adjust for the left side panel, because origin of the left side panel 
-        // is the same as the upper left corner of the row.
-        Rectangle activationZoneBounds = checkboxActivationZonePanel.getBounds();
-        int locationRelativeToActivationZone_X = locationRelativeToRow_X - activationZoneBounds.x;
-        int locationRelativeToActivationZone_Y = locationRelativeToRow_Y - activationZoneBounds.y;
-        boolean inActivationZone = checkboxActivationZonePanel.contains(
-                locationRelativeToActivationZone_X, locationRelativeToActivationZone_Y);
-        return inActivationZone;
+        return zIsPointInActivationZone(rowBounds, mouseLocationRelativeToTree);
+    }
+
+    /**
+     * isPointInInactiveZone, Deprecated because the row entry is needed to know whether the row
+     * shows a checkbox. isPointInInactiveZone(CheckEntry, Rectangle, Point) should be used
+     * instead. This assumes that the row shows a visible checkbox.
+     */
+    @Deprecated
+    public boolean isPointInInactiveZone(Rectangle rowBounds, Point mouseLocationRelativeToTree) {
+        return zIsPointInInactiveZone(rowBounds, mouseLocationRelativeToTree);
     }
 
     /**
      * isPointInInactiveZone, Returns true only if the supplied point is in the inactive area
      * outside the checkbox activation zone. This will never return true if the point is inside the
-     * checkbox activation zone.
+     * checkbox activation zone. Like the activation zone, the left side of the row is calculated
+     * arithmetically. The left side is as wide as the activation zone, and as tall as the row. A
+     * row with a hidden checkbox has no inactive zone, so that a press on its icon or its text
+     * always reaches the tree.
      */
-    public boolean isPointInInactiveZone(Rectangle rowBounds, Point mouseLocationRelativeToTree) {
-        int locationRelativeToRow_X = mouseLocationRelativeToTree.x - rowBounds.x;
-        int locationRelativeToRow_Y = mouseLocationRelativeToTree.y - rowBounds.y;
-        // We do not have to adjust for the left side panel, because origin of the left side panel 
-        // is the same as the upper left corner of the row.
-        return leftSideBackgroundPanel.contains(locationRelativeToRow_X, locationRelativeToRow_Y)
-                && !isPointInCheckboxActivationZone(rowBounds, mouseLocationRelativeToTree);
+    @Override
+    public boolean isPointInInactiveZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree) {
+        if ((entry == null) || (!entry.isCheckboxVisible())) {
+            return false;
+        }
+        return zIsPointInInactiveZone(rowBounds, mouseLocationRelativeToTree);
     }
 
     public JPanel getLeftSideBackgroundPanel() {
@@ -325,6 +398,93 @@ public class CheckCellRenderer extends JPanel
         return defaultRendererPanel;
     }
 
+    /**
+     * clearRowSizeCache, This clears the cached row sizes, so that every row is measured again the
+     * next time that it is laid out. Rows are measured again automatically when their text, font or
+     * icon is changed, so this only needs to be called when a row size could change in some other
+     * way.
+     */
+    public void clearRowSizeCache() {
+        rowSizeCache.clear();
+    }
+
+    /**
+     * updateUI, This clears the cached sizes when the look and feel is changed.
+     */
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        checkboxPreferredSize = null;
+        // This is also called by the JPanel constructor, before the fields are initialized.
+        if (rowSizeCache != null) {
+            rowSizeCache.clear();
+        }
+    }
+
+    /**
+     * zGetCheckboxPreferredSize, This returns the preferred size of the checkbox. The size is
+     * measured once for each look and feel, and then cached. The size does not depend on the
+     * check state, because the partial check icon has the same size as the default check icon.
+     */
+    private Dimension zGetCheckboxPreferredSize() {
+        if (checkboxPreferredSize == null) {
+            checkboxPreferredSize = checkbox.getPreferredSize();
+        }
+        return checkboxPreferredSize;
+    }
+
+    /**
+     * zGetLabelAreaPreferredSize, This returns the preferred size of the label area of the rendered
+     * entry. The size is only measured if the rendered entry does not have a cached size for its
+     * current text, font and icon.
+     */
+    private Dimension zGetLabelAreaPreferredSize() {
+        if (renderedEntry == null) {
+            return defaultRendererLabel.getPreferredSize();
+        }
+        String text = defaultRendererLabel.getText();
+        Font font = defaultRendererLabel.getFont();
+        // A disabled label is measured with its disabled icon.
+        Icon icon = (defaultRendererLabel.isEnabled())
+                ? defaultRendererLabel.getIcon() : defaultRendererLabel.getDisabledIcon();
+        Dimension labelSize = rowSizeCache.getLabelSize(renderedEntry, text, font, icon);
+        if (labelSize == null) {
+            labelSize = defaultRendererLabel.getPreferredSize();
+            rowSizeCache.putLabelSize(renderedEntry, text, font, icon, labelSize);
+        }
+        return labelSize;
+    }
+
+    /**
+     * zIsPointInActivationZone, This returns true if the supplied point is inside the checkbox
+     * activation zone of a row with the supplied bounds that shows a visible checkbox.
+     */
+    private boolean zIsPointInActivationZone(
+            Rectangle rowBounds, Point mouseLocationRelativeToTree) {
+        Dimension checkboxSize = zGetCheckboxPreferredSize();
+        int zoneWidth = checkboxSize.width + (2 * ACTIVATION_ZONE_BORDER);
+        int zoneHeight = checkboxSize.height + (2 * ACTIVATION_ZONE_BORDER);
+        int extraHeight = rowBounds.height - zoneHeight;
+        int zoneTop = (extraHeight <= 0) ? 0 : ((extraHeight + 1) / 2);
+        // The origin of the left side panel is the same as the upper left corner of the row.
+        int x = mouseLocationRelativeToTree.x - rowBounds.x;
+        int y = mouseLocationRelativeToTree.y - rowBounds.y - zoneTop;
+        return (x >= 0) && (x < zoneWidth) && (y >= 0) && (y < zoneHeight);
+    }
+
+    /**
+     * zIsPointInInactiveZone, This returns true if the supplied point is in the inactive area of
+     * a row with the supplied bounds that shows a visible checkbox.
+     */
+    private boolean zIsPointInInactiveZone(
+            Rectangle rowBounds, Point mouseLocationRelativeToTree) {
+        int leftSideWidth = zGetCheckboxPreferredSize().width + (2 * ACTIVATION_ZONE_BORDER);
+        int x = mouseLocationRelativeToTree.x - rowBounds.x;
+        int y = mouseLocationRelativeToTree.y - rowBounds.y;
+        return (x >= 0) && (x < leftSideWidth) && (y >= 0) && (y < rowBounds.height)
+                && !zIsPointInActivationZone(rowBounds, mouseLocationRelativeToTree);
+    }
+
     /**
      * initComponents, This function is generated by JFormDesigner, and should not be modified by
      * hand. This creates and initializes the rendering components and panels.
@@ -0,0 +1,34 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+import javax.swing.tree.TreeCellRenderer;
+
+/**
+ * CheckRowRenderer, This interface is implemented by the tree cell renderers that can be used in a
+ * JCheckboxTree. In addition to rendering the rows, the renderer reports where the checkbox of a
+ * row is located, so that the tree can change the check state when the user clicks a checkbox.
+ *
+ * The available renderers are CheckCellRenderer (the default renderer), and FastCheckCellRenderer.
+ */
+public interface CheckRowRenderer extends TreeCellRenderer {
+
+    /**
+     * isPointInCheckboxActivationZone, This should return true if the supplied point is inside the
+     * checkbox activation zone of the row with the supplied entry and bounds. A click inside this
+     * zone changes the check state of the row. The entry is null if the row value is not a
+     * CheckEntry. A row without a visible checkbox has no activation zone.
+     */
+    boolean isPointInCheckboxActivationZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree);
+
+    /**
+     * isPointInInactiveZone, This should return true only if the supplied point is in the inactive
+     * area outside the checkbox activation zone of the row with the supplied entry and bounds. A
+     * click inside this zone is ignored, and does not change the tree selection. This should never
+     * return true if the point is inside the checkbox activation zone. A row without a visible
+     * checkbox has no inactive zone.
+     */
+    boolean isPointInInactiveZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree);
+}
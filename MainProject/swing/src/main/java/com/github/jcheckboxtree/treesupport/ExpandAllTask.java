@@ -0,0 +1,283 @@
+package com.github.jcheckboxtree.treesupport;
+
+import com.github.jcheckboxtree.components.JCheckboxTree;
+import java.util.ArrayDeque;
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreeModel;
+import javax.swing.tree.TreePath;
+
+/**
+ * ExpandAllTask, This class expands an entry and all of its descendant folder entries in a
+ * JCheckboxTree. The entries are expanded in "preorder traversal" order, using a loop instead of
+ * recursion, so deep trees can not overflow the stack. A tree path is only created for folder
+ * entries. Leaf entries are never expanded, and do not need a tree path.
+ *
+ * A task can be run to completion immediately by calling runToCompletion(), or it can be run in
+ * slices on the event dispatch thread by calling start(). When a task runs in slices, each slice
+ * expands entries until the slice time budget is used, and then the remaining work is scheduled
+ * with SwingUtilities.invokeLater(). This lets the tree repaint itself, and respond to the user,
+ * between the slices. A running task can be cancelled at any time by calling cancel().
+ *
+ * An optional depth limit can be supplied. The starting entry has a depth of zero, its children
+ * have a depth of one, and so on. Entries that are deeper than the depth limit are not expanded.
+ *
+ * Lazy entries whose children have not been loaded are expanded, which starts the loading of their
+ * children. The loaded children are not expanded by the task, because they are supplied later.
+ *
+ * Usage example: tree.startExpandAll(entry, ExpandAllTask.NO_DEPTH_LIMIT, progressListener);
+ *
+ * This class should only be used from the event dispatch thread.
+ */
+public class ExpandAllTask {
+
+    /**
+     * DEFAULT_SLICE_MILLIS, This is the default time budget of each slice, in milliseconds. This
+     * leaves part of each 60 Hz display frame for painting.
+     */
+    static public final int DEFAULT_SLICE_MILLIS = 12;
+
+    /**
+     * NO_DEPTH_LIMIT, This can be supplied as the maximum depth, to expand the descendants at any
+     * depth.
+     */
+    static public final int NO_DEPTH_LIMIT = -1;
+
+    /**
+     * ProgressListener, This interface can be implemented to receive the progress of a task that is
+     * running in slices. The listener is called on the event dispatch thread after every slice,
+     * and once more after the task is finished or cancelled.
+     */
+    public interface ProgressListener {
+
+        /**
+         * expandProgress, This is called after each slice of the supplied task. Use the task
+         * functions getExpandedCount(), isFinished() and isCancelled() to read the progress.
+         */
+        void expandProgress(ExpandAllTask task);
+    }
+
+    /**
+     * cancelled, This is true if the task has been cancelled.
+     */
+    private boolean cancelled = false;
+
+    /**
+     * expandedCount, This holds the number of entries that have been expanded by this task.
+     */
+    private int expandedCount = 0;
+
+    /**
+     * finished, This is true if the task has finished, either because every entry was expanded, or
+     * because the task was cancelled.
+     */
+    private boolean finished = false;
+
+    /**
+     * maximumDepth, This holds the depth limit of this task, or NO_DEPTH_LIMIT.
+     */
+    private final int maximumDepth;
+
+    /**
+     * pendingFolders, This holds the folder entries that still need to be expanded, with the next
+     * folder on top of the stack.
+     */
+    private final ArrayDeque<PendingFolder> pendingFolders = new ArrayDeque<PendingFolder>();
+
+    /**
+     * progressListener, This holds the progress listener, or null if there is no listener.
+     */
+    private final ProgressListener progressListener;
+
+    /**
+     * sliceMillis, This holds the time budget of each slice, in milliseconds.
+     */
+    private int sliceMillis = DEFAULT_SLICE_MILLIS;
+
+    /**
+     * started, This is true if the task has been started in slices.
+     */
+    private boolean started = false;
+
+    /**
+     * tree, This holds the tree whose entries are expanded.
+     */
+    private final JCheckboxTree tree;
+
+    /**
+     * Constructor. This creates a task that will expand the last entry of the starting path, and all
+     * of its descendant folder entries down to the maximum depth. The progress listener may be
+     * null. The task does not do anything until runToCompletion() or start() is called.
+     */
+    public ExpandAllTask(JCheckboxTree tree, TreePath startingPath, int maximumDepth,
+            ProgressListener progressListener) {
+        this.tree = tree;
+        this.maximumDepth = maximumDepth;
+        this.progressListener = progressListener;
+        if (startingPath != null) {
+            pendingFolders.push(new PendingFolder(startingPath, 0));
+        }
+    }
+
+    /**
+     * cancel, This cancels the task. The entries that were already expanded will stay expanded. If
+     * the task is running in slices, the progress listener will be notified once more.
+     */
+    public void cancel() {
+        if (finished) {
+            return;
+        }
+        cancelled = true;
+        if (!started) {
+            zFinish();
+        }
+    }
+
+    /**
+     * getExpandedCount, This returns the number of entries that have been expanded by this task.
+     */
+    public int getExpandedCount() {
+        return expandedCount;
+    }
+
+    /**
+     * getPendingCount, This returns the number of known folder entries that are still waiting to be
+     * expanded. This number can increase while the task is running, because the children of each
+     * expanded entry are added when the entry is expanded.
+     */
+    public int getPendingCount() {
+        return pendingFolders.size();
+    }
+
+    /**
+     * isCancelled, This returns true if the task has been cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * isFinished, This returns true if the task has finished, either because every entry was
+     * expanded, or because the task was cancelled.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * runToCompletion, This expands all of the remaining entries immediately, on the current
+     * thread.
+     */
+    public void runToCompletion() {
+        if (!finished) {
+            zExpandUntil(Long.MAX_VALUE);
+            zFinish();
+        }
+    }
+
+    /**
+     * setSliceMillis, This sets the time budget of each slice, in milliseconds. This should be
+     * called before the task is started. Values below one are treated as one.
+     */
+    public void setSliceMillis(int sliceMillis) {
+        this.sliceMillis = Math.max(1, sliceMillis);
+    }
+
+    /**
+     * start, This starts running the task in slices on the event dispatch thread. The first slice is
+     * run immediately. This does nothing if the task was already started or has finished.
+     */
+    public void start() {
+        if (started || finished) {
+            return;
+        }
+        started = true;
+        zRunSlice();
+    }
+
+    /**
+     * zExpandUntil, This expands pending folder entries until every entry is expanded, the task is
+     * cancelled, or the supplied System.nanoTime() deadline has passed. The deadline is checked
+     * after every few expansions, because reading the clock is not free.
+     */
+    private void zExpandUntil(long deadlineNanos) {
+        TreeModel model = tree.getModel();
+        Object root = model.getRoot();
+        int expansionsSinceClockCheck = 0;
+        while ((!pendingFolders.isEmpty()) && (!cancelled)) {
+            PendingFolder folder = pendingFolders.pop();
+            CheckEntry entry = (CheckEntry) folder.path.getLastPathComponent();
+            // Skip any entries that were removed from the tree since they were found.
+            if ((entry.getRootLocal() != root) || model.isLeaf(entry)) {
+                continue;
+            }
+            tree.expandPath(folder.path);
+            ++expandedCount;
+            if ((maximumDepth == NO_DEPTH_LIMIT) || (folder.depth < maximumDepth)) {
+                // The children are pushed in reverse order, so that they are expanded in order.
+                for (int i = entry.getChildCount() - 1; i >= 0; --i) {
+                    CheckEntry child = entry.getChildAt(i);
+                    if (!model.isLeaf(child)) {
+                        pendingFolders.push(new PendingFolder(
+                                folder.path.pathByAddingChild(child), folder.depth + 1));
+                    }
+                }
+            }
+            if (++expansionsSinceClockCheck >= 16) {
+                expansionsSinceClockCheck = 0;
+                if (System.nanoTime() >= deadlineNanos) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * zFinish, This marks the task as finished, and notifies the progress listener.
+     */
+    private void zFinish() {
+        finished = true;
+        pendingFolders.clear();
+        if (progressListener != null) {
+            progressListener.expandProgress(this);
+        }
+    }
+
+    /**
+     * zRunSlice, This runs one slice of the task, and then either schedules the next slice or
+     * finishes the task.
+     */
+    private void zRunSlice() {
+        if (finished) {
+            return;
+        }
+        zExpandUntil(System.nanoTime() + (sliceMillis * 1000000L));
+        if (pendingFolders.isEmpty() || cancelled) {
+            zFinish();
+            return;
+        }
+        if (progressListener != null) {
+            progressListener.expandProgress(this);
+        }
+        SwingUtilities.invokeLater(new Runnable() {
+            @Override
+            public void run() {
+                zRunSlice();
+            }
+        });
+    }
+
+    /**
+     * PendingFolder, This holds a folder entry that is waiting to be expanded, with its depth below
+     * the starting entry.
+     */
+    private static class PendingFolder {
+
+        final int depth;
+        final TreePath path;
+
+        PendingFolder(TreePath path, int depth) {
+            this.path = path;
+            this.depth = depth;
+        }
+    }
+}
@@ -0,0 +1,598 @@
+package com.github.jcheckboxtree.treesupport;
+
+import com.github.jcheckboxtree.components.JCheckboxTree;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.util.Map;
+import javax.swing.Icon;
+import javax.swing.ImageIcon;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JTree;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.plaf.basic.BasicHTML;
+
+/**
+ * FastCheckCellRenderer, This is a lightweight alternative to CheckCellRenderer. This renderer
+ * draws the same rows as CheckCellRenderer, but it has no nested panels and no layout managers.
+ * Each row is drawn by a single paint call, which fills the row backgrounds, paints the checkbox,
+ * and then paints the entry icon and the entry text directly. The positions of all the row parts,
+ * including the checkbox hit zones, are calculated arithmetically from the checkbox preferred size.
+ *
+ * This renderer is recommended for trees that display thousands of rows at the same time, or that
+ * are scrolled frequently. To use this renderer, call: tree.setCellRenderer(new
+ * FastCheckCellRenderer(tree));
+ *
+ * The checkbox is drawn by painting a JCheckBox that is never added to any container, so the
+ * checkbox looks the same as it does in CheckCellRenderer for any look and feel. Entry text that
+ * contains HTML is drawn by a label component, because HTML text can not be drawn directly.
+ *
+ * The row layout matches CheckCellRenderer: The left side of the row holds the checkbox activation
+ * zone, which is the checkbox plus a 2 pixel border on every side, vertically centered in the row.
+ * When the checkbox is hidden, the left side collapses to the width of the border alone, and the
+ * row has no checkbox hit zones. The right side of the row holds the icon and the text, starting 3
+ * pixels after the left side.
+ *
+ * Implementation note: Like CustomDefaultTreeCellRenderer, this class overrides invalidate,
+ * validate, revalidate and repaint solely to improve performance.
+ */
+public class FastCheckCellRenderer extends JComponent implements CheckRowRenderer {
+
+    /**
+     * serialVersionUID, This is the serialization version of this class.
+     */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * ACTIVATION_ZONE_BORDER, This is the width of the border around the checkbox, inside the
+     * checkbox activation zone.
+     */
+    private static final int ACTIVATION_ZONE_BORDER = 2;
+
+    /**
+     * LABEL_LEFT_GAP, This is the number of pixels between the left side of the row and the icon.
+     */
+    private static final int LABEL_LEFT_GAP = 3;
+
+    /**
+     * LABEL_RIGHT_GAP, This is the number of pixels after the label area, at the end of the row.
+     */
+    private static final int LABEL_RIGHT_GAP = 1;
+
+    /**
+     * checkbox, This holds the checkbox that is used to paint the checkbox of each row. The
+     * checkbox is never added to a container.
+     */
+    private final JCheckBox checkbox = new JCheckBox();
+
+    /**
+     * checkboxSize, This holds the preferred size of the checkbox, for the current look and feel.
+     */
+    private Dimension checkboxSize;
+
+    /**
+     * defaultTextBackgroundColor, This holds the default color for unselected entry background
+     * areas.
+     */
+    private Color defaultTextBackgroundColor;
+
+    /**
+     * defaultTextForegroundColor, This holds the default color for unselected entry foreground
+     * areas.
+     */
+    private Color defaultTextForegroundColor;
+
+    /**
+     * desktopTextHints, This holds the text rendering hints of the desktop, or null if the desktop
+     * does not supply any hints. These are the same hints that swing labels use to draw text.
+     */
+    private Map<?, ?> desktopTextHints;
+
+    /**
+     * disabledTextColor, This holds the text color for a disabled tree.
+     */
+    private Color disabledTextColor;
+
+    /**
+     * emptyIcon, This is used when a row has no icon. This is the same empty icon that is used by
+     * CheckCellRenderer, so that the text position is the same in both renderers.
+     */
+    private final Icon emptyIcon = new ImageIcon();
+
+    /**
+     * iconClosedFolder, This holds the default icon for closed folder entries.
+     */
+    private Icon iconClosedFolder;
+
+    /**
+     * iconLeaf, This holds the default icon for leaf entries.
+     */
+    private Icon iconLeaf;
+
+    /**
+     * iconOpenFolder, This holds the default icon for open folder entries.
+     */
+    private Icon iconOpenFolder;
+
+    /**
+     * labelFont, This holds the font of the entry text.
+     */
+    private Font labelFont;
+
+    /**
+     * labelRenderer, This holds the label that is used for HTML entry text, and for any values that
+     * are not instances of CheckEntry.
+     */
+    private final CustomDefaultTreeCellRenderer labelRenderer;
+
+    /**
+     * partialCheckIcon, This holds the icon that is used to draw the checkbox of partially checked
+     * entries, when the tri-state mode of the tree model is enabled.
+     */
+    private final Icon partialCheckIcon = new PartialCheckIcon();
+
+    /**
+     * rowCheckboxVisible, This holds the checkbox visibility of the current row.
+     */
+    private boolean rowCheckboxVisible;
+
+    /**
+     * rowEnabled, This holds the enabled state of the current row.
+     */
+    private boolean rowEnabled;
+
+    /**
+     * rowEntry, This holds the entry of the current row, or null if the current value is not an
+     * entry.
+     */
+    private CheckEntry rowEntry;
+
+    /**
+     * rowForeground, This holds the text color of the current row.
+     */
+    private Color rowForeground;
+
+    /**
+     * rowIcon, This holds the icon of the current row.
+     */
+    private Icon rowIcon;
+
+    /**
+     * rowLeftBackground, This holds the background color of the left side of the current row.
+     */
+    private Color rowLeftBackground;
+
+    /**
+     * rowRightBackground, This holds the background color of the right side of the current row.
+     */
+    private Color rowRightBackground;
+
+    /**
+     * rowSizeCache, This holds the measured label area sizes of the rendered entries.
+     */
+    private final RowSizeCache rowSizeCache = new RowSizeCache();
+
+    /**
+     * rowText, This holds the text of the current row.
+     */
+    private String rowText;
+
+    /**
+     * rowUsesLabelRenderer, This is true if the text of the current row is drawn by the label
+     * renderer, instead of being drawn directly.
+     */
+    private boolean rowUsesLabelRenderer;
+
+    /**
+     * textAreaInsets, This holds the margins around the icon and the text.
+     */
+    private Insets textAreaInsets;
+
+    /**
+     * tree, This holds the tree associated with this renderer.
+     */
+    private final JCheckboxTree tree;
+
+    /**
+     * Constructor.
+     */
+    public FastCheckCellRenderer(JCheckboxTree tree) {
+        this.tree = tree;
+        checkbox.setMargin(new Insets(0, 0, 0, 0));
+        labelRenderer = new CustomDefaultTreeCellRenderer();
+        labelRenderer.drawsFocusBorderAroundIcon = false;
+        labelRenderer.drawDashedFocusIndicator = false;
+        labelRenderer.drawSolidFocusIndicator = false;
+        zUpdateLookAndFeelValues();
+    }
+
+    /**
+     * clearRowSizeCache, This clears the cached row sizes, so that every row is measured again the
+     * next time that it is laid out. Rows are measured again automatically when their text, font or
+     * icon is changed, so this only needs to be called when a row size could change in some other
+     * way.
+     */
+    public void clearRowSizeCache() {
+        rowSizeCache.clear();
+    }
+
+    /**
+     * getPreferredSize, This returns the preferred size of the current row. This uses the same
+     * calculation as CheckCellRenderer.getPreferredSize().
+     */
+    @Override
+    public Dimension getPreferredSize() {
+        if (rowEntry == null) {
+            // The value is not a CheckEntry.
+            return labelRenderer.getPreferredSize();
+        }
+        int minimumWidth = 50;
+        Dimension labelAreaPreferredSize = zGetLabelAreaPreferredSize();
+        int widthResult = checkboxSize.width
+                + labelAreaPreferredSize.width + tree.rowWidthAddedPixels;
+        // Add enough pixels to account for most situations where the icon width is not reported
+        // in the label area size.
+        widthResult += 36;
+        widthResult = (widthResult < minimumWidth) ? minimumWidth : widthResult;
+        int heightResult = Math.max((checkboxSize.height + 2), labelAreaPreferredSize.height);
+        // Add enough pixels to make the height of the selection bar vertically symmetrical around
+        // the checkbox.
+        heightResult += 1;
+        return new Dimension(widthResult, heightResult);
+    }
+
+    /**
+     * getTreeCellRendererComponent, This function is required by the TreeCellRenderer interface.
+     * This stores the values that are needed to paint the supplied row, and returns this renderer.
+     */
+    @Override
+    public Component getTreeCellRendererComponent(JTree possibleTree, Object possibleEntry,
+            boolean selected, boolean expanded, boolean leaf, int row, boolean hasFocus) {
+        // If we don't receive the expected class types, then return the label renderer by itself,
+        // using the default string value for the unexpected entry object.
+        if ((!(possibleEntry instanceof CheckEntry))
+                || (!(possibleTree instanceof JCheckboxTree))) {
+            rowEntry = null;
+            rowUsesLabelRenderer = true;
+            return labelRenderer.getTreeCellRendererComponent(
+                    possibleTree, possibleEntry, selected, expanded, leaf, row, hasFocus);
+        }
+        JCheckboxTree checkTree = (JCheckboxTree) possibleTree;
+        CheckEntry entry = (CheckEntry) possibleEntry;
+        rowEntry = entry;
+        rowText = (entry.text == null) ? "" : entry.text;
+        rowEnabled = checkTree.isEnabled();
+        // Configure the checkbox state.
+        // In tri-state mode, the state is read from the entry counters, without any traversal.
+        rowCheckboxVisible = entry.isCheckboxVisible();
+        if (rowCheckboxVisible) {
+            TriState triState = (checkTree.getModelFull().isTriStateEnabled())
+                    ? entry.getTriState()
+                    : ((entry.isChecked()) ? TriState.Checked : TriState.Unchecked);
+            checkbox.setSelected(triState == TriState.Checked);
+            checkbox.setIcon((triState == TriState.Partial) ? partialCheckIcon : null);
+            checkbox.setEnabled(rowEnabled);
+        }
+        // Choose the colors.
+        if (selected) {
+            rowLeftBackground = (tree.selectionsHighlightEntireRow)
+                    ? tree.selectionBackgroundColor : defaultTextBackgroundColor;
+            rowRightBackground = tree.selectionBackgroundColor;
+            rowForeground = tree.selectionForegroundColor;
+        } else {
+            rowLeftBackground = defaultTextBackgroundColor;
+            rowRightBackground = (entry.textBackgroundColor == null)
+                    ? defaultTextBackgroundColor : entry.textBackgroundColor;
+            rowForeground = (entry.textForegroundColor == null)
+                    ? defaultTextForegroundColor : entry.textForegroundColor;
+        }
+        // Choose the icon. Lazy entries with unloaded children are also displayed as folders.
+        boolean rowIsFolder = !entry.isLeaf();
+        Icon userIcon = entry.userIcon;
+        if (entry.userIconVisible && userIcon != null) {
+            rowIcon = userIcon;
+        } else if (checkTree.iconFallbackFolderNodes && rowIsFolder) {
+            rowIcon = (expanded) ? iconOpenFolder : iconClosedFolder;
+        } else if (checkTree.iconFallbackLeafNodes && (!rowIsFolder)) {
+            rowIcon = iconLeaf;
+        } else {
+            rowIcon = emptyIcon;
+        }
+        if (rowIcon != emptyIcon) {
+            ensureMinimumRowHeight(rowIcon.getIconHeight());
+        }
+        // HTML text is drawn by the label renderer.
+        rowUsesLabelRenderer = BasicHTML.isHTMLString(rowText);
+        if (rowUsesLabelRenderer) {
+            labelRenderer.getTreeCellRendererComponent(
+                    checkTree, rowText, selected, expanded, leaf, row, hasFocus);
+            labelRenderer.setIcon(rowIcon);
+            // A disabled label shows the disabled version of the row icon. The empty icon has no
+            // image, so it can not be converted to a disabled icon.
+            labelRenderer.setDisabledIcon((rowIcon == emptyIcon) ? emptyIcon : null);
+            labelRenderer.setFont(labelFont);
+            labelRenderer.setForeground(rowForeground);
+            labelRenderer.setBackground(rowRightBackground);
+        }
+        return this;
+    }
+
+    /**
+     * invalidate, Overridden for performance reasons.
+     */
+    @Override
+    public void invalidate() {
+    }
+
+    /**
+     * isPointInCheckboxActivationZone, Returns true if the supplied point is inside the checkbox
+     * activation zone of the row with the supplied entry and bounds. A row with a hidden checkbox
+     * has no activation zone.
+     */
+    @Override
+    public boolean isPointInCheckboxActivationZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree) {
+        if ((entry == null) || (!entry.isCheckboxVisible())) {
+            return false;
+        }
+        int zoneWidth = checkboxSize.width + (2 * ACTIVATION_ZONE_BORDER);
+        int zoneHeight = checkboxSize.height + (2 * ACTIVATION_ZONE_BORDER);
+        int x = mouseLocationRelativeToTree.x - rowBounds.x;
+        int y = mouseLocationRelativeToTree.y - rowBounds.y - zGetZoneTop(rowBounds.height);
+        return (x >= 0) && (x < zoneWidth) && (y >= 0) && (y < zoneHeight);
+    }
+
+    /**
+     * isPointInInactiveZone, Returns true only if the supplied point is in the left side of the
+     * row with the supplied entry and bounds, and outside of the checkbox activation zone. A row
+     * with a hidden checkbox has no inactive zone.
+     */
+    @Override
+    public boolean isPointInInactiveZone(CheckEntry entry, Rectangle rowBounds,
+            Point mouseLocationRelativeToTree) {
+        if ((entry == null) || (!entry.isCheckboxVisible())) {
+            return false;
+        }
+        int x = mouseLocationRelativeToTree.x - rowBounds.x;
+        int y = mouseLocationRelativeToTree.y - rowBounds.y;
+        return (x >= 0) && (x < zGetLeftSideWidth(true)) && (y >= 0) && (y < rowBounds.height)
+                && !isPointInCheckboxActivationZone(entry, rowBounds, mouseLocationRelativeToTree);
+    }
+
+    /**
+     * paint, This paints the current row in a single pass. The backgrounds are filled first, then
+     * the checkbox is painted, and then the icon and the text are painted.
+     */
+    @Override
+    public void paint(Graphics g) {
+        int width = getWidth();
+        int height = getHeight();
+        int leftSideWidth = zGetLeftSideWidth(rowCheckboxVisible);
+        // Fill the backgrounds.
+        if (rowLeftBackground != null) {
+            g.setColor(rowLeftBackground);
+            g.fillRect(0, 0, leftSideWidth, height);
+        }
+        if (rowRightBackground != null) {
+            g.setColor(rowRightBackground);
+            g.fillRect(leftSideWidth, 0, width - leftSideWidth, height);
+        }
+        // Paint the checkbox.
+        if (rowCheckboxVisible) {
+            Graphics checkboxGraphics = g.create(ACTIVATION_ZONE_BORDER,
+                    zGetZoneTop(height) + ACTIVATION_ZONE_BORDER,
+                    checkboxSize.width, checkboxSize.height);
+            checkbox.paint(checkboxGraphics);
+            checkboxGraphics.dispose();
+        }
+        // Paint the icon and the text.
+        Rectangle labelArea = new Rectangle(leftSideWidth + LABEL_LEFT_GAP, 0,
+                width - leftSideWidth - LABEL_LEFT_GAP - LABEL_RIGHT_GAP, height);
+        if (rowUsesLabelRenderer) {
+            labelRenderer.setBounds(labelArea);
+            Graphics labelGraphics = g.create(
+                    labelArea.x, labelArea.y, labelArea.width, labelArea.height);
+            labelRenderer.paint(labelGraphics);
+            labelGraphics.dispose();
+            return;
+        }
+        zPaintIconAndText(g, labelArea);
+    }
+
+    /**
+     * repaint, Overridden for performance reasons.
+     */
+    @Override
+    public void repaint() {
+    }
+
+    /**
+     * repaint, Overridden for performance reasons.
+     */
+    @Override
+    public void repaint(long tm, int x, int y, int width, int height) {
+    }
+
+    /**
+     * repaint, Overridden for performance reasons.
+     */
+    @Override
+    public void repaint(Rectangle r) {
+    }
+
+    /**
+     * revalidate, Overridden for performance reasons.
+     */
+    @Override
+    public void revalidate() {
+    }
+
+    /**
+     * updateUI, This updates the checkbox, the label renderer, and all of the stored look and feel
+     * values, when the look and feel is changed.
+     */
+    @Override
+    public void updateUI() {
+        super.updateUI();
+        // This is also called by the JComponent constructor, before the fields are initialized.
+        if (tree != null) {
+            SwingUtilities.updateComponentTreeUI(checkbox);
+            SwingUtilities.updateComponentTreeUI(labelRenderer);
+            zUpdateLookAndFeelValues();
+            rowSizeCache.clear();
+        }
+    }
+
+    /**
+     * validate, Overridden for performance reasons.
+     */
+    @Override
+    public void validate() {
+    }
+
+    /**
+     * ensureMinimumRowHeight, This checks the tree row height, and increases it to meet the
+     * supplied minimum row height whenever needed. This does nothing when the fixed row height mode
+     * of the tree is turned on. This matches the behavior of CheckCellRenderer.
+     */
+    private void ensureMinimumRowHeight(int minimumRowHeight) {
+        if ((!tree.isFixedRowHeightEnabled()) && (tree.getRowHeight() < minimumRowHeight)) {
+            tree.setRowHeight(minimumRowHeight);
+        }
+    }
+
+    /**
+     * zGetLabelAreaPreferredSize, This returns the preferred size of the icon and the text of the
+     * current row. The size is only measured if the current entry does not have a cached size for
+     * its current text, font and icon.
+     */
+    private Dimension zGetLabelAreaPreferredSize() {
+        Dimension labelSize = rowSizeCache.getLabelSize(rowEntry, rowText, labelFont, rowIcon);
+        if (labelSize == null) {
+            labelSize = (rowUsesLabelRenderer)
+                    ? labelRenderer.getPreferredSize() : zMeasureLabelArea();
+            rowSizeCache.putLabelSize(rowEntry, rowText, labelFont, rowIcon, labelSize);
+        }
+        return labelSize;
+    }
+
+    /**
+     * zGetLeftSideWidth, This returns the width of the left side of a row, which holds the checkbox
+     * activation zone. Like the form layout of CheckCellRenderer, this leaves out the checkbox
+     * width when the checkbox of the row is hidden.
+     */
+    private int zGetLeftSideWidth(boolean checkboxVisible) {
+        return ((checkboxVisible) ? checkboxSize.width : 0) + (2 * ACTIVATION_ZONE_BORDER);
+    }
+
+    /**
+     * zGetZoneTop, This returns the vertical position of the checkbox activation zone, in a row with
+     * the supplied height. The zone is vertically centered in the row, and any odd extra pixel is
+     * placed above the zone. The zone is never placed above the top of the row.
+     */
+    private int zGetZoneTop(int rowHeight) {
+        int extraHeight = rowHeight - checkboxSize.height - (2 * ACTIVATION_ZONE_BORDER);
+        return (extraHeight <= 0) ? 0 : ((extraHeight + 1) / 2);
+    }
+
+    /**
+     * zLayoutLabel, This calculates the icon and text positions of the current row inside the
+     * supplied view rectangle, using the default swing label alignments. This returns the text to
+     * draw, which is shortened with an ellipsis if it does not fit.
+     */
+    private String zLayoutLabel(FontMetrics metrics, Rectangle viewR, Rectangle iconR,
+            Rectangle textR) {
+        return SwingUtilities.layoutCompoundLabel(tree, metrics, rowText, rowIcon,
+                SwingConstants.CENTER, SwingConstants.LEADING,
+                SwingConstants.CENTER, SwingConstants.TRAILING,
+                viewR, iconR, textR, labelRenderer.getIconTextGap());
+    }
+
+    /**
+     * zMeasureLabelArea, This measures the preferred size of the icon and the text of the current
+     * row. This uses the same calculation as a swing label.
+     */
+    private Dimension zMeasureLabelArea() {
+        int dx = textAreaInsets.left + textAreaInsets.right;
+        int dy = textAreaInsets.top + textAreaInsets.bottom;
+        FontMetrics metrics = tree.getFontMetrics(labelFont);
+        Rectangle viewR = new Rectangle(dx, dy, Short.MAX_VALUE, Short.MAX_VALUE);
+        Rectangle iconR = new Rectangle();
+        Rectangle textR = new Rectangle();
+        zLayoutLabel(metrics, viewR, iconR, textR);
+        int x1 = Math.min(iconR.x, textR.x);
+        int x2 = Math.max(iconR.x + iconR.width, textR.x + textR.width);
+        int y1 = Math.min(iconR.y, textR.y);
+        int y2 = Math.max(iconR.y + iconR.height, textR.y + textR.height);
+        // The custom label renderer adds 3 pixels to the label width.
+        return new Dimension((x2 - x1) + dx + 3, (y2 - y1) + dy);
+    }
+
+    /**
+     * zPaintIconAndText, This paints the icon and the text of the current row, inside the supplied
+     * label area.
+     */
+    private void zPaintIconAndText(Graphics g, Rectangle labelArea) {
+        FontMetrics metrics = tree.getFontMetrics(labelFont);
+        Rectangle viewR = new Rectangle(labelArea.x + textAreaInsets.left,
+                labelArea.y + textAreaInsets.top,
+                labelArea.width - (textAreaInsets.left + textAreaInsets.right),
+                labelArea.height - (textAreaInsets.top + textAreaInsets.bottom));
+        Rectangle iconR = new Rectangle();
+        Rectangle textR = new Rectangle();
+        String clippedText = zLayoutLabel(metrics, viewR, iconR, textR);
+        if (rowIcon != emptyIcon) {
+            Icon icon = rowIcon;
+            if (!rowEnabled) {
+                Icon disabledIcon = UIManager.getLookAndFeel().getDisabledIcon(tree, icon);
+                icon = (disabledIcon == null) ? icon : disabledIcon;
+            }
+            icon.paintIcon(this, g, iconR.x, iconR.y);
+        }
+        if (!clippedText.isEmpty()) {
+            Graphics2D g2 = (Graphics2D) g;
+            if (desktopTextHints != null) {
+                g2.addRenderingHints(desktopTextHints);
+            }
+            g2.setFont(labelFont);
+            g2.setColor((rowEnabled) ? rowForeground : disabledTextColor);
+            g2.drawString(clippedText, textR.x, textR.y + metrics.getAscent());
+        }
+    }
+
+    /**
+     * zUpdateLookAndFeelValues, This reads all of the values that depend on the current look and
+     * feel.
+     */
+    private void zUpdateLookAndFeelValues() {
+        final Boolean focusPaintedObject
+                = (Boolean) UIManager.get("Tree.drawsFocusBorderAroundIcon");
+        checkbox.setFocusPainted(focusPaintedObject != null && focusPaintedObject);
+        checkbox.setSize(checkbox.getPreferredSize());
+        checkboxSize = checkbox.getSize();
+        iconOpenFolder = labelRenderer.getDefaultOpenIcon();
+        iconClosedFolder = labelRenderer.getDefaultClosedIcon();
+        iconLeaf = labelRenderer.getDefaultLeafIcon();
+        defaultTextBackgroundColor = UIManager.getColor("Tree.textBackground");
+        defaultTextForegroundColor = UIManager.getColor("Tree.textForeground");
+        disabledTextColor = UIManager.getColor("Label.disabledForeground");
+        disabledTextColor = (disabledTextColor == null) ? Color.gray : disabledTextColor;
+        // In CheckCellRenderer, the label is inside a panel, and uses the font of the panel.
+        labelFont = UIManager.getFont("Panel.font");
+        labelFont = (labelFont == null) ? tree.getFont() : labelFont;
+        textAreaInsets = labelRenderer.getInsets();
+        desktopTextHints = (Map<?, ?>) Toolkit.getDefaultToolkit().getDesktopProperty(
+                "awt.font.desktophints");
+    }
+}
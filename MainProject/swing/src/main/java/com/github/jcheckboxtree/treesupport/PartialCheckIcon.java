@@ -0,0 +1,48 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Component;
+import java.awt.Graphics;
+import javax.swing.Icon;
+import javax.swing.UIManager;
+
+/**
+ * PartialCheckIcon, This icon draws the checkbox of a partially checked entry. This paints the
+ * current look and feel checkbox icon in the unchecked state, and then fills a small square in the
+ * center of the icon with the checkbox foreground color. This is used by the checkbox tree cell
+ * renderers when the tri-state mode of the tree model is enabled.
+ */
+class PartialCheckIcon implements Icon {
+
+    /**
+     * getBaseIcon, This returns the checkbox icon of the current look and feel.
+     */
+    private Icon getBaseIcon() {
+        return UIManager.getIcon("CheckBox.icon");
+    }
+
+    @Override
+    public int getIconHeight() {
+        Icon baseIcon = getBaseIcon();
+        return (baseIcon == null) ? 13 : baseIcon.getIconHeight();
+    }
+
+    @Override
+    public int getIconWidth() {
+        Icon baseIcon = getBaseIcon();
+        return (baseIcon == null) ? 13 : baseIcon.getIconWidth();
+    }
+
+    @Override
+    public void paintIcon(Component component, Graphics g, int x, int y) {
+        Icon baseIcon = getBaseIcon();
+        if (baseIcon != null) {
+            baseIcon.paintIcon(component, g, x, y);
+        }
+        int width = getIconWidth();
+        int height = getIconHeight();
+        int inset = Math.max(3, Math.min(width, height) / 4);
+        g.setColor(component.isEnabled() ? component.getForeground()
+                : UIManager.getColor("CheckBox.disabledText"));
+        g.fillRect(x + inset, y + inset, width - (2 * inset), height - (2 * inset));
+    }
+}
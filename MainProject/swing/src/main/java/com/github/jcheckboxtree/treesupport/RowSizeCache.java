@@ -0,0 +1,90 @@
+package com.github.jcheckboxtree.treesupport;
+
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.Map;
+import java.util.WeakHashMap;
+import javax.swing.Icon;
+
+/**
+ * RowSizeCache, This holds the measured label area size of each rendered checkbox tree entry. This
+ * is used by the checkbox tree cell renderers, so that the tree layout does not need to measure the
+ * entry text again each time that a row is expanded, collapsed, or changed.
+ *
+ * Each cached size is keyed on the text, the font, and the icon that were used to measure it. A
+ * cached size is only used if those values are unchanged when the row is measured again. This means
+ * that an entry is measured again after its text or its icon is changed, even when the entry fields
+ * were changed directly, but not after any other change. The checkbox visibility is not part of the
+ * key, because the cached label area does not contain the checkbox. The preferred row size does
+ * not depend on the checkbox visibility either, because the renderers always add the preferred
+ * width and height of the checkbox to the label area size, even when the checkbox of the row is
+ * hidden.
+ *
+ * Entries are held weakly, so removed entries do not stay in the cache.
+ */
+class RowSizeCache {
+
+    /**
+     * cachedSizes, This holds the cached size of each measured entry.
+     */
+    private final Map<CheckEntry, CachedSize> cachedSizes = new WeakHashMap<CheckEntry, CachedSize>();
+
+    /**
+     * clear, This removes all of the cached sizes. This should be called whenever something other
+     * than the key values could change the size of all rows, such as a look and feel change.
+     */
+    void clear() {
+        cachedSizes.clear();
+    }
+
+    /**
+     * getLabelSize, This returns the cached label area size of the supplied entry, or null if the
+     * entry has not been measured with the supplied text, font and icon.
+     */
+    Dimension getLabelSize(CheckEntry entry, String text, Font font, Icon icon) {
+        CachedSize cachedSize = cachedSizes.get(entry);
+        if ((cachedSize == null) || (cachedSize.font != font) || (cachedSize.icon != icon)
+                || (!zTextEquals(cachedSize.text, text))) {
+            return null;
+        }
+        return new Dimension(cachedSize.width, cachedSize.height);
+    }
+
+    /**
+     * putLabelSize, This stores the label area size of the supplied entry, as measured with the
+     * supplied text, font and icon.
+     */
+    void putLabelSize(CheckEntry entry, String text, Font font, Icon icon, Dimension labelSize) {
+        CachedSize cachedSize = cachedSizes.get(entry);
+        if (cachedSize == null) {
+            cachedSize = new CachedSize();
+            cachedSizes.put(entry, cachedSize);
+        }
+        cachedSize.text = text;
+        cachedSize.font = font;
+        cachedSize.icon = icon;
+        cachedSize.width = labelSize.width;
+        cachedSize.height = labelSize.height;
+    }
+
+    /**
+     * zTextEquals, This returns true if the supplied text values are equal. Either value may be
+     * null.
+     */
+    private static boolean zTextEquals(String first, String second) {
+        return (first == second) || ((first != null) && first.equals(second));
+    }
+
+    /**
+     * CachedSize, This holds one cached label area size and the key values that it was measured
+     * with.
+     */
+    private static class CachedSize {
+
+        Font font;
+        int height;
+        Icon icon;
+        String text;
+        int width;
+    }
+}
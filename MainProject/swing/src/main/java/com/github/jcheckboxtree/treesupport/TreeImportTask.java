@@ -0,0 +1,189 @@
+package com.github.jcheckboxtree.treesupport;
+
+import com.github.jcheckboxtree.components.JCheckboxTree;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import javax.swing.SwingWorker;
+
+/**
+ * TreeImportTask, This class imports a text file into a new CheckModel on a background thread, and
+ * then installs the new model in a JCheckboxTree. The whole model is built by a TreeImporter before
+ * the tree sees any of it, so the tree receives the imported entries with a single setModel() call,
+ * instead of one model event for every entry. The tree keeps showing its current model, and stays
+ * responsive, while the file is imported.
+ *
+ * A running task can be cancelled at any time by calling cancel(). A cancelled task does not
+ * change the model of the tree. If the import fails, the model of the tree is not changed, and
+ * the failure can be read with getError().
+ *
+ * Usage example: tree.startImport(new TreeImporter(TreeImporter.Format.PATHS), file, listener);
+ *
+ * The functions of this class should only be used from the event dispatch thread.
+ */
+public class TreeImportTask {
+
+    /**
+     * CompletionListener, This interface can be implemented to be told when a task is finished.
+     * The listener is called on the event dispatch thread, after the new model was installed, or
+     * after the task has failed or was cancelled.
+     */
+    public interface CompletionListener {
+
+        /**
+         * importFinished, This is called once, when the supplied task is finished. Use the task
+         * functions getModel(), getError() and isCancelled() to read the result.
+         */
+        void importFinished(TreeImportTask task);
+    }
+
+    /**
+     * completionListener, This holds the completion listener, or null if there is no listener.
+     */
+    private final CompletionListener completionListener;
+
+    /**
+     * error, This holds the exception that stopped the import, or null.
+     */
+    private Exception error = null;
+
+    /**
+     * file, This holds the file that is imported.
+     */
+    private final Path file;
+
+    /**
+     * finished, This is true if the task has finished.
+     */
+    private boolean finished = false;
+
+    /**
+     * importer, This holds the importer that builds the new model.
+     */
+    private final TreeImporter importer;
+
+    /**
+     * model, This holds the imported model after it was installed, or null.
+     */
+    private CheckModel model = null;
+
+    /**
+     * tree, This holds the tree that receives the imported model.
+     */
+    private final JCheckboxTree tree;
+
+    /**
+     * worker, This holds the worker that runs the import, or null if the task was not started.
+     */
+    private ImportWorker worker = null;
+
+    /**
+     * Constructor. This creates a task that will import the supplied file with the supplied
+     * importer, and install the result in the supplied tree. The completion listener may be null.
+     * The task does not do anything until start() is called.
+     */
+    public TreeImportTask(JCheckboxTree tree, TreeImporter importer, Path file,
+            CompletionListener completionListener) {
+        this.tree = tree;
+        this.importer = importer;
+        this.file = file;
+        this.completionListener = completionListener;
+    }
+
+    /**
+     * cancel, This cancels the task. The import thread is interrupted, and the model of the tree is
+     * not changed. The completion listener is notified, even if the import thread has not yet
+     * stopped.
+     */
+    public void cancel() {
+        if (finished) {
+            return;
+        }
+        if (worker == null) {
+            zFinish();
+        } else {
+            worker.cancel(true);
+        }
+    }
+
+    /**
+     * getError, This returns the exception that stopped the import, or null if the import did not
+     * fail.
+     */
+    public Exception getError() {
+        return error;
+    }
+
+    /**
+     * getModel, This returns the imported model after it was installed in the tree. Otherwise this
+     * returns null.
+     */
+    public CheckModel getModel() {
+        return model;
+    }
+
+    /**
+     * isCancelled, This returns true if the task has been cancelled.
+     */
+    public boolean isCancelled() {
+        return (worker == null) ? finished : worker.isCancelled();
+    }
+
+    /**
+     * isFinished, This returns true if the task has finished, either because the model was
+     * installed, because the import failed, or because the task was cancelled.
+     */
+    public boolean isFinished() {
+        return finished;
+    }
+
+    /**
+     * start, This starts the import on a background thread. This does nothing if the task was
+     * already started or has finished.
+     */
+    public void start() {
+        if ((worker != null) || finished) {
+            return;
+        }
+        worker = new ImportWorker();
+        worker.execute();
+    }
+
+    /**
+     * zFinish, This marks the task as finished, and notifies the completion listener.
+     */
+    private void zFinish() {
+        finished = true;
+        if (completionListener != null) {
+            completionListener.importFinished(this);
+        }
+    }
+
+    /**
+     * ImportWorker, This runs the import on a background thread, and installs the imported model
+     * on the event dispatch thread.
+     */
+    private class ImportWorker extends SwingWorker<CheckModel, Void> {
+
+        @Override
+        protected CheckModel doInBackground() throws Exception {
+            return importer.importFile(file);
+        }
+
+        @Override
+        protected void done() {
+            if (!isCancelled()) {
+                try {
+                    CheckModel importedModel = get();
+                    tree.setModel(importedModel);
+                    model = importedModel;
+                } catch (ExecutionException exception) {
+                    Throwable cause = exception.getCause();
+                    error = (cause instanceof Exception) ? (Exception) cause : exception;
+                } catch (InterruptedException exception) {
+                    error = exception;
+                }
+            }
+            zFinish();
+        }
+    }
+}